@@ -0,0 +1,83 @@
+package org.example.snakegame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks one Arena tick with a growing number of snakes on a board that
+ * grows with them (400 cells per snake). The snakes only dodge walls and bodies,
+ * so the time is spent in the arena and not in searching for food.
+ * The time per tick should grow linearly with the number of snakes.
+ * When half of the snakes have died the arena is built again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Param({"10", "100", "1000"})
+    public int snakes;
+
+    private Arena arena;
+    private long seed;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        rebuild();
+    }
+
+    private void rebuild()
+    {
+        int side = (int) Math.sqrt(snakes * 400.0);
+        arena = new Arena(side, side, snakes, snakes / 4 + 1, SpeedProfile.CLASSIC, seed++);
+        ArenaPolicy dodge = ArenaBenchmark::dodge;
+        for (int i = 0; i < snakes; i++) {
+            arena.setPolicy(i, dodge);
+        }
+    }
+
+    // Keeps going straight unless the next cell is taken
+    private static Direction dodge(Arena arena, int index)
+    {
+        Snake snake = arena.getSnake(index);
+        if (isFree(arena, snake.getNextX(), snake.getNextY())) return null;
+        for (Direction direction : DIRECTIONS) {
+            if (direction == snake.getDirection() || direction.isOpposite(snake.getDirection())) continue;
+            int x = snake.getHeadX() + (direction == Direction.RIGHT ? 1 : direction == Direction.LEFT ? -1 : 0);
+            int y = snake.getHeadY() + (direction == Direction.DOWN ? 1 : direction == Direction.UP ? -1 : 0);
+            if (isFree(arena, x, y)) return direction;
+        }
+        return null;
+    }
+
+    private static boolean isFree(Arena arena, int x, int y)
+    {
+        return x >= 0 && x < arena.getWidth() && y >= 0 && y < arena.getHeight() && !arena.isOccupied(x, y);
+    }
+
+    @Benchmark
+    public int tick()
+    {
+        int alive = arena.tick();
+        if (alive < snakes / 2) rebuild();
+        return alive;
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.snakegame;
+
+/**
+ * A cycle through every cell of the board, used to build snakes of any length
+ * and to move them forever without hitting the edge or themselves.
+ * Row 0 is walked to the right, the rows below in a zigzag over the columns
+ * 1..width-1, and column 0 leads back up. The height has to be even.
+ */
+public class BoardPath
+{
+    private final int width;
+    private final int[] cells; // y * width + x, in walking order
+    private int position;
+
+    /**
+     * Creates the cycle for a board
+     * @param width the width of the board in cells
+     * @param height the height of the board in cells, must be even
+     */
+    public BoardPath(int width, int height)
+    {
+        if (height % 2 != 0) throw new IllegalArgumentException("Height must be even");
+        this.width = width;
+        this.cells = new int[width * height];
+        int n = 0;
+        for (int x = 0; x < width; x++) cells[n++] = x;
+        for (int y = 1; y < height; y++) {
+            if (y % 2 == 1) {
+                for (int x = width - 1; x >= 1; x--) cells[n++] = y * width + x;
+            } else {
+                for (int x = 1; x < width; x++) cells[n++] = y * width + x;
+            }
+        }
+        for (int y = height - 1; y >= 1; y--) cells[n++] = y * width;
+    }
+
+    /**
+     * Builds a snake at the start of the cycle and grows it along the cycle.
+     * Lengths that do not fit are cut to one cell less than the board,
+     * so there is always a free cell left for food.
+     * @param length the wanted length
+     * @return the snake, with its head on the current position of the path
+     */
+    public Snake buildSnake(int length)
+    {
+        position = 0;
+        Snake snake = new Snake(width, cells.length / width, cells[0] % width, cells[0] / width);
+        int target = Math.min(length, cells.length - 1);
+        while (snake.getLength() < target) {
+            snake.turn(next());
+            snake.move();
+            snake.grow();
+        }
+        return snake;
+    }
+
+    /**
+     * Returns the direction from the current cell to the next one and moves on
+     * @return the direction to follow the cycle
+     */
+    public Direction next()
+    {
+        int from = cells[position];
+        position = (position + 1) % cells.length;
+        int to = cells[position];
+        int dx = to % width - from % width;
+        int dy = to / width - from / width;
+        if (dx > 0) return Direction.RIGHT;
+        if (dx < 0) return Direction.LEFT;
+        return dy > 0 ? Direction.DOWN : Direction.UP;
+    }
+
+    /**
+     * Returns the number of cells of the board
+     * @return width * height
+     */
+    public int size()
+    {
+        return cells.length;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.snakegame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks picking a food cell from the occupancy of the board,
+ * for snakes from a single segment up to a nearly full board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoodSpawnBenchmark
+{
+    @Param({"30", "100", "1000"})
+    public int boardSize;
+
+    @Param({"1", "64", "899", "250000"})
+    public int length;
+
+    private Occupancy occupancy;
+    private final Random random = new Random(42);
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        occupancy = new BoardPath(boardSize, boardSize).buildSnake(length).getOccupancy();
+    }
+
+    @Benchmark
+    public int spawn()
+    {
+        return occupancy.sampleFree(random);
+    }
+}
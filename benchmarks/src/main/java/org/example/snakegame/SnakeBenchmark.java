@@ -0,0 +1,79 @@
+package org.example.snakegame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the operations of Snake for different lengths and board sizes.
+ * The snake follows a cycle over the whole board, so it never dies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeBenchmark
+{
+    @Param({"30", "100", "1000"})
+    public int boardSize;
+
+    @Param({"1", "64", "899", "250000"})
+    public int length;
+
+    private BoardPath path;
+    private Snake snake;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        path = new BoardPath(boardSize, boardSize);
+        snake = path.buildSnake(length);
+    }
+
+    @Benchmark
+    public int move()
+    {
+        snake.turn(path.next());
+        snake.move();
+        return snake.getHeadX();
+    }
+
+    @Benchmark
+    public boolean checkCollision()
+    {
+        return snake.checkCollision();
+    }
+
+    @Benchmark
+    public boolean checkEdgeCollision()
+    {
+        return snake.checkEdgeCollision(boardSize, boardSize);
+    }
+
+    /**
+     * grow() makes the snake longer with every call, so it is measured in
+     * batches on a fresh snake per iteration, including the array doublings.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = 10_000)
+    @Measurement(iterations = 10, batchSize = 10_000)
+    public int grow()
+    {
+        snake.grow();
+        return snake.getLength();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.snakegame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a complete headless tick of the SimulationEngine:
+ * move, edge and self collision, eating, food spawning and effect timers.
+ * The snake follows a cycle over the whole board and eats whatever lies on it,
+ * so it slowly grows. Snakes start with at most three quarters of the board,
+ * when the board is full the game ends and the snake is built again,
+ * which is rare enough not to show up in the average.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark
+{
+    @Param({"30", "100", "1000"})
+    public int boardSize;
+
+    @Param({"1", "64", "899", "250000"})
+    public int length;
+
+    private SimulationEngine engine;
+    private BoardPath path;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        engine = new SimulationEngine(boardSize, boardSize, 42);
+        path = new BoardPath(boardSize, boardSize);
+        rebuild();
+    }
+
+    private void rebuild()
+    {
+        int start = Math.min(length, path.size() * 3 / 4);
+        engine.load(new GameState(boardSize, boardSize, path.buildSnake(start)));
+    }
+
+    @Benchmark
+    public boolean tick()
+    {
+        if (!engine.step(path.next())) {
+            rebuild();
+            return false;
+        }
+        return true;
+    }
+}
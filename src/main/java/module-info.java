@@ -1,17 +1,8 @@
 module org.example.snakegame {
     requires javafx.controls;
-    requires javafx.fxml;
-    requires javafx.web;
-
-    requires org.controlsfx.controls;
-    requires com.dlsc.formsfx;
-    requires net.synedra.validatorfx;
-    requires org.kordamp.ikonli.javafx;
-    requires org.kordamp.bootstrapfx.core;
-    requires eu.hansolo.tilesfx;
-    requires com.almasb.fxgl.all;
     requires java.desktop;
+    requires java.management;
+    requires jdk.management;
 
-    opens org.example.snakegame to javafx.fxml;
     exports org.example.snakegame;
-}
\ No newline at end of file
+}
@@ -0,0 +1,538 @@
+package org.example.snakegame;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many snakes on one shared board, headless like the SimulationEngine.
+ * All snakes mark their bodies in one shared Occupancy, so a head running into
+ * any body is a single lookup, and heads that enter the same cell in the same
+ * tick are found through a CellIndex of this tick's heads. The cost of a tick
+ * therefore grows linearly with the number of snakes, not quadratically.
+ * Several food items lie on the board at once and have the same effects as in
+ * the single game, looked up in a FoodTable. Snakes move in lockstep: the tick
+ * length is the shortest step length any snake can have and a snake moves on
+ * the ticks where its own step length has passed, so a boosted snake really is
+ * faster than the others.
+ * A tick first lets every snake's policy decide, split into partitions on a
+ * ForkJoinPool since deciding only reads the board; then tails, heads, deaths
+ * and food are resolved in index order on one thread, which keeps the arena
+ * deterministic for a seed no matter how many threads decide.
+ * Effects and food lifetimes are timers on a TimerWheel, so a tick only
+ * touches the snakes and food whose time is up.
+ */
+public class Arena
+{
+    private static final int SNAKES_PER_TASK = 64; // Below this the decisions are made on one thread
+    private static final int FOOD_TRIES = 64;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Kinds of timers on the wheel, the payload is the snake or food
+    private static final int SPEED_RESET = 0;
+    private static final int HEAD_RESET = 1;
+    private static final int FOOD_EXPIRY = 2;
+    private static final int MULTIPLIER_RESET = 3;
+
+    private final int width;
+    private final int height;
+    private final SpeedProfile speeds;
+    private final FoodTable foods;
+    private final double[] foodSpeeds; // Step length set by each food type, NaN for none
+    private final double tickMillis;
+    private final GameRandom random;
+    private final Occupancy occupancy;
+
+    private final Snake[] snakes;
+    private final Score[] scores;
+    private final boolean[] alive;
+    private final double[] progress; // Time since the last move of each snake, in ms
+    private final int[] speedTimers;
+    private final int[] headTimers;
+    private final int[] multiplierTimers;
+    // Simulated time in ms at which the running effects of each snake end, -1 when not active
+    private final long[] speedEnds;
+    private final long[] headEnds;
+    private final long[] multiplierEnds;
+    private final int[] multipliers;
+    private final ArenaPolicy[] policies;
+    private final Direction[] decisions;
+    private final boolean[] moving;
+    private final boolean[] dying;
+    private final boolean[] headOn; // Died by meeting another head, the head cell is nobody's; kept after death
+    private final CellIndex heads;
+    private int aliveCount;
+
+    private final FoodType[] foodTypes; // null while a food has no place
+    private final int[] foodCells;
+    private final int[] foodTimers;
+    private final CellIndex foodIndex;
+
+    private ForkJoinPool pool; // null to decide on the calling thread
+    private long tick;
+    private long elapsedMillis;
+    private final TimerWheel timers = new TimerWheel(SimulationEngine.TIMER_SLOTS, SimulationEngine.TIMER_RESOLUTION);
+    private final TimerWheel.Handler timerHandler = this::onTimer;
+
+    /**
+     * Creates an arena and places the snakes, one segment each, and the food on random free cells
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snakeCount the number of snakes
+     * @param foodCount the number of food items on the board at once
+     * @param speeds the step lengths of the snakes
+     * @param seed seed for placement and food types
+     */
+    public Arena(int width, int height, int snakeCount, int foodCount, SpeedProfile speeds, long seed)
+    {
+        this(width, height, snakeCount, foodCount, speeds, FoodTable.DEFAULT, seed);
+    }
+
+    /**
+     * Creates an arena with its own food types and places the snakes and the food
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snakeCount the number of snakes
+     * @param foodCount the number of food items on the board at once
+     * @param speeds the step lengths of the snakes
+     * @param foods the food types and their effects
+     * @param seed seed for placement and food types
+     */
+    public Arena(int width, int height, int snakeCount, int foodCount, SpeedProfile speeds, FoodTable foods,
+                 long seed)
+    {
+        if (width < 1 || height < 1 || width > Snake.MAX_BOARD_SIZE || height > Snake.MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException("Board must be between 1x1 and "
+                    + Snake.MAX_BOARD_SIZE + "x" + Snake.MAX_BOARD_SIZE + " cells");
+        }
+        if (snakeCount < 1 || foodCount < 0 || (long) snakeCount + foodCount > (long) width * height) {
+            throw new IllegalArgumentException("Snakes and food do not fit on the board");
+        }
+        this.width = width;
+        this.height = height;
+        this.speeds = speeds;
+        this.foods = foods;
+        this.foodSpeeds = foods.resolveSpeeds(speeds);
+        double shortest = Math.min(speeds.getBoostSpeed(), speeds.getNormalSpeed());
+        for (double speed : foodSpeeds) {
+            if (speed < shortest) shortest = speed; // false for NaN
+        }
+        this.tickMillis = shortest;
+        this.random = new GameRandom(seed);
+        this.occupancy = Occupancy.forBoard(width, height);
+
+        this.snakes = new Snake[snakeCount];
+        this.scores = new Score[snakeCount];
+        this.alive = new boolean[snakeCount];
+        this.progress = new double[snakeCount];
+        this.speedTimers = new int[snakeCount];
+        this.headTimers = new int[snakeCount];
+        this.multiplierTimers = new int[snakeCount];
+        this.speedEnds = new long[snakeCount];
+        this.headEnds = new long[snakeCount];
+        this.multiplierEnds = new long[snakeCount];
+        this.multipliers = new int[snakeCount];
+        this.policies = new ArenaPolicy[snakeCount];
+        this.decisions = new Direction[snakeCount];
+        this.moving = new boolean[snakeCount];
+        this.dying = new boolean[snakeCount];
+        this.headOn = new boolean[snakeCount];
+        this.heads = new CellIndex(snakeCount);
+        for (int i = 0; i < snakeCount; i++) {
+            int cell = occupancy.sampleFree(random);
+            Snake snake = new Snake(width, height, cell % width, cell / width, occupancy);
+            snake.turn(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            snake.setSpeed(speeds.getNormalSpeed());
+            snakes[i] = snake;
+            scores[i] = new Score();
+            alive[i] = true;
+            speedTimers[i] = TimerWheel.NONE;
+            headTimers[i] = TimerWheel.NONE;
+            multiplierTimers[i] = TimerWheel.NONE;
+            speedEnds[i] = -1;
+            headEnds[i] = -1;
+            multiplierEnds[i] = -1;
+            multipliers[i] = 1;
+        }
+        aliveCount = snakeCount;
+
+        this.foodTypes = new FoodType[foodCount];
+        this.foodCells = new int[foodCount];
+        this.foodTimers = new int[foodCount];
+        this.foodIndex = new CellIndex(foodCount);
+        for (int i = 0; i < foodCount; i++) {
+            foodTimers[i] = TimerWheel.NONE;
+            spawnFood(i);
+        }
+    }
+
+    /**
+     * Sets the policy that steers a snake
+     * @param snake the index of the snake
+     * @param policy the policy, or null to let the snake go straight
+     */
+    public void setPolicy(int snake, ArenaPolicy policy)
+    {
+        policies[snake] = policy;
+    }
+
+    /**
+     * Sets the pool the policies decide on
+     * @param pool the pool, or null to decide on the thread that calls tick()
+     */
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Replaces all snakes by ones with the given bodies, for tests that need exact positions
+     * @param directions the direction each snake heads in
+     * @param bodies the cells of each body as y * width + x, head first
+     */
+    void placeSnakes(Direction[] directions, int[][] bodies)
+    {
+        if (directions.length != snakes.length || bodies.length != snakes.length) {
+            throw new IllegalArgumentException("Need a body for every snake");
+        }
+        for (Snake snake : snakes) {
+            for (int k = 0; k < snake.getLength(); k++) {
+                snake.vacate(snake.getX(k), snake.getY(k));
+            }
+        }
+        for (int i = 0; i < snakes.length; i++) {
+            int[] body = bodies[i];
+            IntBuffer cells = IntBuffer.allocate(body.length);
+            for (int cell : body) {
+                cells.put(Snake.pack(cell % width, cell / width));
+            }
+            cells.flip();
+            Snake snake = new Snake(width, height, cells, body.length, occupancy);
+            snake.restore(directions[i], 0, cells.get(body.length - 1));
+            snake.setSpeed(speeds.getNormalSpeed());
+            snakes[i] = snake;
+            progress[i] = 0;
+        }
+    }
+
+    /**
+     * Advances the arena by one tick
+     * @return the number of snakes still alive
+     */
+    public int tick()
+    {
+        if (aliveCount == 0) return 0;
+        tick++;
+        elapsedMillis += (long) tickMillis;
+
+        if (pool == null || snakes.length <= SNAKES_PER_TASK) {
+            decide(0, snakes.length);
+        } else {
+            pool.invoke(new Decisions(0, snakes.length));
+        }
+
+        // Turn the snakes whose step length has passed
+        for (int i = 0; i < snakes.length; i++) {
+            moving[i] = false;
+            if (!alive[i]) continue;
+            progress[i] += tickMillis;
+            if (progress[i] < snakes[i].getSpeed()) continue;
+            progress[i] -= snakes[i].getSpeed();
+            moving[i] = true;
+            if (decisions[i] != null) snakes[i].turn(decisions[i]);
+        }
+
+        // All tails leave before any head moves, so a snake may follow another's tail
+        for (int i = 0; i < snakes.length; i++) {
+            if (moving[i]) snakes[i].retractTail();
+        }
+        moveHeads();
+        for (int i = 0; i < snakes.length; i++) {
+            if (dying[i]) kill(i);
+        }
+
+        for (int i = 0; i < snakes.length; i++) {
+            if (moving[i] && alive[i]) eat(i);
+        }
+        timers.advance(elapsedMillis, timerHandler);
+        return aliveCount;
+    }
+
+    private void decide(int from, int to)
+    {
+        for (int i = from; i < to; i++) {
+            decisions[i] = alive[i] && policies[i] != null ? policies[i].decide(this, i) : null;
+        }
+    }
+
+    /**
+     * Moves the heads of the moving snakes and marks the ones that die:
+     * off the board, into any body, or into a cell another head entered this tick
+     */
+    private void moveHeads()
+    {
+        heads.clear();
+        for (int i = 0; i < snakes.length; i++) {
+            if (!moving[i]) continue;
+            Snake snake = snakes[i];
+            int x = snake.getNextX();
+            int y = snake.getNextY();
+            if (x < 0 || x >= width || y < 0 || y >= height) {
+                dying[i] = true;
+            } else {
+                int cell = y * width + x;
+                int other = heads.get(cell);
+                if (other >= 0) {
+                    dying[i] = dying[other] = true;
+                    headOn[i] = headOn[other] = true;
+                } else if (occupancy.contains(x, y)) {
+                    dying[i] = true;
+                } else {
+                    heads.put(cell, i);
+                }
+            }
+            snake.extendHead();
+        }
+    }
+
+    /**
+     * Removes a dead snake from the board. Its head cell belongs to the body it
+     * ran into, unless it met another head there.
+     */
+    private void kill(int i)
+    {
+        Snake snake = snakes[i];
+        for (int k = 1; k < snake.getLength(); k++) {
+            snake.vacate(snake.getX(k), snake.getY(k));
+        }
+        if (headOn[i]) snake.vacate(snake.getHeadX(), snake.getHeadY());
+        alive[i] = false;
+        dying[i] = false;
+        aliveCount--;
+        timers.cancel(speedTimers[i]);
+        timers.cancel(headTimers[i]);
+        timers.cancel(multiplierTimers[i]);
+        speedTimers[i] = TimerWheel.NONE;
+        headTimers[i] = TimerWheel.NONE;
+        multiplierTimers[i] = TimerWheel.NONE;
+    }
+
+    /**
+     * Applies the food under the snake's head, with the same effects as in the single game
+     */
+    private void eat(int i)
+    {
+        Snake snake = snakes[i];
+        int food = foodIndex.get(snake.getHeadY() * width + snake.getHeadX());
+        if (food < 0) return;
+
+        int t = foodTypes[food].getIndex();
+        int points = foods.points[t] * multipliers[i];
+        int effects = foods.effects[t];
+        if ((effects & FoodTable.SPEED) != 0) {
+            snake.setSpeed(foodSpeeds[t]);
+            speedEnds[i] = foods.effectEnd(t, elapsedMillis, speedEnds[i]);
+            timers.cancel(speedTimers[i]);
+            speedTimers[i] = timers.schedule(speedEnds[i], SPEED_RESET, i);
+        }
+        if ((effects & FoodTable.HEAD) != 0) {
+            snake.enlargeHead();
+            headEnds[i] = foods.effectEnd(t, elapsedMillis, headEnds[i]);
+            timers.cancel(headTimers[i]);
+            headTimers[i] = timers.schedule(headEnds[i], HEAD_RESET, i);
+        }
+        if ((effects & FoodTable.MULTIPLIER) != 0) {
+            multipliers[i] = foods.multipliers[t];
+            multiplierEnds[i] = foods.effectEnd(t, elapsedMillis, multiplierEnds[i]);
+            timers.cancel(multiplierTimers[i]);
+            multiplierTimers[i] = timers.schedule(multiplierEnds[i], MULTIPLIER_RESET, i);
+        }
+        for (int k = foods.growth[t]; k > 0; k--) {
+            snake.grow();
+        }
+        scores[i].updateScore(points);
+        spawnFood(food);
+    }
+
+    /**
+     * Ends an effect of a snake or relocates a food item whose time is up
+     */
+    private void onTimer(int kind, int payload)
+    {
+        switch (kind) {
+            case SPEED_RESET -> {
+                speedTimers[payload] = TimerWheel.NONE;
+                speedEnds[payload] = -1;
+                snakes[payload].setSpeed(speeds.getNormalSpeed());
+            }
+            case HEAD_RESET -> {
+                headTimers[payload] = TimerWheel.NONE;
+                headEnds[payload] = -1;
+                snakes[payload].resetHeadSize();
+            }
+            case MULTIPLIER_RESET -> {
+                multiplierTimers[payload] = TimerWheel.NONE;
+                multiplierEnds[payload] = -1;
+                multipliers[payload] = 1;
+            }
+            case FOOD_EXPIRY -> {
+                foodTimers[payload] = TimerWheel.NONE;
+                spawnFood(payload);
+            }
+        }
+    }
+
+    /**
+     * Moves a food item to a random free cell without other food and gives it a type picked by weight.
+     * If no such cell is found, the food stays off the board and tries again with the next tick.
+     */
+    private void spawnFood(int food)
+    {
+        if (foodTypes[food] != null) foodIndex.remove(foodCells[food]);
+        foodTypes[food] = null;
+        long expiresAt = elapsedMillis + (long) tickMillis; // Try again with the next tick
+        for (int tries = 0; tries < FOOD_TRIES; tries++) {
+            int cell = occupancy.sampleFree(random);
+            if (cell < 0) break;
+            if (foodIndex.get(cell) >= 0) continue;
+            foodTypes[food] = foods.get(foods.sample(random));
+            foodCells[food] = cell;
+            foodIndex.put(cell, food);
+            expiresAt = elapsedMillis + SimulationEngine.FOOD_LIFETIME;
+            break;
+        }
+        timers.cancel(foodTimers[food]);
+        foodTimers[food] = timers.schedule(expiresAt, FOOD_EXPIRY, food);
+    }
+
+    /**
+     * A range of snakes, split in halves until it is small enough to decide directly
+     */
+    private class Decisions extends RecursiveAction
+    {
+        private final int from;
+        private final int to;
+
+        Decisions(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= SNAKES_PER_TASK) {
+                decide(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Decisions(from, middle), new Decisions(middle, to));
+        }
+    }
+
+    /**
+     * Checks if a snake moves with the next tick, so a policy that consumes
+     * input only takes a turn on the ticks where it is applied
+     * @param snake the index of the snake
+     * @return true if the snake is alive and its step length will have passed
+     */
+    public boolean willMove(int snake)
+    {
+        return alive[snake] && progress[snake] + tickMillis >= snakes[snake].getSpeed();
+    }
+
+    /**
+     * Checks if any snake covers a cell
+     * @param x the x grid position
+     * @param y the y grid position
+     * @return true if the cell is on the board and covered
+     */
+    public boolean isOccupied(int x, int y)
+    {
+        if (x < 0 || x >= width || y < 0 || y >= height) return false;
+        return occupancy.contains(x, y);
+    }
+
+    //region Getter
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSnakeCount() {
+        return snakes.length;
+    }
+
+    public Snake getSnake(int snake) {
+        return snakes[snake];
+    }
+
+    public Score getScore(int snake) {
+        return scores[snake];
+    }
+
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    /**
+     * Returns whether a dead snake died by meeting another head. Its head cell
+     * was freed then, otherwise it still belongs to the body the snake ran into.
+     * @param snake the index of the snake
+     * @return true for a head-on death
+     */
+    public boolean isHeadOn(int snake) {
+        return headOn[snake];
+    }
+
+    public FoodTable getFoods() {
+        return foods;
+    }
+
+    public int getFoodCount() {
+        return foodTypes.length;
+    }
+
+    /**
+     * Returns the type of a food item
+     * @param food the index of the food
+     * @return the type, or null if the food found no free cell
+     */
+    public FoodType getFoodType(int food) {
+        return foodTypes[food];
+    }
+
+    public int getFoodX(int food) {
+        return foodCells[food] % width;
+    }
+
+    public int getFoodY(int food) {
+        return foodCells[food] / width;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the simulated time of one tick, the shortest step length of the speed profile and the food
+     * @return the tick length in ms
+     */
+    public double getTickMillis() {
+        return tickMillis;
+    }
+    //endregion
+}
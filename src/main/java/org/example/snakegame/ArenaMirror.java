@@ -0,0 +1,284 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A client's copy of the arena of a GameServer, rebuilt from keyframes and
+ * kept up to date by deltas (see NetProtocol).
+ * The snakes are real Snake objects on one shared Occupancy, and a delta is
+ * applied with the same operations in the same order as in Arena.tick():
+ * all tails leave, all heads move, the dead are removed, the eaters grow.
+ * So the mirror covers exactly the cells the server's arena covers, and a
+ * tick costs the number of changes, however long the snakes are.
+ * Not thread-safe, frames are applied and read on the same thread.
+ */
+public class ArenaMirror
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final FoodTable foods;
+    private Occupancy occupancy;
+    private final Snake[] snakes; // null for a snake that is not on the board
+    private final boolean[] alive;
+    private int aliveCount;
+    private final FoodType[] foodTypes; // null while a food has no place
+    private final int[] foodCells;
+
+    // Changes of the delta being applied, read once and then applied in passes
+    private final int[] changedSnakes;
+    private final int[] changedFlags;
+    private final int[] changedGrowth;
+
+    private boolean synced; // A keyframe has been applied, deltas can follow
+    private long tick;
+    private long sentNanos; // Server time of the last delta
+
+    /**
+     * Creates an empty mirror, it shows nothing until the first keyframe is applied
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snakeCount the number of snakes of the arena
+     * @param foodCount the number of food items of the arena
+     */
+    public ArenaMirror(int width, int height, int snakeCount, int foodCount)
+    {
+        this(width, height, snakeCount, foodCount, FoodTable.DEFAULT);
+    }
+
+    /**
+     * Creates an empty mirror, it shows nothing until the first keyframe is applied
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snakeCount the number of snakes of the arena
+     * @param foodCount the number of food items of the arena
+     * @param foods the food table of the server, the frames only carry the index of a type
+     */
+    public ArenaMirror(int width, int height, int snakeCount, int foodCount, FoodTable foods)
+    {
+        this.width = width;
+        this.height = height;
+        this.foods = foods;
+        this.occupancy = Occupancy.forBoard(width, height);
+        this.snakes = new Snake[snakeCount];
+        this.alive = new boolean[snakeCount];
+        this.foodTypes = new FoodType[foodCount];
+        this.foodCells = new int[foodCount];
+        this.changedSnakes = new int[snakeCount];
+        this.changedFlags = new int[snakeCount];
+        this.changedGrowth = new int[snakeCount];
+    }
+
+    /**
+     * Applies a keyframe or delta frame
+     * @param frame the frame from its type byte on, as returned by NetProtocol.nextFrame()
+     * @return true if the frame changed the mirror, false for a delta before the first keyframe
+     * @throws IOException if the frame is corrupt or does not follow the last applied tick
+     */
+    public boolean apply(ByteBuffer frame) throws IOException
+    {
+        try {
+            byte type = frame.get();
+            if (type == NetProtocol.KEYFRAME) {
+                applyKeyframe(frame);
+                return true;
+            }
+            if (type != NetProtocol.DELTA) throw new IOException("Unexpected frame type " + type);
+            if (!synced) return false;
+            applyDelta(frame);
+            return true;
+        } catch (RuntimeException e) {
+            // Indices or counts out of range, a short buffer or a body that does not fit
+            throw new IOException("Corrupt frame: " + e, e);
+        }
+    }
+
+    private void applyKeyframe(ByteBuffer in) throws IOException
+    {
+        tick = in.getLong();
+        occupancy = Occupancy.forBoard(width, height);
+        aliveCount = 0;
+        for (int i = 0; i < snakes.length; i++) {
+            int flags = in.get() & 0xFF;
+            alive[i] = (flags & NetProtocol.ALIVE) != 0;
+            if (!alive[i]) {
+                snakes[i] = null;
+                continue;
+            }
+            int length = NetProtocol.getVarInt(in);
+            if (length < 1 || length > in.remaining() / Integer.BYTES) throw new IOException("Corrupt keyframe");
+            Snake snake = new Snake(width, height, in.asIntBuffer(), length, occupancy);
+            in.position(in.position() + length * Integer.BYTES);
+            snake.restore(DIRECTIONS[flags & NetProtocol.DIRECTION_MASK], 0, snake.getPackedPreviousTail());
+            if ((flags & NetProtocol.ENLARGED) != 0) snake.enlargeHead();
+            snakes[i] = snake;
+            aliveCount++;
+        }
+        for (int i = 0; i < foodTypes.length; i++) {
+            readFood(in, i);
+        }
+        synced = true;
+    }
+
+    private void applyDelta(ByteBuffer in) throws IOException
+    {
+        long next = in.getLong();
+        if (next != tick + 1) throw new IOException("Expected tick " + (tick + 1) + ", got " + next);
+        tick = next;
+        sentNanos = in.getLong();
+
+        int count = in.getInt();
+        if (count < 0 || count > snakes.length) throw new IOException("Corrupt delta");
+        for (int k = 0; k < count; k++) {
+            int i = NetProtocol.getVarInt(in);
+            if (!alive[i]) throw new IOException("Delta for a dead snake " + i);
+            changedSnakes[k] = i;
+            changedFlags[k] = in.get() & 0xFF;
+            changedGrowth[k] = (changedFlags[k] & NetProtocol.GREW) != 0 ? NetProtocol.getVarInt(in) : 0;
+            if (changedGrowth[k] < 0) throw new IOException("Corrupt delta");
+        }
+
+        // Same order as Arena.tick(), so a snake may follow another's tail
+        for (int k = 0; k < count; k++) {
+            if ((changedFlags[k] & NetProtocol.MOVED) != 0) snakes[changedSnakes[k]].retractTail();
+        }
+        for (int k = 0; k < count; k++) {
+            Snake snake = snakes[changedSnakes[k]];
+            int flags = changedFlags[k];
+            if ((flags & NetProtocol.MOVED) != 0) {
+                snake.turn(DIRECTIONS[flags & NetProtocol.DIRECTION_MASK]);
+                snake.extendHead();
+            }
+            if ((flags & NetProtocol.ENLARGED) != 0) {
+                snake.enlargeHead();
+            } else {
+                snake.resetHeadSize();
+            }
+        }
+        for (int k = 0; k < count; k++) {
+            if ((changedFlags[k] & NetProtocol.DIED) != 0) kill(changedSnakes[k], changedFlags[k]);
+        }
+        for (int k = 0; k < count; k++) {
+            for (int n = changedGrowth[k]; n > 0; n--) {
+                snakes[changedSnakes[k]].grow();
+            }
+        }
+
+        int foodCount = in.getInt();
+        if (foodCount < 0 || foodCount > foodTypes.length) throw new IOException("Corrupt delta");
+        for (int k = 0; k < foodCount; k++) {
+            readFood(in, NetProtocol.getVarInt(in));
+        }
+    }
+
+    /**
+     * Frees the cells of a dead snake like Arena does: its head cell belongs
+     * to the body it ran into, unless it met another head there
+     */
+    private void kill(int i, int flags)
+    {
+        Snake snake = snakes[i];
+        for (int k = 1; k < snake.getLength(); k++) {
+            snake.vacate(snake.getX(k), snake.getY(k));
+        }
+        if ((flags & NetProtocol.HEAD_ON) != 0) snake.vacate(snake.getHeadX(), snake.getHeadY());
+        alive[i] = false;
+        aliveCount--;
+    }
+
+    private void readFood(ByteBuffer in, int food) throws IOException
+    {
+        int type = in.get();
+        if (food < 0 || food >= foodTypes.length || type < -1) throw new IOException("Corrupt food");
+        if (type >= foods.size()) throw new IOException("Unknown food type " + type);
+        foodTypes[food] = type < 0 ? null : foods.get(type);
+        if (type >= 0) foodCells[food] = NetProtocol.getVarInt(in);
+    }
+
+    /**
+     * Checks if any snake covers a cell
+     * @param x the x grid position
+     * @param y the y grid position
+     * @return true if the cell is on the board and covered
+     */
+    public boolean isOccupied(int x, int y)
+    {
+        if (x < 0 || x >= width || y < 0 || y >= height) return false;
+        return occupancy.contains(x, y);
+    }
+
+    //region Getter
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSnakeCount() {
+        return snakes.length;
+    }
+
+    /**
+     * Returns a snake as of the last applied frame
+     * @param snake the index of the snake
+     * @return the snake, or null if it is dead or no keyframe was applied yet
+     */
+    public Snake getSnake(int snake) {
+        return alive[snake] ? snakes[snake] : null;
+    }
+
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    public int getFoodCount() {
+        return foodTypes.length;
+    }
+
+    /**
+     * Returns the type of a food item
+     * @param food the index of the food
+     * @return the type, or null if the food has no place
+     */
+    public FoodType getFoodType(int food) {
+        return foodTypes[food];
+    }
+
+    public int getFoodX(int food) {
+        return foodCells[food] % width;
+    }
+
+    public int getFoodY(int food) {
+        return foodCells[food] / width;
+    }
+
+    /**
+     * Returns whether a keyframe was applied, before that the mirror is empty
+     * @return true once the mirror follows the server
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns when the server sent the last applied delta
+     * @return the server's System.nanoTime(), comparable on the same machine only
+     */
+    public long getSentNanos() {
+        return sentNanos;
+    }
+    //endregion
+}
@@ -0,0 +1,19 @@
+package org.example.snakegame;
+
+/**
+ * Decides where one snake of an Arena goes next.
+ * All snakes decide in parallel before any of them moves, so a policy must
+ * only read the arena and must be safe to call from several threads, or
+ * every snake needs its own instance.
+ */
+@FunctionalInterface
+public interface ArenaPolicy
+{
+    /**
+     * Picks the direction for the next move of a snake
+     * @param arena the arena, read only
+     * @param snake the index of the snake to decide for
+     * @return the direction to turn to, or null to keep going straight
+     */
+    Direction decide(Arena arena, int snake);
+}
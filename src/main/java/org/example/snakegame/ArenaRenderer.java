@@ -0,0 +1,126 @@
+package org.example.snakegame;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws the ArenaMirror of a GameClient into a single Canvas.
+ * The own snake is pink like in the single game, the other snakes are grey.
+ * The view follows the own snake through a Camera and is only redrawn when
+ * a frame from the server changed the mirror or the camera moved; then the
+ * visible cells are looked up in the shared occupancy, so the cost does not
+ * depend on the number or length of the other snakes.
+ */
+public class ArenaRenderer
+{
+    private static final double FOOD_WIDTH = 30;
+    private static final double FOOD_HEIGHT = 35;
+    private static final Color OTHERS = Color.LIGHTGRAY;
+
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+    private final int tileSize;
+    private final Camera camera;
+    private final StringBuilder buffer = new StringBuilder(32);
+    private int renderedLength = -1;
+    private int renderedAlive = -1;
+    private String lengthText = "";
+    private String aliveText = "";
+
+    /**
+     * Creates the canvas for the visible part of the board and adds it to the pane
+     * @param gamePane the pane to draw on
+     * @param config the viewport and tile size, its board is replaced by the mirror's
+     * @param mirror the arena to draw
+     */
+    public ArenaRenderer(Pane gamePane, GameConfig config, ArenaMirror mirror)
+    {
+        this.tileSize = config.getTileSize();
+        this.camera = new Camera(mirror.getWidth(), mirror.getHeight(),
+                config.getViewportWidth(), config.getViewportHeight());
+        this.canvas = new Canvas(camera.getViewWidth() * tileSize, camera.getViewHeight() * tileSize);
+        this.gc = canvas.getGraphicsContext2D();
+        gamePane.getChildren().add(canvas);
+    }
+
+    /**
+     * Draws the visible part of the arena
+     * @param mirror the arena to draw
+     * @param slot the index of the own snake, followed by the camera while it is alive
+     * @param changed true if the mirror changed since the last call
+     */
+    public void render(ArenaMirror mirror, int slot, boolean changed)
+    {
+        Snake own = mirror.getSnake(slot);
+        boolean cameraMoved = own != null && camera.follow(own.getHeadX(), own.getHeadY());
+        if (!changed && !cameraMoved) return;
+
+        double viewX = camera.getOffsetX() * tileSize;
+        double viewY = camera.getOffsetY() * tileSize;
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.save();
+        gc.translate(-viewX, -viewY);
+
+        for (int food = 0; food < mirror.getFoodCount(); food++) {
+            FoodType type = mirror.getFoodType(food);
+            if (type == null || !isVisible(mirror.getFoodX(food), mirror.getFoodY(food))) continue;
+            gc.drawImage(SpriteCache.get(type),
+                    mirror.getFoodX(food) * tileSize + (tileSize - FOOD_WIDTH) / 2,
+                    mirror.getFoodY(food) * tileSize + (tileSize - FOOD_HEIGHT) / 2, FOOD_WIDTH, FOOD_HEIGHT);
+        }
+
+        gc.setFill(OTHERS);
+        int toX = camera.getOffsetX() + camera.getViewWidth();
+        int toY = camera.getOffsetY() + camera.getViewHeight();
+        for (int y = camera.getOffsetY(); y < toY; y++) {
+            for (int x = camera.getOffsetX(); x < toX; x++) {
+                if (mirror.isOccupied(x, y)) fillCell(x, y, tileSize / 2.0);
+            }
+        }
+        if (own != null) {
+            // The own snake is drawn over its grey cells
+            gc.setFill(Color.PINK);
+            for (int i = own.getLength() - 1; i > 0; i--) {
+                if (isVisible(own.getX(i), own.getY(i))) fillCell(own.getX(i), own.getY(i), tileSize / 2.0);
+            }
+            // If head is enlarged, increase size
+            fillCell(own.getHeadX(), own.getHeadY(), own.isHeadEnlarged() ? tileSize / 1.2 : tileSize / 2.0);
+        }
+        gc.restore();
+
+        drawHud(mirror, own);
+    }
+
+    private void drawHud(ArenaMirror mirror, Snake own)
+    {
+        int length = own == null ? 0 : own.getLength();
+        if (length != renderedLength) {
+            buffer.setLength(0);
+            lengthText = own == null ? "Waiting for the next round" : buffer.append("Length: ").append(length).toString();
+            renderedLength = length;
+        }
+        if (mirror.getAliveCount() != renderedAlive) {
+            buffer.setLength(0);
+            aliveText = buffer.append("Snakes: ").append(mirror.getAliveCount()).toString();
+            renderedAlive = mirror.getAliveCount();
+        }
+        gc.setFill(Color.WHITE);
+        gc.fillText(lengthText, 10, 20);
+        gc.fillText(aliveText, 10, 40);
+    }
+
+    private void fillCell(int x, int y, double radius)
+    {
+        double centerX = x * tileSize + tileSize / 2.0;
+        double centerY = y * tileSize + tileSize / 2.0;
+        gc.fillOval(centerX - radius, centerY - radius, radius * 2, radius * 2);
+    }
+
+    private boolean isVisible(int x, int y)
+    {
+        return x >= camera.getOffsetX() && x < camera.getOffsetX() + camera.getViewWidth()
+                && y >= camera.getOffsetY() && y < camera.getOffsetY() + camera.getViewHeight();
+    }
+}
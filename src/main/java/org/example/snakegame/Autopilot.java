@@ -0,0 +1,266 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Policy that plays well enough for demos and load tests.
+ * It searches the shortest path from the head to the food with a breadth-first
+ * search that knows when each body cell becomes free: a segment k cells before
+ * the tail is gone after k + 1 moves, so the path may run through cells the body
+ * has left by the time the head gets there. A path is only taken if, after
+ * eating at its end, the head can still reach the tail; otherwise, or if there
+ * is no path, the snake follows its own tail on the longest way it finds.
+ * A path stays valid while the snake follows it, since only the head enters
+ * new cells, so it is searched once per food item instead of once per step.
+ * All buffers are primitive arrays sized for the board and reused, searches
+ * mark visited cells with a stamp instead of clearing, so deciding does not allocate.
+ */
+public class Autopilot implements Policy
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private int width;
+    private int height;
+    private int[] queue = new int[0];
+    private int[] parent = new int[0];
+    private int[] depth = new int[0]; // Moves from the start of the search
+    private int[] visited = new int[0]; // Stamp of the search that reached the cell
+    private int[] body = new int[0]; // Stamp of the body marked last
+    private int[] freeAt = new int[0]; // Moves until a cell of the marked body is free
+    private int stamp;
+    private int bodyMark; // Stamp of the body the searches go around
+
+    // The path being followed, cells from the first step to the food
+    private int[] path = new int[0];
+    private int pathLength;
+    private int pathIndex;
+    private int pathHead = -1; // Where the head is while it follows the path
+    private int pathFood = -1;
+    private Snake pathSnake;
+
+    @Override
+    public Direction decide(GameState view)
+    {
+        resize(view.getWidth(), view.getHeight());
+        if (stamp > Integer.MAX_VALUE - 8) {
+            // A decision takes at most four stamps, clear the marks before they run out
+            Arrays.fill(visited, 0);
+            Arrays.fill(body, 0);
+            stamp = 0;
+            pathLength = 0;
+        }
+        Snake snake = view.getSnake();
+        int head = snake.getHeadY() * width + snake.getHeadX();
+        int food = view.getFoodType() == null ? -1 : view.getFoodY() * width + view.getFoodX();
+
+        if (snake == pathSnake && head == pathHead && food == pathFood && pathIndex < pathLength) {
+            return follow(head);
+        }
+        pathLength = 0;
+        if (food >= 0 && findPath(snake, head, food) && canReachTailAfterPath(snake)) {
+            pathIndex = 0;
+            pathFood = food;
+            pathSnake = snake;
+            return follow(head);
+        }
+        return followTail(snake, head);
+    }
+
+    private Direction follow(int head)
+    {
+        int next = path[pathIndex++];
+        pathHead = next;
+        return direction(head, next);
+    }
+
+    /**
+     * Searches the shortest path to the food through the cells that are free when the head gets there
+     * @return true if a path was found, it is then in path
+     */
+    private boolean findPath(Snake snake, int head, int food)
+    {
+        markBody(snake);
+        int search = nextStamp();
+        visited[head] = search;
+        depth[head] = 0;
+        queue[0] = head;
+        int read = 0;
+        int write = 1;
+        // The snake cannot reverse, not even when it is only a head
+        int behind = head + switch (snake.getDirection()) {
+            case UP -> width;
+            case DOWN -> -width;
+            case LEFT -> 1;
+            case RIGHT -> -1;
+        };
+        while (read < write && visited[food] != search) {
+            int cell = queue[read++];
+            int moves = depth[cell] + 1;
+            int x = cell % width;
+            int skip = cell == head ? behind : -1;
+            if (x > 0 && cell - 1 != skip) write = visit(cell, cell - 1, moves, search, write);
+            if (x < width - 1 && cell + 1 != skip) write = visit(cell, cell + 1, moves, search, write);
+            if (cell >= width && cell - width != skip) write = visit(cell, cell - width, moves, search, write);
+            if (cell < width * (height - 1) && cell + width != skip) write = visit(cell, cell + width, moves, search, write);
+        }
+        if (visited[food] != search) return false;
+
+        pathLength = depth[food];
+        for (int i = pathLength - 1, cell = food; i >= 0; i--, cell = parent[cell]) {
+            path[i] = cell;
+        }
+        return true;
+    }
+
+    private int visit(int from, int to, int moves, int search, int write)
+    {
+        if (visited[to] == search || (body[to] == bodyMark && freeAt[to] > moves)) return write;
+        visited[to] = search;
+        parent[to] = from;
+        depth[to] = moves;
+        queue[write] = to;
+        return write + 1;
+    }
+
+    /**
+     * Marks the cells of the snake with the number of moves until they are free.
+     * A doubled tail cell after growing is free one move later.
+     */
+    private void markBody(Snake snake)
+    {
+        bodyMark = nextStamp();
+        int length = snake.getLength();
+        for (int k = length - 1; k >= 0; k--) {
+            int cell = snake.getY(k) * width + snake.getX(k);
+            body[cell] = bodyMark;
+            freeAt[cell] = length - k;
+        }
+    }
+
+    /**
+     * Checks that the snake could still reach its tail after following the path and eating,
+     * with the same search as findPath() on the body the snake would have at the food.
+     * The body is taken to stay where it is and only the tail, which stays for one more
+     * move after eating, may be entered. Counting on the other cells to be free in time
+     * loses more games, since the snake does not head straight for its tail.
+     */
+    private boolean canReachTailAfterPath(Snake snake)
+    {
+        int length = snake.getLength();
+        if (length == 1) return true;
+
+        // The body at the food: the path backwards, then what is left of the current body
+        bodyMark = nextStamp();
+        int tail = -1;
+        for (int k = 0; k < length; k++) {
+            int cell = k < pathLength ? path[pathLength - 1 - k]
+                    : snake.getY(k - pathLength) * width + snake.getX(k - pathLength);
+            body[cell] = bodyMark;
+            freeAt[cell] = k < length - 1 ? Integer.MAX_VALUE : 2;
+            tail = cell;
+        }
+
+        int search = nextStamp();
+        int start = path[pathLength - 1];
+        visited[start] = search;
+        depth[start] = 0;
+        queue[0] = start;
+        int read = 0;
+        int write = 1;
+        while (read < write && visited[tail] != search) {
+            int cell = queue[read++];
+            int moves = depth[cell] + 1;
+            int x = cell % width;
+            if (x > 0) write = visit(cell, cell - 1, moves, search, write);
+            if (x < width - 1) write = visit(cell, cell + 1, moves, search, write);
+            if (cell >= width) write = visit(cell, cell - width, moves, search, write);
+            if (cell < width * (height - 1)) write = visit(cell, cell + width, moves, search, write);
+        }
+        return visited[tail] == search;
+    }
+
+    /**
+     * Picks the free neighbour of the head that is farthest from the tail but can
+     * still reach it, which keeps the snake alive until a safe path to the food opens up
+     */
+    private Direction followTail(Snake snake, int head)
+    {
+        int length = snake.getLength();
+        int tail = snake.getY(length - 1) * width + snake.getX(length - 1);
+        boolean tailLeaves = length > 1 && (snake.getX(length - 1) != snake.getX(length - 2)
+                || snake.getY(length - 1) != snake.getY(length - 2));
+
+        // Distances from the tail through the free cells
+        int search = nextStamp();
+        visited[tail] = search;
+        depth[tail] = 0;
+        queue[0] = tail;
+        int read = 0;
+        int write = 1;
+        while (read < write) {
+            int cell = queue[read++];
+            int x = cell % width;
+            int y = cell / width;
+            for (int n = 0; n < 4; n++) {
+                int nx = n == 0 ? x - 1 : n == 1 ? x + 1 : x;
+                int ny = n == 2 ? y - 1 : n == 3 ? y + 1 : y;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                int next = ny * width + nx;
+                if (visited[next] == search || snake.isOccupied(nx, ny)) continue;
+                visited[next] = search;
+                depth[next] = depth[cell] + 1;
+                queue[write++] = next;
+            }
+        }
+
+        Direction best = null;
+        Direction any = null;
+        int bestDepth = -1;
+        for (Direction direction : DIRECTIONS) {
+            if (snake.getDirection().isOpposite(direction)) continue;
+            int x = head % width + (direction == Direction.RIGHT ? 1 : direction == Direction.LEFT ? -1 : 0);
+            int y = head / width + (direction == Direction.DOWN ? 1 : direction == Direction.UP ? -1 : 0);
+            if (x < 0 || x >= width || y < 0 || y >= height) continue;
+            int next = y * width + x;
+            if (snake.isOccupied(x, y) && !(tailLeaves && next == tail)) continue;
+            if (any == null) any = direction;
+            if (visited[next] == search && depth[next] > bestDepth) {
+                best = direction;
+                bestDepth = depth[next];
+            }
+        }
+        return best != null ? best : any;
+    }
+
+    private int nextStamp()
+    {
+        return ++stamp;
+    }
+
+    private Direction direction(int from, int to)
+    {
+        if (to == from + width) return Direction.DOWN;
+        if (to == from - width) return Direction.UP;
+        return to == from + 1 ? Direction.RIGHT : Direction.LEFT;
+    }
+
+    /**
+     * Makes the buffers fit the board, they are only replaced when the board size changes
+     */
+    private void resize(int width, int height)
+    {
+        if (width == this.width && height == this.height) return;
+        this.width = width;
+        this.height = height;
+        int cells = width * height;
+        queue = new int[cells];
+        parent = new int[cells];
+        depth = new int[cells];
+        visited = new int[cells];
+        body = new int[cells];
+        freeAt = new int[cells];
+        path = new int[cells];
+        stamp = 0;
+        pathLength = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.snakegame;
+
+/**
+ * Outcome of a BatchRunner run: how fast the games were simulated
+ * and how the final scores and lengths are distributed.
+ */
+public class BatchResult
+{
+    private final int games;
+    private final long ticks;
+    private final long nanos;
+    private final int unfinished;
+    private final Distribution scores;
+    private final Distribution lengths;
+
+    /**
+     * Creates the result
+     * @param ticks the number of steps over all games
+     * @param nanos the wall-clock time of the run
+     * @param unfinished the number of games stopped at the tick limit
+     * @param scores the final score of every game
+     * @param lengths the final snake length of every game
+     */
+    BatchResult(long ticks, long nanos, int unfinished, int[] scores, int[] lengths)
+    {
+        this.games = scores.length;
+        this.ticks = ticks;
+        this.nanos = nanos;
+        this.unfinished = unfinished;
+        this.scores = new Distribution(scores);
+        this.lengths = new Distribution(lengths);
+    }
+
+    //region Getter and setter
+
+    public int getGames() {
+        return games;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns how many games were still running when they hit the tick limit
+     * @return the number of unfinished games
+     */
+    public int getUnfinished() {
+        return unfinished;
+    }
+
+    public double getTicksPerSecond() {
+        return ticks * 1e9 / nanos;
+    }
+
+    public double getGamesPerSecond() {
+        return games * 1e9 / nanos;
+    }
+
+    public Distribution getScores() {
+        return scores;
+    }
+
+    public Distribution getLengths() {
+        return lengths;
+    }
+    //endregion
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d games (%d unfinished), %d ticks in %.2f s%n"
+                        + "%.0f ticks/s, %.1f games/s%n"
+                        + "score:  %s%n"
+                        + "length: %s",
+                games, unfinished, ticks, nanos / 1e9,
+                getTicksPerSecond(), getGamesPerSecond(), scores, lengths);
+    }
+}
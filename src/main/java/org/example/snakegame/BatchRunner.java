@@ -0,0 +1,178 @@
+package org.example.snakegame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Plays many independent games headless and in parallel to evaluate a Policy.
+ * Each game gets its own SimulationEngine with a seed derived from the batch seed
+ * and its index, so a batch gives the same results on any number of threads.
+ * The games are split over a ForkJoinPool; every worker writes only its own
+ * slots of the result arrays, so no locking is needed.
+ * Usage: BatchRunner [--games=N] [--seed=N] [--threads=N] [--maxTicks=N]
+ * [--policy=greedy|autopilot] plus the board, speed and food keys of GameConfig,
+ * e.g. --width=100 --speed=fast
+ */
+public class BatchRunner
+{
+    private static final int GAMES_PER_TASK = 4; // Below this a range of games is played on one thread
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L; // Spreads neighbouring game seeds apart
+
+    private final int width;
+    private final int height;
+    private final SpeedProfile speeds;
+    private final FoodTable foods;
+    private final int maxTicks;
+
+    /**
+     * Creates a runner for games on the given board
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snake
+     * @param maxTicks games still running after this many steps are stopped,
+     *                 so a policy that circles forever cannot hang the batch
+     */
+    public BatchRunner(int width, int height, SpeedProfile speeds, int maxTicks)
+    {
+        this(width, height, speeds, FoodTable.DEFAULT, maxTicks);
+    }
+
+    /**
+     * Creates a runner for games on the given board with its own food
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snake
+     * @param foods the food types and their effects
+     * @param maxTicks games still running after this many steps are stopped,
+     *                 so a policy that circles forever cannot hang the batch
+     */
+    public BatchRunner(int width, int height, SpeedProfile speeds, FoodTable foods, int maxTicks)
+    {
+        if (maxTicks < 1) throw new IllegalArgumentException("maxTicks must be positive");
+        this.width = width;
+        this.height = height;
+        this.speeds = speeds;
+        this.foods = foods;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Plays the games and waits for all of them to finish
+     * @param policies creates a fresh policy for every game
+     * @param games the number of games
+     * @param seed the seed of the batch
+     * @param threads the number of worker threads
+     * @return the throughput and the score and length distributions
+     */
+    public BatchResult run(Supplier<? extends Policy> policies, int games, long seed, int threads)
+    {
+        int[] scores = new int[games];
+        int[] lengths = new int[games];
+        int[] ticks = new int[games];
+        boolean[] stopped = new boolean[games]; // Still alive at the tick limit
+
+        long start = System.nanoTime();
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            pool.invoke(new Games(policies, seed, 0, games, scores, lengths, ticks, stopped));
+        }
+        long nanos = System.nanoTime() - start;
+
+        long totalTicks = 0;
+        int unfinished = 0;
+        for (int i = 0; i < games; i++) {
+            totalTicks += ticks[i];
+            if (stopped[i]) unfinished++;
+        }
+        return new BatchResult(totalTicks, nanos, unfinished, scores, lengths);
+    }
+
+    /**
+     * Plays one game to the end or to the tick limit and stores its outcome at the index
+     */
+    private void play(Policy policy, long seed, int index, int[] scores, int[] lengths, int[] ticks,
+                      boolean[] stopped)
+    {
+        SimulationEngine engine = new SimulationEngine(width, height, speeds, foods, seed + index * SEED_GAMMA);
+        GameState state = engine.getState();
+        int tick = 0;
+        boolean alive = true;
+        while (alive && tick < maxTicks) {
+            tick++;
+            alive = engine.step(policy.decide(state));
+        }
+        scores[index] = state.getScore().getScore();
+        lengths[index] = state.getSnake().getLength();
+        ticks[index] = tick;
+        stopped[index] = alive;
+    }
+
+    /**
+     * A range of games, split in halves until it is small enough to play directly
+     */
+    private class Games extends RecursiveAction
+    {
+        private final Supplier<? extends Policy> policies;
+        private final long seed;
+        private final int from;
+        private final int to;
+        private final int[] scores;
+        private final int[] lengths;
+        private final int[] ticks;
+        private final boolean[] stopped;
+
+        Games(Supplier<? extends Policy> policies, long seed, int from, int to,
+              int[] scores, int[] lengths, int[] ticks, boolean[] stopped)
+        {
+            this.policies = policies;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.scores = scores;
+            this.lengths = lengths;
+            this.ticks = ticks;
+            this.stopped = stopped;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= GAMES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    play(policies.get(), seed, i, scores, lengths, ticks, stopped);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Games(policies, seed, from, middle, scores, lengths, ticks, stopped),
+                    new Games(policies, seed, middle, to, scores, lengths, ticks, stopped));
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        GameConfig config = GameConfig.load(arguments);
+        int games = Integer.parseInt(arguments.getOrDefault("games", "10000"));
+        long seed = Long.parseLong(arguments.getOrDefault("seed", "1"));
+        int threads = Integer.parseInt(arguments.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int maxTicks = Integer.parseInt(arguments.getOrDefault("maxTicks", "100000"));
+
+        BatchRunner runner = new BatchRunner(config.getWidth(), config.getHeight(), config.getSpeeds(),
+                config.getFoodTable(), maxTicks);
+        Supplier<? extends Policy> policies = switch (arguments.getOrDefault("policy", "greedy")) {
+            case "greedy" -> GreedyPolicy::new;
+            case "autopilot" -> Autopilot::new;
+            default -> throw new IllegalArgumentException("Unknown policy: " + arguments.get("policy"));
+        };
+        System.out.println(runner.run(policies, games, seed, threads));
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.snakegame;
+
+/**
+ * Decides which part of the board is visible when the board is larger than the window.
+ * The camera keeps still while the head is in the middle of the view and jumps
+ * to center the head once it gets close to an edge, so renderers only have to
+ * redraw the whole view now and then. On boards that fit, the offset stays 0.
+ */
+public class Camera
+{
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int viewWidth;
+    private final int viewHeight;
+    private int offsetX;
+    private int offsetY;
+
+    /**
+     * Creates a camera for a board and the visible part of it
+     * @param boardWidth the board width in cells
+     * @param boardHeight the board height in cells
+     * @param viewWidth the visible width in cells
+     * @param viewHeight the visible height in cells
+     */
+    public Camera(int boardWidth, int boardHeight, int viewWidth, int viewHeight)
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.viewWidth = Math.min(viewWidth, boardWidth);
+        this.viewHeight = Math.min(viewHeight, boardHeight);
+    }
+
+    /**
+     * Moves the camera if the head came within a quarter of the view of an edge
+     * @param headX the x grid position of the head
+     * @param headY the y grid position of the head
+     * @return true if the visible part of the board changed
+     */
+    public boolean follow(int headX, int headY)
+    {
+        int marginX = viewWidth / 4;
+        int marginY = viewHeight / 4;
+        if (headX < offsetX + marginX || headX >= offsetX + viewWidth - marginX
+                || headY < offsetY + marginY || headY >= offsetY + viewHeight - marginY) {
+            return center(headX, headY);
+        }
+        return false;
+    }
+
+    /**
+     * Centers the view on a cell, as far as the board edges allow
+     * @param x the x grid position
+     * @param y the y grid position
+     * @return true if the visible part of the board changed
+     */
+    public boolean center(int x, int y)
+    {
+        int newX = Math.max(0, Math.min(x - viewWidth / 2, boardWidth - viewWidth));
+        int newY = Math.max(0, Math.min(y - viewHeight / 2, boardHeight - viewHeight));
+        boolean changed = newX != offsetX || newY != offsetY;
+        offsetX = newX;
+        offsetY = newY;
+        return changed;
+    }
+
+    /**
+     * Returns the first visible column
+     * @return the x grid position of the left edge of the view
+     */
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    /**
+     * Returns the first visible row
+     * @return the y grid position of the top edge of the view
+     */
+    public int getOffsetY() {
+        return offsetY;
+    }
+
+    public int getViewWidth() {
+        return viewWidth;
+    }
+
+    public int getViewHeight() {
+        return viewHeight;
+    }
+}
@@ -0,0 +1,283 @@
+package org.example.snakegame;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+/**
+ * Renders the whole game into a single Canvas instead of one node per segment.
+ * The canvas covers only the visible part of the board, which follows the head
+ * through a Camera. Whenever the camera moves, the visible cells are redrawn;
+ * otherwise only dirty regions are redrawn: the old and new places
+ * of the sliding head and tail end, the old head and tail cells, the old and
+ * new food and the score area.
+ * Each region is cleared and everything that overlaps it is drawn again, which
+ * keeps the cost per frame independent of the snake length and the board size.
+ * All positions are board pixels, the canvas is translated by the camera offset.
+ * The canvas is cleared to transparent, so the background of the pane
+ * (and the insane mode blinking) stays visible.
+ */
+public class CanvasRenderer implements GameRenderer
+{
+    private static final double FOOD_WIDTH = 30;
+    private static final double FOOD_HEIGHT = 35;
+    private static final double HUD_WIDTH = 160;
+    private static final double HUD_HEIGHT = 48;
+    private static final int MAX_DIRTY = 16;
+
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+    private final int tileSize;
+    private final double margin; // How far an enlarged head reaches beyond its cell
+    private final Camera camera;
+    private double viewX; // Board pixel at the top left corner of the canvas
+    private double viewY;
+
+    // Dirty regions of the current frame as x, y, width, height
+    private final double[] dirty = new double[MAX_DIRTY * 4];
+    private int dirtyCount;
+
+    private Snake renderedSnake;
+    private long renderedMoves;
+    private int renderedHeadX;
+    private int renderedHeadY;
+    private int renderedTailX;
+    private int renderedTailY;
+    private boolean renderedEnlarged;
+    private FoodType renderedFoodType;
+    private int renderedFoodX;
+    private int renderedFoodY;
+    private final Hud hud = new Hud();
+    private boolean foodImageMissing; // The sprite was still loading when the food was drawn
+
+    // Where the sliding head and tail end were drawn, as pixel centers
+    private double headCenterX;
+    private double headCenterY;
+    private double tailCenterX;
+    private double tailCenterY;
+
+    /**
+     * Creates the canvas for the visible part of the board and adds it to the pane
+     * @param gamePane the pane to draw on
+     * @param config the board, viewport and tile size
+     */
+    public CanvasRenderer(Pane gamePane, GameConfig config)
+    {
+        this.tileSize = config.getTileSize();
+        this.margin = Math.ceil(tileSize / 1.2 - tileSize / 2.0);
+        this.camera = new Camera(config.getWidth(), config.getHeight(),
+                config.getViewportWidth(), config.getViewportHeight());
+        this.canvas = new Canvas(camera.getViewWidth() * tileSize, camera.getViewHeight() * tileSize);
+        this.gc = canvas.getGraphicsContext2D();
+        gamePane.getChildren().add(canvas);
+    }
+
+    /**
+     * Renders the snake, food, score and length on screen.
+     * Redraws everything on the first frame of a game, when the camera moved or when
+     * more than one move happened since the last frame, otherwise only the dirty regions.
+     * @param state the state to render
+     * @param alpha how far the game is into the next step, from 0 to 1
+     */
+    @Override
+    public void render(GameState state, double alpha)
+    {
+        Snake snake = state.getSnake();
+        long moved = snake.getMoves() - renderedMoves;
+        double previousHeadX = headCenterX;
+        double previousHeadY = headCenterY;
+        double previousTailX = tailCenterX;
+        double previousTailY = tailCenterY;
+        updateCenters(snake, alpha);
+
+        boolean cameraMoved = snake != renderedSnake
+                ? camera.center(snake.getHeadX(), snake.getHeadY())
+                : camera.follow(snake.getHeadX(), snake.getHeadY());
+        viewX = camera.getOffsetX() * tileSize;
+        viewY = camera.getOffsetY() * tileSize;
+        boolean hudChanged = hud.update(state);
+        gc.save();
+        gc.translate(-viewX, -viewY);
+
+        if (snake != renderedSnake || moved > 1 || cameraMoved) {
+            redrawAll(state);
+        } else {
+            dirtyCount = 0;
+            markCircle(previousHeadX, previousHeadY);
+            markCircle(headCenterX, headCenterY);
+            markCircle(previousTailX, previousTailY);
+            markCircle(tailCenterX, tailCenterY);
+            if (moved == 1 || snake.isHeadEnlarged() != renderedEnlarged) {
+                markCell(renderedHeadX, renderedHeadY);
+                markCell(renderedTailX, renderedTailY);
+            }
+            if (state.getFoodType() != renderedFoodType
+                    || state.getFoodX() != renderedFoodX || state.getFoodY() != renderedFoodY) {
+                markFood(renderedFoodX, renderedFoodY);
+                markFood(state.getFoodX(), state.getFoodY());
+            } else if (foodImageMissing) {
+                markFood(state.getFoodX(), state.getFoodY());
+            }
+            if (hudChanged) {
+                mark(viewX, viewY, HUD_WIDTH, HUD_HEIGHT);
+            }
+            for (int i = 0; i < dirtyCount; i++) {
+                redrawRegion(state, dirty[i * 4], dirty[i * 4 + 1], dirty[i * 4 + 2], dirty[i * 4 + 3]);
+            }
+        }
+        gc.restore();
+
+        renderedSnake = snake;
+        renderedMoves = snake.getMoves();
+        renderedHeadX = snake.getHeadX();
+        renderedHeadY = snake.getHeadY();
+        renderedTailX = snake.getX(snake.getLength() - 1);
+        renderedTailY = snake.getY(snake.getLength() - 1);
+        renderedEnlarged = snake.isHeadEnlarged();
+        renderedFoodType = state.getFoodType();
+        renderedFoodX = state.getFoodX();
+        renderedFoodY = state.getFoodY();
+    }
+
+    /**
+     * Works out where the head and the tail end are drawn between the last and the current tick
+     */
+    private void updateCenters(Snake snake, double alpha)
+    {
+        int length = snake.getLength();
+        int previousHeadX = length > 1 ? snake.getX(1) : snake.getPreviousTailX();
+        int previousHeadY = length > 1 ? snake.getY(1) : snake.getPreviousTailY();
+        headCenterX = center(previousHeadX + (snake.getHeadX() - previousHeadX) * alpha);
+        headCenterY = center(previousHeadY + (snake.getHeadY() - previousHeadY) * alpha);
+        tailCenterX = center(snake.getPreviousTailX() + (snake.getX(length - 1) - snake.getPreviousTailX()) * alpha);
+        tailCenterY = center(snake.getPreviousTailY() + (snake.getY(length - 1) - snake.getPreviousTailY()) * alpha);
+    }
+
+    /**
+     * Clears the canvas and draws food, snake and score from scratch.
+     * Only the visible cells are looked at, not the whole snake.
+     */
+    private void redrawAll(GameState state)
+    {
+        redrawRegion(state, viewX, viewY, canvas.getWidth(), canvas.getHeight());
+    }
+
+    /**
+     * Clears one region and draws everything that overlaps it, clipped to the region
+     */
+    private void redrawRegion(GameState state, double x, double y, double w, double h)
+    {
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, w, h);
+        gc.clip();
+        gc.clearRect(x, y, w, h);
+
+        if (intersects(foodX(state.getFoodX()), foodY(state.getFoodY()), FOOD_WIDTH, FOOD_HEIGHT, x, y, w, h)) {
+            drawFood(state);
+        }
+
+        Snake snake = state.getSnake();
+        int fromX = (int) Math.floor(x / tileSize);
+        int toX = (int) Math.floor((x + w) / tileSize);
+        int fromY = (int) Math.floor(y / tileSize);
+        int toY = (int) Math.floor((y + h) / tileSize);
+        for (int cy = fromY; cy <= toY; cy++) {
+            for (int cx = fromX; cx <= toX; cx++) {
+                if (snake.isOccupied(cx, cy) && (cx != snake.getHeadX() || cy != snake.getHeadY())) {
+                    drawSegment(cx, cy);
+                }
+            }
+        }
+        drawSlidingEnds(snake);
+
+        if (intersects(viewX, viewY, HUD_WIDTH, HUD_HEIGHT, x, y, w, h)) {
+            drawHud(state);
+        }
+        gc.restore();
+    }
+
+    private void drawSegment(int x, int y)
+    {
+        drawCircle(center(x), center(y), tileSize / 2.0);
+    }
+
+    /**
+     * Draws the tail end and, last, the head, an enlarged head reaches into the neighbouring cells
+     */
+    private void drawSlidingEnds(Snake snake)
+    {
+        drawCircle(tailCenterX, tailCenterY, tileSize / 2.0);
+        // If head is enlarged, increase size
+        drawCircle(headCenterX, headCenterY, snake.isHeadEnlarged() ? tileSize / 1.2 : tileSize / 2.0);
+    }
+
+    private void drawCircle(double centerX, double centerY, double radius)
+    {
+        gc.setFill(Color.PINK);
+        gc.fillOval(centerX - radius, centerY - radius, radius * 2, radius * 2);
+    }
+
+    private double center(double cell)
+    {
+        return cell * tileSize + tileSize / 2.0;
+    }
+
+    private void drawFood(GameState state)
+    {
+        Image image = SpriteCache.get(state.getFoodType());
+        foodImageMissing = image.getProgress() < 1;
+        gc.drawImage(image, foodX(state.getFoodX()), foodY(state.getFoodY()), FOOD_WIDTH, FOOD_HEIGHT);
+    }
+
+    private void drawHud(GameState state)
+    {
+        gc.setFill(Color.WHITE);
+        gc.fillText(hud.getScoreText(), viewX + 10, viewY + 20);
+        gc.fillText(hud.getLengthText(), viewX + 10, viewY + 40);
+    }
+
+    private double foodX(int cellX)
+    {
+        return cellX * tileSize + (tileSize - FOOD_WIDTH) / 2;
+    }
+
+    private double foodY(int cellY)
+    {
+        return cellY * tileSize + (tileSize - FOOD_HEIGHT) / 2;
+    }
+
+    private void markCell(int x, int y)
+    {
+        mark(x * tileSize - margin, y * tileSize - margin, tileSize + 2 * margin, tileSize + 2 * margin);
+    }
+
+    private void markCircle(double centerX, double centerY)
+    {
+        double reach = tileSize / 2.0 + margin + 1;
+        mark(centerX - reach, centerY - reach, 2 * reach, 2 * reach);
+    }
+
+    private void markFood(int x, int y)
+    {
+        mark(foodX(x), foodY(y), FOOD_WIDTH, FOOD_HEIGHT);
+    }
+
+    private void mark(double x, double y, double w, double h)
+    {
+        if (dirtyCount == MAX_DIRTY) return;
+        int i = dirtyCount++ * 4;
+        dirty[i] = x;
+        dirty[i + 1] = y;
+        dirty[i + 2] = w;
+        dirty[i + 3] = h;
+    }
+
+    private static boolean intersects(double ax, double ay, double aw, double ah,
+                                      double bx, double by, double bw, double bh)
+    {
+        return ax < bx + bw && bx < ax + aw && ay < by + bh && by < ay + ah;
+    }
+}
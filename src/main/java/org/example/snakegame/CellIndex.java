@@ -0,0 +1,116 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Small fixed-size map from cell index to a number, such as the snake whose
+ * head entered a cell this tick or the food lying on it.
+ * Open addressing with linear probing over plain int arrays, so lookups and
+ * updates never allocate. The capacity is fixed, the table is kept at most half full.
+ */
+public class CellIndex
+{
+    private static final int EMPTY = -1;
+
+    private final int[] cells;
+    private final int[] values;
+    private final int maxSize;
+    private int size;
+
+    /**
+     * Creates an empty map
+     * @param maxSize the most entries the map will hold at once
+     */
+    public CellIndex(int maxSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+        this.cells = new int[capacity];
+        this.values = new int[capacity];
+        this.maxSize = maxSize;
+        Arrays.fill(cells, EMPTY);
+    }
+
+    /**
+     * Returns the value stored for a cell
+     * @param cell the cell index, not negative
+     * @return the value, or -1 if the cell has none
+     */
+    public int get(int cell)
+    {
+        int slot = find(cell);
+        return cells[slot] == EMPTY ? -1 : values[slot];
+    }
+
+    /**
+     * Stores a value for a cell, replacing the previous one
+     * @param cell the cell index, not negative
+     * @param value the value
+     * @throws IllegalStateException if the map already holds maxSize entries
+     */
+    public void put(int cell, int value)
+    {
+        int slot = find(cell);
+        if (cells[slot] == EMPTY) {
+            if (size == maxSize) throw new IllegalStateException("CellIndex is full");
+            cells[slot] = cell;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Removes the value of a cell, if any
+     * @param cell the cell index
+     */
+    public void remove(int cell)
+    {
+        int slot = find(cell);
+        if (cells[slot] == EMPTY) return;
+        // Shift the following entries back, so no probe sequence is broken
+        int mask = cells.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (cells[next] != EMPTY) {
+            int home = hash(cells[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                cells[hole] = cells[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        cells[hole] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear()
+    {
+        if (size == 0) return;
+        Arrays.fill(cells, EMPTY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(int cell)
+    {
+        int mask = cells.length - 1;
+        int slot = hash(cell) & mask;
+        while (cells[slot] != EMPTY && cells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(int cell)
+    {
+        // Spread neighbouring cells over the table
+        int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -5,4 +5,18 @@ public enum Direction {
     DOWN,
     LEFT,
     RIGHT;
+
+    /**
+     * Checks if turning from this direction to the other one would reverse the snake
+     * @param other the other direction
+     * @return true if the directions point opposite ways
+     */
+    public boolean isOpposite(Direction other) {
+        return switch (this) {
+            case UP -> other == DOWN;
+            case DOWN -> other == UP;
+            case LEFT -> other == RIGHT;
+            case RIGHT -> other == LEFT;
+        };
+    }
 }
@@ -0,0 +1,63 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Summary of a set of integer samples, such as the final scores of many games.
+ * The samples are copied and sorted once, so percentiles are lookups.
+ */
+public class Distribution
+{
+    private final int[] sorted;
+    private final double mean;
+
+    /**
+     * Creates the summary
+     * @param samples the values, not modified
+     */
+    public Distribution(int[] samples)
+    {
+        this.sorted = samples.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (int value : sorted) {
+            sum += value;
+        }
+        this.mean = sorted.length == 0 ? 0 : (double) sum / sorted.length;
+    }
+
+    /**
+     * Returns the value below which the given share of the samples lies
+     * @param percentile from 0 to 100
+     * @return the sample at that rank, or 0 if there are no samples
+     */
+    public int getPercentile(double percentile)
+    {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    public int getCount() {
+        return sorted.length;
+    }
+
+    public int getMin() {
+        return getPercentile(0);
+    }
+
+    public int getMax() {
+        return getPercentile(100);
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("mean %.1f, min %d, p50 %d, p90 %d, p99 %d, max %d",
+                mean, getMin(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+    }
+}
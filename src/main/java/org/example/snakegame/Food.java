@@ -1,78 +1,54 @@
 package org.example.snakegame;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
-import javafx.util.Duration;
-
-import java.util.Random;
 
 /**
- * Represents a food item that randomly appears in the game.
- * Each food has a type (red, blue, green) and triggers different effects when eaten.
- * The food relocates itself after a random time between 4–8 seconds.
+ * Displays the food item of the game.
+ * Each food has a type from the FoodTable, which decides its image and its effects when eaten.
+ * Where the food is and when it relocates is decided by the SimulationEngine,
+ * this class only shows the matching image on the given grid cell.
  */
 
 public class Food {
     private final ImageView imageView;
     private final double imageWidth = 30;
     private final double imageHeight = 35;
-    private final Random random = new Random();
-    private final Pane gamePane;
-    private Timeline lifetimeTimer;
     private FoodType currentType;
 
     /**
-     * Creates a Food object and spawns it in the given pane.
+     * Creates a Food object and adds its image to the given pane.
      * @param gamePane The pane where the food should appear.
      */
     public Food(Pane gamePane) {
-        this.gamePane = gamePane;
         imageView = new ImageView();
         imageView.setFitWidth(imageWidth);
         imageView.setFitHeight(imageHeight);
         imageView.setPreserveRatio(false);
 
         gamePane.getChildren().add(imageView);
-        relocate();
     }
 
     /**
-     * Places the food randomly in the pane with a random food type and image.
-     * Also sets a timer to auto-relocate after 4–8 seconds.
+     * Shows the food with the image of the given type, centered on a grid cell.
+     * @param type The type of the food.
+     * @param x The x grid position.
+     * @param y The y grid position.
+     * @param tileSize The size of one grid cell in pixels.
      */
-    public void relocate() {
-        // Choose random type
-        FoodType[] types = FoodType.values();
-        currentType = types[random.nextInt(types.length)];
-
-        // Choose image based on type
-        String imagePath = switch (currentType) {
-            case redApple -> "/Pictures/red_apple.png";
-            case blueApple -> "/Pictures/blue_apple.png";
-            case greenApple -> "/Pictures/green_apple.png";
-        };
-
-        Image image = new Image(getClass().getResource(imagePath).toExternalForm());
-        imageView.setImage(image);
-
-        // Set new random position
-        double maxX = gamePane.getPrefWidth() - imageWidth;
-        double maxY = gamePane.getPrefHeight() - imageHeight;
-        imageView.setLayoutX(random.nextDouble() * maxX);
-        imageView.setLayoutY(random.nextDouble() * maxY);
+    public void show(FoodType type, int x, int y, int tileSize) {
+        // The images are decoded once and shared
+        if (type != currentType) {
+            imageView.setImage(SpriteCache.get(type));
+            currentType = type;
+        }
 
-        // Set a timer to relocate the food after 4–8 seconds
-        if (lifetimeTimer != null) lifetimeTimer.stop();
-        lifetimeTimer = new Timeline(new KeyFrame(Duration.seconds(7), e -> relocate()));
-        lifetimeTimer.play();
+        imageView.setLayoutX(x * tileSize + (tileSize - imageWidth) / 2);
+        imageView.setLayoutY(y * tileSize + (tileSize - imageHeight) / 2);
     }
 
     /**
      * Returns the ImageView node used to render the food in the scene.
-     * This can be used for positioning or collision detection.
      * @return The ImageView for the food.
      */
     public ImageView getAppleImage() {
@@ -80,8 +56,7 @@ public class Food {
     }
 
     /**
-     * Returns the current food type (redApple, blueApple, greenApple).
-     * Can be used to determine which effect to apply when eaten.
+     * Returns the current food type, e.g. redApple.
      * @return The type of this food.
      */
     public FoodType getCurrentType() {
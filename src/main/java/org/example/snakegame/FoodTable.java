@@ -0,0 +1,357 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The food types of a game and their effects, read from a properties file
+ * (see foods.properties on the class path for the keys) and compiled once
+ * into flat arrays indexed by FoodType index, so eating food is a few array
+ * reads and spawning food costs the same however many types there are.
+ * Effects of one kind share a slot per snake: the food eaten last decides the
+ * value of the slot, e.g. the speed, and its stacking rule decides when the
+ * slot ends. The score multiplier applies to the food eaten while it runs,
+ * not to the food that started it.
+ * Types are picked with an alias table: one column is drawn uniformly and
+ * either kept or swapped for its alias. A column that is always kept draws
+ * nothing more, so a table of equal weights draws exactly the numbers the
+ * engines drew before food types had weights, and old replays stay valid.
+ * A replay or snapshot must be played with the table it was recorded with.
+ */
+public final class FoodTable
+{
+    static final int MAX_TYPES = 127; // Food types are sent and stored as a signed byte
+    static final long DEFAULT_DURATION = 5000;
+
+    // Bits of effects[]
+    static final int SPEED = 1;
+    static final int HEAD = 2;
+    static final int MULTIPLIER = 4;
+
+    private static final int ALWAYS = Integer.MAX_VALUE; // Threshold of a column that never uses its alias
+    private static final String DEFAULT_RESOURCE = "/foods.properties";
+
+    /**
+     * The red, blue and green apple of the classic game
+     */
+    public static final FoodTable DEFAULT = loadDefault();
+
+    private final FoodType[] types;
+    final int[] effects;
+    final int[] growth;
+    final int[] points;
+    final double[] speeds; // FoodType.BOOST for the boost speed of the profile
+    final int[] multipliers;
+    final long[] durations;
+    final FoodType.Stacking[] stacking;
+    private final int[] thresholds; // Chance to keep the column, scaled to 2^31
+    private final int[] aliases;
+    private final long maxDuration;
+
+    private FoodTable(FoodType[] types)
+    {
+        int n = types.length;
+        this.types = types;
+        effects = new int[n];
+        growth = new int[n];
+        points = new int[n];
+        speeds = new double[n];
+        multipliers = new int[n];
+        durations = new long[n];
+        stacking = new FoodType.Stacking[n];
+        long longest = 0;
+        for (FoodType type : types) {
+            int i = type.getIndex();
+            effects[i] = (Double.isNaN(type.getSpeed()) ? 0 : SPEED) | (type.isEnlargeHead() ? HEAD : 0)
+                    | (type.getScoreMultiplier() != 1 ? MULTIPLIER : 0);
+            growth[i] = type.getGrowth();
+            points[i] = type.getScore();
+            speeds[i] = type.getSpeed();
+            multipliers[i] = type.getScoreMultiplier();
+            durations[i] = type.getDuration();
+            stacking[i] = type.getStacking();
+            if (effects[i] != 0) longest = Math.max(longest, type.getDuration());
+        }
+        maxDuration = longest;
+        thresholds = new int[n];
+        aliases = new int[n];
+        buildAliases();
+    }
+
+    /**
+     * Builds the alias table with Vose's method: columns below the average
+     * weight are filled up with the rest of a column above it
+     */
+    private void buildAliases()
+    {
+        int n = types.length;
+        double total = 0;
+        boolean uniform = true;
+        int heaviest = 0;
+        for (FoodType type : types) {
+            total += type.getWeight();
+            uniform &= type.getWeight() == types[0].getWeight();
+            if (type.getWeight() > types[heaviest].getWeight()) heaviest = type.getIndex();
+        }
+        Arrays.fill(thresholds, ALWAYS);
+        for (int i = 0; i < n; i++) {
+            aliases[i] = i;
+        }
+        if (uniform) return;
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = types[i].getWeight() * n / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            thresholds[less] = (int) Math.min(ALWAYS - 1, scaled[less] * (1L << 31));
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // What is left is 1 apart from rounding errors and keeps its column, but
+        // rounding may leave a column of weight 0 here, which must never be kept
+        for (int k = 0; k < smallCount; k++) {
+            if (types[small[k]].getWeight() == 0) {
+                thresholds[small[k]] = 0;
+                aliases[small[k]] = heaviest;
+            }
+        }
+    }
+
+    /**
+     * Reads a table from a properties file, sprites that are not on the class
+     * path are found relative to the file
+     * @param file the properties file
+     * @return the compiled table
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file describes no valid table
+     */
+    public static FoodTable load(Path file) throws IOException
+    {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        return parse(properties, directory);
+    }
+
+    private static FoodTable loadDefault()
+    {
+        Properties properties = new Properties();
+        try (InputStream in = FoodTable.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) throw new IOException("Missing " + DEFAULT_RESOURCE);
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parse(properties, null);
+    }
+
+    /**
+     * Compiles the food types described by the properties
+     * @param directory where sprites that are not on the class path are found, null for the working directory
+     */
+    static FoodTable parse(Properties properties, Path directory)
+    {
+        String list = properties.getProperty("types");
+        if (list == null || list.isBlank()) throw new IllegalArgumentException("No food types given");
+        String[] names = list.split(",");
+        if (names.length > MAX_TYPES) throw new IllegalArgumentException("At most " + MAX_TYPES + " food types");
+
+        FoodType[] types = new FoodType[names.length];
+        Set<String> seen = new HashSet<>();
+        boolean spawns = false;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].trim();
+            if (name.isEmpty() || !seen.add(name)) {
+                throw new IllegalArgumentException("Empty or repeated food type in " + list);
+            }
+
+            double weight = doubleValue(properties, name, "weight", 1);
+            int growth = intValue(properties, name, "growth", 1);
+            int score = intValue(properties, name, "score", 1);
+            int multiplier = intValue(properties, name, "scoreMultiplier", 1);
+            long duration = intValue(properties, name, "duration", (int) DEFAULT_DURATION);
+            if (!(weight >= 0) || Double.isInfinite(weight) || growth < 0 || score < 0) {
+                throw new IllegalArgumentException("Weight, growth and score of " + name + " must not be negative");
+            }
+            if (multiplier < 1 || duration < 1) {
+                throw new IllegalArgumentException("Score multiplier and duration of " + name + " must be positive");
+            }
+            spawns |= weight > 0;
+
+            String speedValue = value(properties, name, "speed");
+            double speed = Double.NaN;
+            if (speedValue != null && speedValue.equals("boost")) {
+                speed = FoodType.BOOST;
+            } else if (speedValue != null) {
+                speed = doubleValue(properties, name, "speed", 0);
+                if (!SpeedProfile.isValid(speed)) {
+                    throw new IllegalArgumentException("Speed of " + name
+                            + " must be boost or a whole number of ms of at least 1");
+                }
+            }
+            boolean enlargeHead = Boolean.parseBoolean(value(properties, name, "enlargeHead"));
+
+            String stackingValue = value(properties, name, "stacking");
+            FoodType.Stacking stacking;
+            try {
+                stacking = stackingValue == null ? FoodType.Stacking.REFRESH
+                        : FoodType.Stacking.valueOf(stackingValue.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Stacking of " + name + " must be refresh, extend or keep", e);
+            }
+
+            String sprite = value(properties, name, "sprite");
+            if (sprite == null) throw new IllegalArgumentException("Missing " + name + ".sprite");
+            types[i] = new FoodType(i, name, weight, sprite, spriteUrl(sprite, directory), growth, score,
+                    speed, enlargeHead, multiplier, duration, stacking);
+        }
+        if (!spawns) throw new IllegalArgumentException("At least one food type needs a weight above 0");
+        return new FoodTable(types);
+    }
+
+    private static URL spriteUrl(String sprite, Path directory)
+    {
+        if (sprite.startsWith("/")) {
+            URL url = FoodTable.class.getResource(sprite);
+            if (url != null) return url;
+        }
+        Path file = directory == null ? Path.of(sprite) : directory.resolve(sprite);
+        if (!Files.isRegularFile(file)) throw new IllegalArgumentException("Missing image " + sprite);
+        try {
+            return file.toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid image path " + sprite, e);
+        }
+    }
+
+    private static String value(Properties properties, String name, String key)
+    {
+        String value = properties.getProperty(name + "." + key);
+        return value == null ? null : value.trim();
+    }
+
+    private static int intValue(Properties properties, String name, String key, int defaultValue)
+    {
+        String value = value(properties, name, key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + "." + key + ": " + value, e);
+        }
+    }
+
+    private static double doubleValue(Properties properties, String name, String key, double defaultValue)
+    {
+        String value = value(properties, name, key);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + "." + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * Picks the type of the next food by weight
+     * @param random the generator of the game
+     * @return the index of the type
+     */
+    int sample(Random random)
+    {
+        int column = random.nextInt(thresholds.length);
+        int threshold = thresholds[column];
+        if (threshold == ALWAYS || (random.nextInt() >>> 1) < threshold) return column;
+        return aliases[column];
+    }
+
+    /**
+     * Returns the step length every food type sets, with boost resolved for a speed profile
+     * @param profile the speeds of the engine
+     * @return the step lengths in ms by type index, NaN for types without a speed effect
+     */
+    double[] resolveSpeeds(SpeedProfile profile)
+    {
+        double[] resolved = speeds.clone();
+        for (int i = 0; i < resolved.length; i++) {
+            if (resolved[i] == FoodType.BOOST) resolved[i] = profile.getBoostSpeed();
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns when an effect of a type ends if it is eaten now
+     * @param type the index of the food type
+     * @param now the simulated time in ms
+     * @param runningEnd when the running effect of the same slot ends, -1 if none runs
+     * @return the new end in simulated ms
+     */
+    long effectEnd(int type, long now, long runningEnd)
+    {
+        if (runningEnd < 0) return now + durations[type];
+        return switch (stacking[type]) {
+            case REFRESH -> now + durations[type];
+            case EXTEND -> runningEnd + durations[type];
+            case KEEP -> runningEnd;
+        };
+    }
+
+    //region Getter
+
+    /**
+     * Returns the number of food types
+     * @return the number of types, at most MAX_TYPES
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Returns a food type
+     * @param index the index of the type
+     * @return the type
+     */
+    public FoodType get(int index) {
+        return types[index];
+    }
+
+    /**
+     * Returns how long the longest effect of any type lasts
+     * @return the duration in simulated ms, 0 if no type has an effect
+     */
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+    //endregion
+}
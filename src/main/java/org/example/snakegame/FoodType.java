@@ -1,10 +1,152 @@
 package org.example.snakegame;
 
+import java.net.URL;
+
 /**
- * Enum representing the different types of food in the game.
+ * One kind of food of a FoodTable: its name, how often it spawns, its sprite
+ * and what it does to the snake that eats it.
+ * Food types are only created by FoodTable, which also compiles their effects
+ * into the flat arrays the engines dispatch on, so the same type is one object
+ * for the whole run and can be compared with ==.
  */
-public enum FoodType {
-    redApple,   // Normal – no effect
-    blueApple,  // Speeds up the snake temporarily
-    greenApple  // Enlarges snake's head temporarily
+public final class FoodType
+{
+    private final int index;
+    private final String name;
+    private final double weight;
+    private final String imagePath;
+    private final URL imageUrl;
+    private final int growth;
+    private final int score;
+    private final double speed; // Step length in ms, BOOST for the boost speed of the profile, NaN for no change
+    private final boolean enlargeHead;
+    private final int scoreMultiplier;
+    private final long duration;
+    private final Stacking stacking;
+
+    static final double BOOST = -1;
+
+    /**
+     * How eating a food whose effect is still running changes its end
+     */
+    public enum Stacking {
+        REFRESH, // The effect runs for the full duration from now
+        EXTEND,  // The duration is added to what is left
+        KEEP     // The running effect ends as planned
+    }
+
+    FoodType(int index, String name, double weight, String imagePath, URL imageUrl, int growth, int score,
+             double speed, boolean enlargeHead, int scoreMultiplier, long duration, Stacking stacking)
+    {
+        this.index = index;
+        this.name = name;
+        this.weight = weight;
+        this.imagePath = imagePath;
+        this.imageUrl = imageUrl;
+        this.growth = growth;
+        this.score = score;
+        this.speed = speed;
+        this.enlargeHead = enlargeHead;
+        this.scoreMultiplier = scoreMultiplier;
+        this.duration = duration;
+        this.stacking = stacking;
+    }
+
+    //region Getter
+
+    /**
+     * Returns the position of this type in its table, which snapshots, replays,
+     * the stats log and the network protocol refer to
+     * @return the index from 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns how likely this type is picked when food spawns, relative to the other types
+     * @return the weight, 0 if it never spawns
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the image of this food type as it was configured
+     * @return a resource path on the class path, or a file path
+     */
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * Returns where the image of this food type is loaded from
+     * @return the URL of the PNG file
+     */
+    public URL getImageUrl() {
+        return imageUrl;
+    }
+
+    /**
+     * Returns by how many segments the snake grows
+     * @return the number of segments, may be 0
+     */
+    public int getGrowth() {
+        return growth;
+    }
+
+    /**
+     * Returns the points for eating this food before the score multiplier is applied
+     * @return the points
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the step length of the snake while the speed effect runs
+     * @return the step length in ms, BOOST for the boost speed of the speed profile, NaN if the speed is not changed
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Returns whether the head of the snake is enlarged while the effect runs
+     * @return true to enlarge the head
+     */
+    public boolean isEnlargeHead() {
+        return enlargeHead;
+    }
+
+    /**
+     * Returns by how much the points of the following food are multiplied while the effect runs
+     * @return the multiplier, 1 if the score is not changed
+     */
+    public int getScoreMultiplier() {
+        return scoreMultiplier;
+    }
+
+    /**
+     * Returns how long the effects last
+     * @return the duration in simulated ms
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public Stacking getStacking() {
+        return stacking;
+    }
+    //endregion
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
 }
@@ -0,0 +1,208 @@
+package org.example.snakegame;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+/**
+ * Writes frames as PNG files on a pool of encoder threads.
+ * The caller draws a frame into a buffer taken with acquire() and hands it to
+ * submit(); an encoder thread writes the file and returns the buffer to the
+ * pool. There are two buffers per encoder thread, so drawing the next frames
+ * overlaps with encoding the last ones, and acquire() waits when the encoders
+ * fall behind instead of piling up frames in memory.
+ * Each encoder thread keeps its own PngEncoder, so no buffers are allocated
+ * per frame once they fit the frame size.
+ * Usage: FrameExporter --replay=file[,file...] [--out=dir] [--tile=N]
+ * [--every=N] [--threads=N] [--level=N] [--foodTable=file] exports every Nth
+ * tick of each replay, and its last one, to dir/replay name/frame-000000.png
+ */
+public class FrameExporter implements Closeable
+{
+    private static final int BUFFERS_PER_THREAD = 2;
+
+    private final ExecutorService encoders;
+    private final ThreadLocal<PngEncoder> pngEncoders;
+    private final BlockingQueue<int[]> buffers;
+    private final int bufferCount;
+    private volatile IOException failure; // The first failed write, reported by the next call
+
+    /**
+     * Creates the pool of encoder threads
+     * @param threads the number of encoder threads
+     * @param level the deflate level from 0 to 9
+     */
+    public FrameExporter(int threads, int level)
+    {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        this.encoders = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "png");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pngEncoders = ThreadLocal.withInitial(() -> new PngEncoder(level));
+        this.bufferCount = threads * BUFFERS_PER_THREAD;
+        this.buffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            buffers.add(new int[0]);
+        }
+    }
+
+    /**
+     * Takes a free buffer, waiting until an encoder has finished with one
+     * @param pixels the number of pixels the buffer must hold
+     * @return a buffer of at least that many pixels, its contents are left over from an earlier frame
+     * @throws IOException if an earlier frame could not be written
+     */
+    public int[] acquire(int pixels) throws IOException
+    {
+        checkFailure();
+        int[] buffer = take();
+        return buffer.length < pixels ? new int[pixels] : buffer;
+    }
+
+    /**
+     * Hands a frame to the encoders and returns right away
+     * @param pixels a buffer from acquire(), it must not be touched any more
+     * @param width the width of the frame in pixels
+     * @param height the height of the frame in pixels
+     * @param file the PNG file to write
+     * @throws IOException if an earlier frame could not be written
+     */
+    public void submit(int[] pixels, int width, int height, Path file) throws IOException
+    {
+        checkFailure();
+        encoders.execute(() -> {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+                pngEncoders.get().write(pixels, width, height, out);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            } finally {
+                buffers.add(pixels);
+            }
+        });
+    }
+
+    /**
+     * Draws a state with a raster and writes it to a file in the background
+     * @param raster the raster to draw with
+     * @param state the state to draw
+     * @param file the PNG file to write
+     * @throws IOException if an earlier frame could not be written
+     */
+    public void export(FrameRaster raster, GameState state, Path file) throws IOException
+    {
+        int[] pixels = acquire(raster.getPixelCount());
+        raster.render(state, pixels);
+        submit(pixels, raster.getWidth(), raster.getHeight(), file);
+    }
+
+    /**
+     * Waits until all frames handed over are written
+     * @throws IOException if a frame could not be written
+     */
+    public void flush() throws IOException
+    {
+        // Every buffer is back in the pool once its frame is written
+        int[][] all = new int[bufferCount][];
+        for (int i = 0; i < bufferCount; i++) {
+            all[i] = take();
+        }
+        for (int[] buffer : all) {
+            buffers.add(buffer);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Writes the remaining frames and stops the encoder threads
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (encoders.isShutdown()) return;
+        try {
+            flush();
+        } finally {
+            encoders.shutdown();
+        }
+    }
+
+    private int[] take() throws IOException
+    {
+        try {
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the encoders", e);
+        }
+    }
+
+    private void checkFailure() throws IOException
+    {
+        IOException e = failure;
+        if (e != null) throw new IOException("Could not write a frame: " + e.getMessage(), e);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        if (!arguments.containsKey("replay")) throw new IllegalArgumentException("Missing --replay=file");
+        Path out = Path.of(arguments.getOrDefault("out", "frames"));
+        int tileSize = Integer.parseInt(arguments.getOrDefault("tile", "20"));
+        int every = Integer.parseInt(arguments.getOrDefault("every", "1"));
+        int threads = Integer.parseInt(arguments.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int level = Integer.parseInt(arguments.getOrDefault("level", String.valueOf(Deflater.BEST_SPEED)));
+        if (every < 1) throw new IllegalArgumentException("every must be positive");
+        FoodTable foods = arguments.containsKey("foodTable")
+                ? FoodTable.load(Path.of(arguments.get("foodTable"))) : FoodTable.DEFAULT;
+
+        Map<Long, FrameRaster> rasters = new HashMap<>(); // By board size, the sprites are scaled once per raster
+        long frames = 0;
+        long start = System.nanoTime();
+        try (FrameExporter exporter = new FrameExporter(threads, level)) {
+            for (String name : arguments.get("replay").split(",")) {
+                Path file = Path.of(name);
+                String base = file.getFileName().toString();
+                Path directory = out.resolve(base.contains(".") ? base.substring(0, base.lastIndexOf('.')) : base);
+                Files.createDirectories(directory);
+
+                ReplayPlayer player = new ReplayPlayer(Replay.load(file), foods);
+                GameState state = player.getEngine().getState();
+                FrameRaster raster = rasters.computeIfAbsent((long) state.getWidth() << 32 | state.getHeight(),
+                        size -> new FrameRaster(state.getWidth(), state.getHeight(), tileSize, foods));
+                long exported = -1;
+                boolean running = true;
+                while (true) {
+                    long tick = state.getTick();
+                    // The last frame is always written, e.g. as a thumbnail of the game
+                    if ((tick % every == 0 || !running) && tick != exported) {
+                        exporter.export(raster, state, directory.resolve(String.format("frame-%06d.png", tick)));
+                        exported = tick;
+                        frames++;
+                    }
+                    if (!running) break;
+                    running = player.step();
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d frames in %.2f s, %.0f frames/s%n", frames, nanos / 1e9, frames * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,283 @@
+package org.example.snakegame;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws a GameState into an int[] of ARGB pixels without JavaFX or a display,
+ * e.g. to export frames of replays on a headless machine.
+ * The frame shows the whole board like the game at the end of a tick: black
+ * background, the food sprite centered on its cell and the pink snake with the
+ * enlarged head if it is.
+ * The circles and the food sprites are scaled to the tile size once when the
+ * raster is created and kept as premultiplied stamps, so drawing a frame is
+ * clearing the buffer and copying one stamp per segment.
+ * A raster has no state of its own between frames and may draw into any buffer
+ * of getPixelCount() pixels, but it is not meant to be shared between threads.
+ */
+public class FrameRaster
+{
+    private static final int BACKGROUND = 0xFF000000;
+    private static final int SNAKE = 0xFFFFC0CB; // Same as Color.PINK
+    private static final double FOOD_WIDTH = 1.5; // In tiles, 30 x 35 pixels at the default tile size
+    private static final double FOOD_HEIGHT = 1.75;
+    private static final int SUBSAMPLES = 4; // Per pixel and axis when working out how much of it a circle covers
+    private static final long MAX_PIXELS = 1 << 28;
+    // The full size food images by URL, decoded once however many rasters use them
+    private static final Map<String, Source> SOURCES = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int[] segment;
+    private final int headSize;
+    private final int[] head;
+    private final int[] enlargedHead;
+    private final int spriteWidth;
+    private final int spriteHeight;
+    private final int[][] sprites; // By food type index
+
+    /**
+     * Creates a raster for a board
+     * @param boardWidth board width in cells
+     * @param boardHeight board height in cells
+     * @param tileSize the size of one cell in pixels
+     */
+    public FrameRaster(int boardWidth, int boardHeight, int tileSize)
+    {
+        this(boardWidth, boardHeight, tileSize, FoodTable.DEFAULT);
+    }
+
+    /**
+     * Creates a raster for a board with the sprites of a food table
+     * @param boardWidth board width in cells
+     * @param boardHeight board height in cells
+     * @param tileSize the size of one cell in pixels
+     * @param foods the food types of the states that are drawn
+     */
+    public FrameRaster(int boardWidth, int boardHeight, int tileSize, FoodTable foods)
+    {
+        if (tileSize < 1) throw new IllegalArgumentException("tileSize must be positive");
+        if ((long) boardWidth * boardHeight * tileSize * tileSize > MAX_PIXELS) {
+            throw new IllegalArgumentException("Frame too large: " + boardWidth * tileSize + " x " + boardHeight * tileSize);
+        }
+        this.width = boardWidth * tileSize;
+        this.height = boardHeight * tileSize;
+        this.tileSize = tileSize;
+        // An enlarged head has a radius of tileSize / 1.2 and reaches into the neighbouring cells
+        this.headSize = (int) Math.ceil(tileSize / 1.2) * 2 + tileSize % 2;
+        this.segment = circle(tileSize, tileSize / 2.0);
+        this.head = circle(headSize, tileSize / 2.0);
+        this.enlargedHead = circle(headSize, tileSize / 1.2);
+        this.spriteWidth = Math.max(1, (int) Math.round(tileSize * FOOD_WIDTH));
+        this.spriteHeight = Math.max(1, (int) Math.round(tileSize * FOOD_HEIGHT));
+        this.sprites = new int[foods.size()][];
+        for (int i = 0; i < foods.size(); i++) {
+            FoodType type = foods.get(i);
+            Source source = SOURCES.computeIfAbsent(type.getImageUrl().toExternalForm(), url -> decode(type));
+            sprites[i] = scale(source.pixels, source.width, source.height, spriteWidth, spriteHeight);
+        }
+    }
+
+    /**
+     * Creates a buffer that fits a frame of this raster
+     * @return a new buffer of getPixelCount() pixels
+     */
+    public int[] newBuffer()
+    {
+        return new int[getPixelCount()];
+    }
+
+    /**
+     * Draws the board, the food and the snake of a state
+     * @param state the state to draw
+     * @param pixels the buffer to draw into, row by row, at least getPixelCount() long
+     */
+    public void render(GameState state, int[] pixels)
+    {
+        if (pixels.length < getPixelCount()) throw new IllegalArgumentException("Buffer too small");
+        Arrays.fill(pixels, 0, getPixelCount(), BACKGROUND);
+
+        FoodType type = state.getFoodType();
+        if (type != null) {
+            draw(pixels, sprites[type.getIndex()], spriteWidth, spriteHeight,
+                    state.getFoodX() * tileSize + (tileSize - spriteWidth) / 2,
+                    state.getFoodY() * tileSize + (tileSize - spriteHeight) / 2);
+        }
+
+        Snake snake = state.getSnake();
+        for (int i = snake.getLength() - 1; i > 0; i--) {
+            draw(pixels, segment, tileSize, tileSize, snake.getX(i) * tileSize, snake.getY(i) * tileSize);
+        }
+        // If head is enlarged, increase size
+        int offset = (tileSize - headSize) / 2;
+        draw(pixels, snake.isHeadEnlarged() ? enlargedHead : head, headSize, headSize,
+                snake.getHeadX() * tileSize + offset, snake.getHeadY() * tileSize + offset);
+    }
+
+    /**
+     * Blends a premultiplied stamp over the buffer, clipped to the frame
+     */
+    private void draw(int[] pixels, int[] stamp, int stampWidth, int stampHeight, int x, int y)
+    {
+        int fromX = Math.max(0, -x);
+        int toX = Math.min(stampWidth, width - x);
+        int fromY = Math.max(0, -y);
+        int toY = Math.min(stampHeight, height - y);
+        for (int sy = fromY; sy < toY; sy++) {
+            int source = sy * stampWidth;
+            int target = (y + sy) * width + x;
+            for (int sx = fromX; sx < toX; sx++) {
+                int color = stamp[source + sx];
+                int alpha = color >>> 24;
+                if (alpha == 0) continue;
+                if (alpha == 255) {
+                    pixels[target + sx] = color;
+                } else {
+                    pixels[target + sx] = over(color, alpha, pixels[target + sx]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Composites a premultiplied color over an opaque one
+     */
+    private static int over(int color, int alpha, int below)
+    {
+        int keep = 255 - alpha;
+        int r = ((color >> 16) & 0xFF) + ((below >> 16) & 0xFF) * keep / 255;
+        int g = ((color >> 8) & 0xFF) + ((below >> 8) & 0xFF) * keep / 255;
+        int b = (color & 0xFF) + (below & 0xFF) * keep / 255;
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Creates a square stamp of a pink circle centered in it, with smooth edges
+     */
+    private static int[] circle(int size, double radius)
+    {
+        int[] stamp = new int[size * size];
+        double center = size / 2.0;
+        double step = 1.0 / SUBSAMPLES;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int covered = 0;
+                for (int sy = 0; sy < SUBSAMPLES; sy++) {
+                    double dy = y + (sy + 0.5) * step - center;
+                    for (int sx = 0; sx < SUBSAMPLES; sx++) {
+                        double dx = x + (sx + 0.5) * step - center;
+                        if (dx * dx + dy * dy <= radius * radius) covered++;
+                    }
+                }
+                stamp[y * size + x] = premultiply(SNAKE, covered * 255 / (SUBSAMPLES * SUBSAMPLES));
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Scales an image to the given size by averaging the source pixels each target pixel covers
+     */
+    private static int[] scale(int[] source, int sourceWidth, int sourceHeight, int targetWidth, int targetHeight)
+    {
+        int[] target = new int[targetWidth * targetHeight];
+        for (int ty = 0; ty < targetHeight; ty++) {
+            int fromY = ty * sourceHeight / targetHeight;
+            int toY = Math.max(fromY + 1, (ty + 1) * sourceHeight / targetHeight);
+            for (int tx = 0; tx < targetWidth; tx++) {
+                int fromX = tx * sourceWidth / targetWidth;
+                int toX = Math.max(fromX + 1, (tx + 1) * sourceWidth / targetWidth);
+                long a = 0, r = 0, g = 0, b = 0;
+                for (int sy = fromY; sy < toY; sy++) {
+                    for (int sx = fromX; sx < toX; sx++) {
+                        int color = source[sy * sourceWidth + sx];
+                        int alpha = color >>> 24;
+                        a += alpha;
+                        r += ((color >> 16) & 0xFF) * alpha;
+                        g += ((color >> 8) & 0xFF) * alpha;
+                        b += (color & 0xFF) * alpha;
+                    }
+                }
+                long samples = (long) (toX - fromX) * (toY - fromY);
+                long divisor = samples * 255;
+                target[ty * targetWidth + tx] = (int) (a / samples) << 24
+                        | (int) (r / divisor) << 16 | (int) (g / divisor) << 8 | (int) (b / divisor);
+            }
+        }
+        return target;
+    }
+
+    private static int premultiply(int color, int alpha)
+    {
+        return alpha << 24 | ((color >> 16) & 0xFF) * alpha / 255 << 16
+                | ((color >> 8) & 0xFF) * alpha / 255 << 8 | (color & 0xFF) * alpha / 255;
+    }
+
+    private static Source decode(FoodType type)
+    {
+        try (InputStream in = type.getImageUrl().openStream()) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) throw new IOException("Not an image: " + type.getImagePath());
+            int width = image.getWidth();
+            int height = image.getHeight();
+            return new Source(image.getRGB(0, 0, width, height, null, 0, width), width, height);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A full size food image as ARGB pixels
+     */
+    private static final class Source
+    {
+        final int[] pixels;
+        final int width;
+        final int height;
+
+        Source(int[] pixels, int width, int height)
+        {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    //region Getter
+
+    /**
+     * Returns the width of a frame
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of a frame
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns how many pixels a frame has
+     * @return width times height
+     */
+    public int getPixelCount() {
+        return width * height;
+    }
+    //endregion
+}
@@ -0,0 +1,78 @@
+package org.example.snakegame;
+
+/**
+ * Keeps the duration of the last frames to show how long rendering takes.
+ * Samples are stored in a fixed array, so recording a frame does not allocate.
+ */
+public class FrameTimeCounter
+{
+    private final long[] samples;
+    private int next;
+    private int count;
+    private long total;
+
+    /**
+     * Creates a counter that averages over the given number of frames
+     * @param window the number of frames to keep
+     */
+    public FrameTimeCounter(int window)
+    {
+        this.samples = new long[window];
+    }
+
+    /**
+     * Records the duration of one frame
+     * @param nanos the frame time in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (count == samples.length) {
+            total -= samples[next];
+        } else {
+            count++;
+        }
+        samples[next] = nanos;
+        total += nanos;
+        next = (next + 1) % samples.length;
+    }
+
+    /**
+     * Returns the average frame time over the window
+     * @return the average in milliseconds
+     */
+    public double getAverageMillis()
+    {
+        return count == 0 ? 0 : total / (count * 1_000_000.0);
+    }
+
+    /**
+     * Returns the longest frame time in the window
+     * @return the maximum in milliseconds
+     */
+    public double getMaxMillis()
+    {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return max / 1_000_000.0;
+    }
+
+    /**
+     * Returns how many frames the averages are based on
+     * @return the number of frames in the window
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Shows average and maximum frame time
+     * @return a text for the screen
+     */
+    public String displayFrameTime()
+    {
+        return String.format("Frame: %.3f ms (max %.3f ms)", getAverageMillis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.snakegame;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+/**
+ * Keeps the set of cells that are not covered by the snake.
+ * The free cells are stored in a dense array and every cell knows its
+ * position in that array, so adding, removing and picking a random free
+ * cell are all O(1), no matter how full the board is.
+ * A cell is identified by its index y * width + x.
+ */
+public class FreeCells
+{
+    private final int width;
+    private final int[] cells; // The first count entries are the free cells
+    private final int[] positions; // Position of each cell in cells, -1 if taken
+    private int count;
+
+    /**
+     * Creates the set for an empty board
+     * @param width the width of the board in cells
+     * @param height the height of the board in cells
+     */
+    public FreeCells(int width, int height)
+    {
+        this.width = width;
+        this.cells = new int[width * height];
+        this.positions = new int[width * height];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+            positions[i] = i;
+        }
+        this.count = cells.length;
+    }
+
+    /**
+     * Marks a cell as taken, the last free cell moves into its place
+     * @param x the x grid position
+     * @param y the y grid position
+     */
+    public void remove(int x, int y)
+    {
+        int cell = y * width + x;
+        int position = positions[cell];
+        if (position < 0) return;
+        int last = cells[--count];
+        cells[position] = last;
+        positions[last] = position;
+        positions[cell] = -1;
+    }
+
+    /**
+     * Marks a cell as free again
+     * @param x the x grid position
+     * @param y the y grid position
+     */
+    public void add(int x, int y)
+    {
+        int cell = y * width + x;
+        if (positions[cell] >= 0) return;
+        cells[count] = cell;
+        positions[cell] = count++;
+    }
+
+    /**
+     * Returns the number of free cells
+     * @return the number of cells not covered by the snake
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Picks a free cell with equal probability
+     * @param random the random generator to use
+     * @return the cell index y * width + x
+     * @throws IllegalStateException if there is no free cell left
+     */
+    public int sample(Random random)
+    {
+        if (count == 0) throw new IllegalStateException("No free cell left");
+        return cells[random.nextInt(count)];
+    }
+
+    /**
+     * Writes the free cells in their current order
+     * @param out the buffer to write size() cells to
+     */
+    public void writeTo(IntBuffer out)
+    {
+        out.put(cells, 0, count);
+    }
+
+    /**
+     * Puts the free cells into the order written by writeTo()
+     * @param in the buffer to read from
+     * @param size the number of cells written, must equal size()
+     * @throws IllegalArgumentException if the cells are not exactly the free cells
+     */
+    public void readFrom(IntBuffer in, int size)
+    {
+        if (size != count) throw new IllegalArgumentException("Expected " + count + " free cells, got " + size);
+        in.get(cells, 0, count);
+        // Mark each cell as seen first, so a cell that is listed twice is noticed
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            if (cell < 0 || cell >= positions.length || positions[cell] < 0) {
+                throw new IllegalArgumentException("Cell " + cell + " is not free or listed twice");
+            }
+            positions[cell] = -2;
+        }
+        for (int i = 0; i < count; i++) {
+            positions[cells[i]] = i;
+        }
+    }
+}
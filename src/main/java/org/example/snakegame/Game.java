@@ -1,53 +1,94 @@
 package org.example.snakegame;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
-import javafx.util.Duration;
-import java.util.ArrayList;
-import java.util.List;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Main class for the Snake game.
- * Handles game loop, rendering, controls, food and score display
+ * Renders the state of the SimulationEngine and handles the game loop,
+ * controls, food and score display.
+ * Settings come from snake.properties or the command line, see GameConfig,
+ * e.g. --renderer=canvas --width=1000 --height=1000 --speed=fast
+ * With --record=file every finished game is saved as a replay, which
+ * --replay=file plays back, e.g. with --replaySpeed=4.
+ * Metrics of the game loop are published over JMX, shown with F3 and
+ * appended to the file given with --metrics=file.
+ * F5 saves the running game to a snapshot file, F9 continues from it.
+ * Every finished game is recorded in the StatsStore given with --stats=file,
+ * the game over text shows the best score of all sessions.
+ * With --autopilot=true the Autopilot plays, e.g. as a demo.
+ * With --connect=host:port the game is a client of a GameServer and plays
+ * one snake of its arena, see startNetworkGame().
+ * To show the first frame quickly, only what it needs is set up in start();
+ * the other sprites, the metrics reporting and the statistics follow once
+ * it is shown, see onFirstFrame().
  */
-public class Game extends Application {
-    private static final int TILE_SIZE = 20;
-    private static final int WIDTH = 30;
-    private static final int HEIGHT = 30;
+public class Game extends Application implements SimulationListener {
+    private static final int BLINK_COLORS = 32;
+    private static final long BLINK_PALETTE_SEED = 0x534E414B45L;
 
     private final Pane gamePane = new Pane();
-    private final Snake snake = new Snake();
-    private final List<Circle> snakeNodes = new ArrayList<>();
-    private Food food;
-    private final Score score = new Score();
-    private final Text scoreText = new Text();
-    private final Text lengthText = new Text();
-    private Timeline resetSpeedTimer;
-    private Timeline resetHeadTimer;
+    private GameConfig config;
+    private SimulationEngine engine;
+    private ReplayPlayer replayPlayer; // null unless a replay is watched
+    private Background[] blinkBackgrounds; // Made on the first blink, the same in every game
+    private GameRenderer renderer;
     private final Text gameOverText = new Text();
+    private final Text frameTimeText = new Text();
 
-    private Timeline timeline;
-
-    //Trigger insane mode when score reaches this value
-    private int nextInsaneTrigger = 10;
+    private GameLoop gameLoop;
+    private GameClient client; // null unless playing on a server
+    private StatsStore stats; // null if no statistics are kept
+    private final Metrics metrics = new Metrics();
+    private long frames;
+    private Runnable firstFrameListener;
 
     @Override
-    public void start(Stage stage) {
+    public void start(Stage stage) throws Exception {
+        config = GameConfig.load(getParameters().getNamed());
+        if (config.getServer() != null) {
+            startNetworkGame(stage);
+            return;
+        }
+        if (config.getReplayFile() != null) {
+            Replay replay = Replay.load(config.getReplayFile());
+            config = config.withBoard(replay.getWidth(), replay.getHeight());
+            replayPlayer = new ReplayPlayer(replay, config.getFoodTable());
+            engine = replayPlayer.getEngine();
+            gameLoop = new GameLoop(engine, this::stepReplay, this::render);
+            gameLoop.setTimeScale(config.getReplaySpeed());
+        } else {
+            engine = new SimulationEngine(config.getWidth(), config.getHeight(), config.getSpeeds(),
+                    config.getFoodTable(), config.getSeed());
+            if (config.isAutopilot()) {
+                Autopilot autopilot = new Autopilot();
+                gameLoop = new GameLoop(engine, () -> engine.step(autopilot.decide(engine.getState())), this::render);
+            } else {
+                gameLoop = new GameLoop(engine, this::render);
+            }
+        }
+        engine.setListener(this);
+        engine.setMetrics(metrics);
+        gameLoop.setMetrics(metrics);
 
         setupGameBoard();
 
-        spawnFood();
-
         Scene scene = new Scene(gamePane);
         scene.setFill(Color.BLACK);
         setupControls(scene);
@@ -56,223 +97,281 @@ public class Game extends Application {
         stage.setScene(scene);
         stage.show();
 
-        startGameLoop();
+        // The listener runs at the end of the pulse that lays out the first frame,
+        // the frame is on its way to the screen when the posted call runs
+        firstFrameListener = () -> {
+            scene.removePostLayoutPulseListener(firstFrameListener);
+            Platform.runLater(this::onFirstFrame);
+        };
+        scene.addPostLayoutPulseListener(firstFrameListener);
+        render(0);
+        gameLoop.start();
+    }
+
+    /**
+     * Sets up what the first frame does not need: the sprites of the other food
+     * types, the metrics reporting and the statistics.
+     * With --exitAfterFirstFrame=true prints the time since the JVM started instead and quits.
+     */
+    private void onFirstFrame()
+    {
+        if (config.isExitAfterFirstFrame()) {
+            long now = System.currentTimeMillis();
+            System.out.println("First frame after " + (now - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms");
+            Platform.exit();
+            return;
+        }
+        SpriteCache.preload(config.getFoodTable(), true);
+        setupMetrics();
+        openStats();
+    }
+
+    /**
+     * Plays on a GameServer instead of alone. The server runs the game, this
+     * window only sends the arrow keys and draws the arena the server sends back.
+     * Frames from the server are applied once per JavaFX pulse.
+     * When the own snake died, the next round starts on its own.
+     */
+    private void startNetworkGame(Stage stage) throws IOException
+    {
+        client = GameClient.connect(config.getServer(), config.getFoodTable());
+        ArenaMirror mirror = client.getMirror();
+        config = config.withBoard(mirror.getWidth(), mirror.getHeight());
+        gamePane.setPrefSize(config.getViewportWidth() * config.getTileSize(),
+                config.getViewportHeight() * config.getTileSize());
+        ArenaRenderer arenaRenderer = new ArenaRenderer(gamePane, config, mirror);
+
+        Scene scene = new Scene(gamePane);
+        scene.setFill(Color.BLACK);
+        scene.setOnKeyPressed(event -> {
+            Direction direction = switch (event.getCode()) {
+                case UP -> Direction.UP;
+                case DOWN -> Direction.DOWN;
+                case LEFT -> Direction.LEFT;
+                case RIGHT -> Direction.RIGHT;
+                default -> null;
+            };
+            if (direction == null) return;
+            try {
+                client.steer(direction);
+            } catch (IOException e) {
+                System.err.println("Could not send the turn: " + e.getMessage());
+            }
+        });
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                try {
+                    arenaRenderer.render(mirror, client.getSlot(), client.poll());
+                } catch (IOException e) {
+                    System.err.println("Lost the connection to the server: " + e.getMessage());
+                    stop();
+                }
+            }
+        }.start();
+
+        stage.setTitle("Snake Game");
+        stage.setScene(scene);
+        stage.show();
+    }
+
+    /**
+     * Starts the periodic dump of the metrics and publishes them over JMX in the background
+     */
+    private void setupMetrics()
+    {
+        metrics.startReporting(config.getMetricsFile(), config.getMetricsInterval());
+        metrics.registerMBeanLater();
     }
 
     /**
-     * Sets up the game board and the texts
+     * Opens the statistics log, the game runs without statistics if it cannot be opened
+     */
+    private void openStats()
+    {
+        if (config.getStatsFile() == null || replayPlayer != null) return;
+        try {
+            stats = StatsStore.open(config.getStatsFile(), config.getFoodTable());
+        } catch (IOException e) {
+            System.err.println("Could not open the statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets up the game board and the texts.
+     * The pane only shows the viewport, larger boards scroll with the snake.
      */
     private void setupGameBoard()
     {
-        gamePane.setPrefSize(WIDTH * TILE_SIZE, HEIGHT * TILE_SIZE);
+        double viewWidth = config.getViewportWidth() * config.getTileSize();
+        double viewHeight = config.getViewportHeight() * config.getTileSize();
+        gamePane.setPrefSize(viewWidth, viewHeight);
+        gamePane.setClip(new Rectangle(viewWidth, viewHeight));
 
-        // Score text setup
-        scoreText.setFill(Color.WHITE);
-        scoreText.setLayoutX(10);
-        scoreText.setLayoutY(20);
-        gamePane.getChildren().add(scoreText);
+        // Food, score and length texts are set up by the renderer
+        renderer = GameRenderer.create(config, gamePane);
 
-        // Length text setup
-        lengthText.setFill(Color.WHITE);
-        lengthText.setLayoutX(10);
-        lengthText.setLayoutY(40);
-        gamePane.getChildren().add(lengthText);
+        // Frame time and metrics text setup, toggled with F3
+        frameTimeText.setFill(Color.WHITE);
+        frameTimeText.setLayoutX(10);
+        frameTimeText.setLayoutY(60);
+        frameTimeText.setVisible(false);
+        gamePane.getChildren().add(frameTimeText);
 
         // Game over text setup
         gameOverText.setFill(Color.WHITE);
         gameOverText.setFont(new Font(24));
         gameOverText.setLayoutX(50);
-        gameOverText.setLayoutY(HEIGHT * TILE_SIZE / 2);
+        gameOverText.setLayoutY(viewHeight / 2);
         gameOverText.setVisible(false); // Initially hidden
         gamePane.getChildren().add(gameOverText);
     }
 
     /**
      * Sets up keyboard controls to move the snake.
-     * Arrow keys are used. 90° turning enforced by Snake class.
+     * Arrow keys are used, turns are queued and reversals dropped by the engine.
+     * F3 shows or hides the frame time and metrics. F5 saves and F9 loads a snapshot.
+     * A replay cannot be steered or saved.
      */
     private void setupControls(Scene scene) {
         scene.setOnKeyPressed(event -> {
             if (!gameOverText.isVisible()) {
                 KeyCode code = event.getCode();
-                if (code == KeyCode.UP) snake.setDirection(Direction.UP);
-                else if (code == KeyCode.DOWN) snake.setDirection(Direction.DOWN);
-                else if (code == KeyCode.LEFT) snake.setDirection(Direction.LEFT);
-                else if (code == KeyCode.RIGHT) snake.setDirection(Direction.RIGHT);
+                if (code == KeyCode.F3) frameTimeText.setVisible(!frameTimeText.isVisible());
+                else if (replayPlayer != null) return;
+                else if (code == KeyCode.F5) saveSnapshot();
+                else if (code == KeyCode.F9) loadSnapshot();
+                else if (code == KeyCode.UP) engine.steer(Direction.UP);
+                else if (code == KeyCode.DOWN) engine.steer(Direction.DOWN);
+                else if (code == KeyCode.LEFT) engine.steer(Direction.LEFT);
+                else if (code == KeyCode.RIGHT) engine.steer(Direction.RIGHT);
             }
         });
     }
 
     /**
-     * Starts the main game loop using a Timeline.
+     * Advances the replay by one tick, the replay ends like a game when the recording runs out
+     * @return true if the replay goes on
      */
-    private void startGameLoop() {
-        timeline = new Timeline(new KeyFrame(Duration.millis(snake.getSpeed()), e -> {
-            snake.move();
-            if (snake.checkEdgeCollision(WIDTH, HEIGHT) || snake.checkCollision()) {
-                gameOver();
-                return;
-            }
-            checkFoodCollision();
-            render();
-        }));
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
+    private boolean stepReplay() {
+        if (replayPlayer.step()) return true;
+        if (!engine.getState().isGameOver()) gameOver();
+        return false;
     }
 
     /**
-     * Renders the snake, score and length on screen.
+     * Saves the running game to the snapshot file
      */
-
-    private void render() {
-        // Remove old segments
-        gamePane.getChildren().removeAll(snakeNodes);
-        snakeNodes.clear();
-
-        // Draw each segment of the snake
-        for (int i = 0; i < snake.getSegments().size(); i++) {
-            Segment s = snake.getSegments().get(i);
-
-            // If heas is enlarged, increase size
-            double radius = (i == 0 && snake.isHeadEnlarged()) ? TILE_SIZE / 1.2 : TILE_SIZE / 2.0;
-
-            Circle c = new Circle(radius, Color.PINK);
-            c.setLayoutX(s.getX() * TILE_SIZE + TILE_SIZE / 2.0);
-            c.setLayoutY(s.getY() * TILE_SIZE + TILE_SIZE / 2.0);
-
-            snakeNodes.add(c);
+    private void saveSnapshot() {
+        try {
+            GameSnapshot.save(engine, config.getSnapshotFile());
+        } catch (IOException e) {
+            System.err.println("Could not save the snapshot: " + e.getMessage());
         }
-
-        gamePane.getChildren().addAll(snakeNodes);
-
-        // Update display score and length
-        scoreText.setText("Score: " + score.getScore());
-        lengthText.setText("Length: " + snake.getLength());
     }
 
     /**
-     * Spawns a new food item at a random location.
+     * Replaces the running game with the one in the snapshot file
      */
-    private void spawnFood() {
-        food = new Food(gamePane);
+    private void loadSnapshot() {
+        try {
+            GameSnapshot.load(engine, config.getSnapshotFile());
+        } catch (IOException e) {
+            System.err.println("Could not load the snapshot: " + e.getMessage());
+            return;
+        }
+        gamePane.setRotate(engine.getState().getRotation());
+        int blink = engine.getState().getBlink();
+        onBlink(blink >= 0 ? blink : SimulationEngine.BLINKS);
+        render(0);
+        if (engine.getState().isGameOver()) gameOver();
     }
 
-
     /**
-     * Checks if the snake's head has collided with the food.
-     * If a collision is detected:
-     * - redApple: no effect.
-     * - blueApple: increases snake speed for 3 seconds, then resets.
-     * - greenApple: enlarges snake head for 4 seconds, then resets.
-     * After any effect, the snake grows, score increases,
-     * and a new food item is spawned. If the score crosses a multiple of 10,
-     * Insane Mode is triggered.
+     * Renders the snake, score and length on screen.
+     * The frame time and metrics text is refreshed every 30 frames while it is shown.
+     * @param alpha how far the game is into the next step, used to move the snake smoothly
      */
-    private void checkFoodCollision() {
-        Segment head = snake.getSegments().get(0);
-        double headX = head.getX() * TILE_SIZE;
-        double headY = head.getY() * TILE_SIZE;
-
-        double foodX = food.getAppleImage().getLayoutX();
-        double foodY = food.getAppleImage().getLayoutY();
-
-        double distance = Math.hypot(headX - foodX, headY - foodY);
-        if (distance < TILE_SIZE) {
-            // Apply effect based on apple type
-            switch (food.getCurrentType()) {
-                case redApple -> { //No effect
-                }
-                case blueApple -> {
-                    snake.setSpeed(75);
-                    restartGameLoop();
-
-                    if (resetSpeedTimer != null) resetSpeedTimer.stop();
-                    resetSpeedTimer = new Timeline(new KeyFrame(Duration.seconds(5), e -> {
-                        snake.setSpeed(150);
-                        restartGameLoop();
-                    }));
-                    resetSpeedTimer.play();
-                }
-                case greenApple -> {
-                    snake.enlargeHead();
-
-                    if (resetHeadTimer != null) resetHeadTimer.stop();
-                    resetHeadTimer = new Timeline(new KeyFrame(Duration.seconds(5), e -> {
-                        snake.resetHeadSize();
-                    }));
-                    resetHeadTimer.play();
-                }
-            }
-
-            snake.grow();
-            score.updateScore(1);
-            gamePane.getChildren().remove(food.getAppleImage());
-            spawnFood();
+    private void render(double alpha) {
+        renderer.render(engine.getState(), alpha);
 
-            if (score.getScore() >= nextInsaneTrigger) {
-                triggerInsaneMode();
-                // Next trigger at +10 score
-                nextInsaneTrigger += 10;
-            }
+        if (frameTimeText.isVisible() && frames++ % 30 == 0) {
+            frameTimeText.setText(gameLoop.getFrameTimes().displayFrameTime()
+                    + System.lineSeparator() + metrics.displayOverlay());
         }
     }
 
     /**
      * Triggers Insane Mode:
-     * - Rotates the gamePane randomly (90°, 180°, 270°)
-     * - Blinks background in random colors for 2 seconds
+     * - Rotates the gamePane to the rotation chosen by the engine (90°, 180°, 270°)
+     * - The engine then blinks the background, see onBlink()
      */
-    private void triggerInsaneMode() {
-        Random random = new Random();
-        int rotation = (random.nextInt(3) + 1) * 90;
-        gamePane.setRotate((gamePane.getRotate() + rotation) % 360);
-
-        Timeline blinkTimeline = new Timeline();
-        for (int i = 0; i < 10; i++) {
-            blinkTimeline.getKeyFrames().add(new KeyFrame(Duration.millis(i * 200), e -> {
-                Color color = Color.color(Math.random(), Math.random(), Math.random());
-                gamePane.setStyle("-fx-background-color: rgb(" + (int)(color.getRed()*255) + "," + (int)(color.getGreen()*255) + "," + (int)(color.getBlue()*255) + ");");
-            }));
-        }
-        // Reset background color after blinking
-        blinkTimeline.getKeyFrames().add(new KeyFrame(Duration.millis(2000), e -> {
-            gamePane.setStyle("");
-        }));
-        blinkTimeline.play();
+    @Override
+    public void onInsaneMode(int rotation) {
+        gamePane.setRotate(rotation);
     }
 
     /**
-     * Restarts the game loop with the current snake speed.
-     * Necessary when the snake speed changes temporarily (e.g., after eating blue food).
+     * Blinks the background in random colors for 2 seconds of game time.
+     * The colors are made once on the first blink, a blink only picks one.
+     * The pick depends only on the seed of the game and the simulated time of
+     * the blink, so a restarted game, a replay and a loaded snapshot show the
+     * same colors as the game did when it was played.
      */
-    private void restartGameLoop() {
-        // Stop the current game loop before restarting
-        if (timeline != null) {
-            timeline.stop();
+    @Override
+    public void onBlink(int blink) {
+        if (blinkBackgrounds == null) {
+            Random random = new Random(BLINK_PALETTE_SEED);
+            blinkBackgrounds = new Background[BLINK_COLORS];
+            for (int i = 0; i < BLINK_COLORS; i++) {
+                Color color = Color.color(random.nextDouble(), random.nextDouble(), random.nextDouble());
+                blinkBackgrounds[i] = new Background(new BackgroundFill(color, null, null));
+            }
         }
+        GameState state = engine.getState();
+        gamePane.setBackground(blink < SimulationEngine.BLINKS
+                ? blinkBackgrounds[blinkColor(state.getSeed(), state.getNextBlinkAt())] : null);
+    }
 
-        // Create a new game loop with the updated speed
-        timeline = new Timeline(new KeyFrame(Duration.millis(snake.getSpeed()), e -> {
-            snake.move();
-            checkFoodCollision();
-            if (snake.checkEdgeCollision(WIDTH, HEIGHT) || snake.checkCollision()) {
-                gameOver();
-                return;
-            }
-            render();
-        }));
+    /**
+     * Picks the color of a blink without drawing from the game's random
+     * generator, which would move the food of every replay recorded before
+     * @param seed the seed of the game
+     * @param nextBlinkAt when the blink ends in simulated ms, different for every blink of a game
+     * @return the index into the blink colors
+     */
+    static int blinkColor(long seed, long nextBlinkAt) {
+        return new SplittableRandom(seed ^ nextBlinkAt * 0x9E3779B97F4A7C15L).nextInt(BLINK_COLORS);
+    }
 
-        // Restart the game loop
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
+    @Override
+    public void onGameOver() {
+        // Written in the background, the best score below may not include this game yet
+        if (stats != null) stats.record(GameRecord.of(engine.getState(), System.currentTimeMillis()));
+        if (replayPlayer == null && config.getRecordFile() != null) {
+            try {
+                engine.getReplay().save(config.getRecordFile());
+            } catch (IOException e) {
+                System.err.println("Could not save the replay: " + e.getMessage());
+            }
+        }
+        gameOver();
     }
 
     /**
      * Stops the game and displays a text
      */
     private void gameOver() {
-        timeline.stop();
-        gameOverText.setText("Game Over! Press any key to restart.");
+        gameLoop.stop();
+        if (replayPlayer != null) {
+            gameOverText.setText("Replay over! Press any key to watch again.");
+        } else if (stats != null) {
+            int best = Math.max(stats.getBestScore(), engine.getState().getScore().getScore());
+            gameOverText.setText("Game Over! Best score: " + best + ". Press any key to restart.");
+        } else {
+            gameOverText.setText("Game Over! Press any key to restart.");
+        }
         gameOverText.setVisible(true);
 
         // Puts the focus on the game pane
@@ -290,39 +389,34 @@ public class Game extends Application {
      * Method to reset the game pane back to the original state
      */
     private void restartGame() {
-        // Reset game state
-        snake.getSegments().clear();
-        snake.getSegments().add(new Segment(5, 5));
-        snake.setDirection(Direction.RIGHT);
-
-        snake.setSpeed(250);
-        snake.resetHeadSize();
-
-        score.resetScore();
-        scoreText.setText("Score: 0");
-        lengthText.setText("Length: 1");
+        // Reset game state, this also spawns new food
+        if (replayPlayer != null) replayPlayer.restart();
+        else engine.reset();
+        render(0);
 
         // Hide game over text
         gameOverText.setVisible(false);
 
-        // Remove existing food
-        gamePane.getChildren().remove(food.getAppleImage());
-
-        // Spawn new food
-        spawnFood();
-
-        // Resets the rotation of the game board
+        // Resets the rotation and the blinking of the game board
         gamePane.setRotate(0);
+        gamePane.setBackground(null);
 
         // Restart game loop
-        startGameLoop();
+        gameLoop.start();
 
         // Re-enable game controls
         setupControls(gamePane.getScene());
     }
 
 
+    @Override
+    public void stop() throws IOException {
+        metrics.stopReporting();
+        if (client != null) client.close();
+        if (stats != null) stats.close();
+    }
+
     public static void main(String[] args) {
-        launch();
+        launch(args);
     }
 }
@@ -0,0 +1,180 @@
+package org.example.snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection to a GameServer that keeps an ArenaMirror of the served arena.
+ * connect() waits for the welcome, after that the socket is non-blocking:
+ * poll() applies whatever frames have arrived and returns right away, so it
+ * can be called once per frame on the FX thread, and steer() sends a turn
+ * as a single byte.
+ */
+public class GameClient implements Closeable
+{
+    private static final int RECEIVE_BUFFER = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ByteBuffer turn = ByteBuffer.allocate(1);
+    private ByteBuffer in = ByteBuffer.allocate(RECEIVE_BUFFER); // In write mode between polls
+    private final ArenaMirror mirror;
+    private final int slot;
+    private final double tickMillis;
+    private LatencyHistogram latencies; // null when nothing is measured
+
+    private GameClient(SocketChannel channel, ByteBuffer welcome, FoodTable foods) throws IOException
+    {
+        this.channel = channel;
+        this.slot = welcome.getInt();
+        int width = welcome.getInt();
+        int height = welcome.getInt();
+        int snakeCount = welcome.getInt();
+        int foodCount = welcome.getInt();
+        this.tickMillis = welcome.getDouble();
+        if (width < 1 || height < 1 || width > Snake.MAX_BOARD_SIZE || height > Snake.MAX_BOARD_SIZE
+                || slot < 0 || slot >= snakeCount || foodCount < 0) {
+            throw new IOException("Invalid welcome");
+        }
+        this.mirror = new ArenaMirror(width, height, snakeCount, foodCount, foods);
+    }
+
+    /**
+     * Connects to a server and waits until it assigned a snake
+     * @param address the address of the server
+     * @return the client
+     * @throws IOException if the server cannot be reached or has no free snake
+     */
+    public static GameClient connect(InetSocketAddress address) throws IOException
+    {
+        return connect(address, FoodTable.DEFAULT);
+    }
+
+    /**
+     * Connects to a server with its own food types and waits until it assigned a snake
+     * @param address the address of the server
+     * @param foods the food table the server was started with
+     * @return the client
+     * @throws IOException if the server cannot be reached or has no free snake
+     */
+    public static GameClient connect(InetSocketAddress address, FoodTable foods) throws IOException
+    {
+        if (address.isUnresolved()) address = new InetSocketAddress(address.getHostString(), address.getPort());
+        SocketChannel channel = SocketChannel.open(address);
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1);
+            readFully(channel, header);
+            int length = header.getInt(0);
+            if (header.get(Integer.BYTES) != NetProtocol.WELCOME || length < 1 || length > NetProtocol.MAX_FRAME) {
+                throw new IOException("Expected a welcome");
+            }
+            ByteBuffer welcome = ByteBuffer.allocate(length - 1);
+            readFully(channel, welcome);
+            GameClient client = new GameClient(channel, welcome.flip(), foods);
+            channel.configureBlocking(false);
+            return client;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Server closed the connection");
+        }
+    }
+
+    /**
+     * Applies all frames that have arrived, without waiting for more
+     * @return true if the mirror changed
+     * @throws IOException if the connection is lost or a frame is corrupt
+     */
+    public boolean poll() throws IOException
+    {
+        boolean changed = false;
+        while (true) {
+            if (!in.hasRemaining()) {
+                // A frame larger than the buffer, e.g. a keyframe of a crowded board
+                in = NetProtocol.ensureRemaining(in, in.capacity());
+            }
+            int read = channel.read(in);
+            if (read < 0) throw new IOException("Server closed the connection");
+            if (read == 0) break;
+            in.flip();
+            ByteBuffer frame;
+            while ((frame = NetProtocol.nextFrame(in)) != null) {
+                if (mirror.apply(frame)) {
+                    changed = true;
+                    if (latencies != null && frame.get(0) == NetProtocol.DELTA) {
+                        latencies.record(System.nanoTime() - mirror.getSentNanos());
+                    }
+                }
+            }
+            in.compact();
+        }
+        return changed;
+    }
+
+    /**
+     * Sends a turn for the own snake, the server applies it with the snake's next move
+     * @param direction the direction to turn to
+     * @return false if the socket could not take the byte right now, the turn is dropped then
+     * @throws IOException if the connection is lost
+     */
+    public boolean steer(Direction direction) throws IOException
+    {
+        turn.clear();
+        turn.put((byte) direction.ordinal()).flip();
+        return channel.write(turn) == 1;
+    }
+
+    /**
+     * Records the time from sending to applying of every delta from now on,
+     * only meaningful when server and client run on the same machine
+     * @param latencies the histogram, or null to stop measuring
+     */
+    public void setLatencies(LatencyHistogram latencies)
+    {
+        this.latencies = latencies;
+    }
+
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    //region Getter
+
+    public ArenaMirror getMirror() {
+        return mirror;
+    }
+
+    /**
+     * Returns the snake this client plays
+     * @return the index of the snake in the mirror
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Returns how often the server ticks
+     * @return the tick length in ms
+     */
+    public double getTickMillis() {
+        return tickMillis;
+    }
+    //endregion
+}
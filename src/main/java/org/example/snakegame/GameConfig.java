@@ -0,0 +1,327 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings of the game: board and tile size, visible part of the board,
+ * speed profile, food and renderer.
+ * Values are read from a properties file (given with --config=file, otherwise
+ * snake.properties in the working directory if it exists) and can be
+ * overridden on the command line with the same keys, e.g. --width=1000.
+ * Keys: width, height, tile, viewportWidth, viewportHeight, renderer,
+ * speed (classic, relaxed or fast), normalSpeed, boostSpeed, restartSpeed,
+ * foodTable (file with the food types and their effects, see FoodTable; the
+ * classic apples if not given),
+ * seed (random if not given), record (file to save the replay of every finished game to),
+ * replay (replay file to watch instead of playing), replaySpeed (1 is real time),
+ * metrics (file the metrics are appended to), metricsInterval (in ms),
+ * snapshot (file for saving and loading a game, snake.snapshot by default),
+ * autopilot (true to let the Autopilot play), connect (host:port of a
+ * GameServer to play on instead of alone), stats (log of all finished
+ * games, snake.stats by default, none to keep no statistics) and
+ * exitAfterFirstFrame (true to print the startup time and quit, see StartupBenchmark).
+ */
+public class GameConfig
+{
+    static final int TILE_SIZE = 20; // Default size of a cell in pixels
+    private static final Path DEFAULT_FILE = Path.of("snake.properties");
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int viewportWidth;
+    private final int viewportHeight;
+    private final String renderer;
+    private final SpeedProfile speeds;
+    private final FoodTable foods;
+    private final long seed;
+    private final Path recordFile;
+    private final Path replayFile;
+    private final double replaySpeed;
+    private final Path metricsFile;
+    private final int metricsInterval;
+    private final Path snapshotFile;
+    private final boolean autopilot;
+    private final InetSocketAddress server;
+    private final Path statsFile;
+    private final boolean exitAfterFirstFrame;
+    private final Map<String, String> values; // Kept to derive changed copies
+
+    private GameConfig(Map<String, String> values, FoodTable foods)
+    {
+        this.values = values;
+        this.foods = foods;
+        width = intValue(values, "width", SimulationEngine.WIDTH);
+        height = intValue(values, "height", SimulationEngine.HEIGHT);
+        tileSize = intValue(values, "tile", TILE_SIZE);
+        // Boards that do not fit are shown through a viewport that follows the head
+        viewportWidth = Math.min(width, intValue(values, "viewportWidth", 40));
+        viewportHeight = Math.min(height, intValue(values, "viewportHeight", 30));
+        renderer = values.getOrDefault("renderer", "node");
+
+        SpeedProfile profile = SpeedProfile.named(values.getOrDefault("speed", "classic"));
+        speeds = new SpeedProfile(
+                doubleValue(values, "normalSpeed", profile.getNormalSpeed()),
+                doubleValue(values, "boostSpeed", profile.getBoostSpeed()),
+                doubleValue(values, "restartSpeed", profile.getRestartSpeed()));
+        seed = values.containsKey("seed") ? longValue(values, "seed") : System.nanoTime();
+        recordFile = values.containsKey("record") ? Path.of(values.get("record")) : null;
+        replayFile = values.containsKey("replay") ? Path.of(values.get("replay")) : null;
+        replaySpeed = doubleValue(values, "replaySpeed", 1);
+        metricsFile = values.containsKey("metrics") ? Path.of(values.get("metrics")) : null;
+        metricsInterval = intValue(values, "metricsInterval", 5000);
+        snapshotFile = Path.of(values.getOrDefault("snapshot", "snake.snapshot"));
+        autopilot = Boolean.parseBoolean(values.getOrDefault("autopilot", "false"));
+        server = values.containsKey("connect") ? address(values.get("connect")) : null;
+        String stats = values.getOrDefault("stats", "snake.stats");
+        statsFile = stats.equals("none") ? null : Path.of(stats);
+        exitAfterFirstFrame = Boolean.parseBoolean(values.getOrDefault("exitAfterFirstFrame", "false"));
+
+        if (width < 1 || height < 1 || width > Snake.MAX_BOARD_SIZE || height > Snake.MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException("Board must be between 1x1 and "
+                    + Snake.MAX_BOARD_SIZE + "x" + Snake.MAX_BOARD_SIZE + " cells");
+        }
+        if (tileSize < 1 || viewportWidth < 1 || viewportHeight < 1) {
+            throw new IllegalArgumentException("Tile and viewport sizes must be positive");
+        }
+        if (replaySpeed <= 0 || metricsInterval <= 0) {
+            throw new IllegalArgumentException("Replay speed and metrics interval must be positive");
+        }
+    }
+
+    /**
+     * Reads the configuration file and applies the command line arguments on top of it
+     * @param arguments the named command line arguments, without the leading --
+     * @return the configuration
+     * @throws IOException if the configuration file cannot be read
+     */
+    public static GameConfig load(Map<String, String> arguments) throws IOException
+    {
+        Map<String, String> values = new HashMap<>();
+        Path file = arguments.containsKey("config") ? Path.of(arguments.get("config")) : DEFAULT_FILE;
+        if (arguments.containsKey("config") || Files.exists(file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            for (String key : properties.stringPropertyNames()) {
+                values.put(key, properties.getProperty(key).trim());
+            }
+        }
+        values.putAll(arguments);
+        FoodTable foods = values.containsKey("foodTable")
+                ? FoodTable.load(Path.of(values.get("foodTable"))) : FoodTable.DEFAULT;
+        return new GameConfig(values, foods);
+    }
+
+    /**
+     * Returns the default configuration, a 30x30 board with the classic speeds
+     * @return the configuration
+     */
+    public static GameConfig defaults()
+    {
+        return new GameConfig(Map.of(), FoodTable.DEFAULT);
+    }
+
+    /**
+     * Returns a copy of this configuration for a board of another size,
+     * e.g. the board of a replay
+     * @param width board width in cells
+     * @param height board height in cells
+     * @return the changed configuration
+     */
+    public GameConfig withBoard(int width, int height)
+    {
+        Map<String, String> changed = new HashMap<>(values);
+        changed.put("width", String.valueOf(width));
+        changed.put("height", String.valueOf(height));
+        changed.put("seed", String.valueOf(seed));
+        return new GameConfig(changed, foods);
+    }
+
+    private static InetSocketAddress address(String value)
+    {
+        int colon = value.lastIndexOf(':');
+        if (colon < 1) throw new IllegalArgumentException("Expected host:port for connect: " + value);
+        try {
+            return InetSocketAddress.createUnresolved(value.substring(0, colon), Integer.parseInt(value.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid address for connect: " + value, e);
+        }
+    }
+
+    private static int intValue(Map<String, String> values, String key, int defaultValue)
+    {
+        String value = values.get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+
+    private static long longValue(Map<String, String> values, String key)
+    {
+        String value = values.get(key);
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+
+    private static double doubleValue(Map<String, String> values, String key, double defaultValue)
+    {
+        String value = values.get(key);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+
+    //region Getter
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the number of columns that are visible at once
+     * @return the viewport width in cells, at most the board width
+     */
+    public int getViewportWidth() {
+        return viewportWidth;
+    }
+
+    /**
+     * Returns the number of rows that are visible at once
+     * @return the viewport height in cells, at most the board height
+     */
+    public int getViewportHeight() {
+        return viewportHeight;
+    }
+
+    public String getRenderer() {
+        return renderer;
+    }
+
+    public SpeedProfile getSpeeds() {
+        return speeds;
+    }
+
+    /**
+     * Returns the food types and their effects
+     * @return the table read from the food file, or the default table
+     */
+    public FoodTable getFoodTable() {
+        return foods;
+    }
+
+    /**
+     * Returns the seed of the first game, either configured or picked at start
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns where replays of finished games are saved
+     * @return the file, or null if games are not saved
+     */
+    public Path getRecordFile() {
+        return recordFile;
+    }
+
+    /**
+     * Returns the replay to watch instead of playing
+     * @return the replay file, or null to play normally
+     */
+    public Path getReplayFile() {
+        return replayFile;
+    }
+
+    /**
+     * Returns how fast a replay is shown
+     * @return the factor, 1 is real time
+     */
+    public double getReplaySpeed() {
+        return replaySpeed;
+    }
+
+    /**
+     * Returns the file the metrics are appended to every metrics interval
+     * @return the file, or null if the metrics are not written
+     */
+    public Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Returns how often the allocation rate is sampled and the metrics are written
+     * @return the interval in ms
+     */
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    /**
+     * Returns the file a game is saved to and loaded from
+     * @return the snapshot file
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Returns whether the Autopilot plays instead of the keyboard
+     * @return true for a demo game
+     */
+    public boolean isAutopilot() {
+        return autopilot;
+    }
+
+    /**
+     * Returns the GameServer to play on
+     * @return the address, not resolved yet, or null to play alone
+     */
+    public InetSocketAddress getServer() {
+        return server;
+    }
+
+    /**
+     * Returns the log every finished game is recorded in, see StatsStore
+     * @return the file, or null if no statistics are kept
+     */
+    public Path getStatsFile() {
+        return statsFile;
+    }
+
+    /**
+     * Returns whether the game quits once the first frame is shown, e.g. for
+     * measuring the startup time or as the training run of a CDS archive
+     * @return true to quit after the first frame
+     */
+    public boolean isExitAfterFirstFrame() {
+        return exitAfterFirstFrame;
+    }
+    //endregion
+}
@@ -0,0 +1,144 @@
+package org.example.snakegame;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fixed-timestep game loop driven by the JavaFX pulse.
+ * The time since the last frame is added to an accumulator, and the engine
+ * is stepped once for every full step length in it. The step length is the
+ * current speed of the snake, so a speed change takes effect on the next step
+ * without rebuilding anything. What is left in the accumulator is passed to
+ * the renderer as a fraction of a step, to draw the snake between two ticks.
+ * A time scale speeds the game up or slows it down, e.g. to watch a replay.
+ */
+public class GameLoop extends AnimationTimer
+{
+    /**
+     * Draws one frame
+     */
+    @FunctionalInterface
+    public interface FrameHandler
+    {
+        /**
+         * @param alpha how far the game is into the next step, from 0 to 1
+         */
+        void render(double alpha);
+    }
+
+    // After a long stall (e.g. a dragged window) the loop does not try to catch up
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    // A frame later than this missed at least one vsync at 60 Hz
+    private static final long LATE_FRAME_NANOS = 33_333_333;
+
+    private final SimulationEngine engine;
+    private final BooleanSupplier stepper;
+    private final FrameHandler frameHandler;
+    private final FrameTimeCounter frameTimes = new FrameTimeCounter(120);
+    private long lastFrame = -1;
+    private double accumulator; // In ms
+    private double timeScale = 1;
+    private Metrics metrics; // null when nothing is measured
+
+    /**
+     * Creates a loop for the given engine
+     * @param engine the engine to step
+     * @param frameHandler called once per frame after the steps
+     */
+    public GameLoop(SimulationEngine engine, FrameHandler frameHandler)
+    {
+        this(engine, engine::step, frameHandler);
+    }
+
+    /**
+     * Creates a loop that advances the engine with the given step function,
+     * e.g. ReplayPlayer.step() to apply recorded turns
+     * @param engine the engine whose state and speed are used
+     * @param stepper advances the engine by one tick, returns false when the game is over
+     * @param frameHandler called once per frame after the steps
+     */
+    public GameLoop(SimulationEngine engine, BooleanSupplier stepper, FrameHandler frameHandler)
+    {
+        this.engine = engine;
+        this.stepper = stepper;
+        this.frameHandler = frameHandler;
+    }
+
+    /**
+     * Starts the loop with an empty accumulator
+     */
+    @Override
+    public void start()
+    {
+        lastFrame = -1;
+        accumulator = 0;
+        super.start();
+    }
+
+    @Override
+    public void handle(long now)
+    {
+        if (lastFrame < 0) {
+            lastFrame = now;
+            return;
+        }
+        long frameStart = System.nanoTime();
+        boolean late = now - lastFrame > LATE_FRAME_NANOS;
+        accumulator += (now - lastFrame) / 1_000_000.0 * timeScale;
+        lastFrame = now;
+        boolean dropped = false;
+
+        int steps = 0;
+        int maxSteps = MAX_STEPS_PER_FRAME * (int) Math.ceil(timeScale);
+        double stepLength = engine.getState().getSnake().getSpeed();
+        while (accumulator >= stepLength) {
+            accumulator -= stepLength;
+            if (!stepper.getAsBoolean()) {
+                return;
+            }
+            if (++steps == maxSteps) {
+                dropped = accumulator >= stepLength;
+                accumulator = 0;
+                break;
+            }
+            stepLength = engine.getState().getSnake().getSpeed();
+        }
+
+        long renderStart = System.nanoTime();
+        frameHandler.render(Math.min(accumulator / stepLength, 1.0));
+        long frameEnd = System.nanoTime();
+        frameTimes.record(frameEnd - frameStart);
+        if (metrics != null) {
+            metrics.recordRender(frameEnd - renderStart);
+            metrics.recordFrame(frameEnd - frameStart, late, dropped);
+        }
+    }
+
+    /**
+     * Sets how fast simulated time passes compared to real time
+     * @param timeScale the factor, 1 is real time
+     */
+    public void setTimeScale(double timeScale)
+    {
+        this.timeScale = timeScale;
+    }
+
+    /**
+     * Sets where render and frame times are recorded
+     * @param metrics the metrics, or null to stop measuring
+     */
+    public void setMetrics(Metrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the times spent per frame on stepping and rendering
+     * @return the frame time counter
+     */
+    public FrameTimeCounter getFrameTimes()
+    {
+        return frameTimes;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.snakegame;
+
+import java.util.Random;
+
+/**
+ * Random with a readable state, so a snapshot can continue a game with exactly
+ * the numbers it would have drawn. It runs the same 48-bit linear congruential
+ * generator as java.util.Random, so a seed gives the same sequence in both.
+ * Not thread-safe, every engine has its own.
+ */
+public class GameRandom extends Random
+{
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Creates a generator
+     * @param seed the seed, as for java.util.Random
+     */
+    public GameRandom(long seed)
+    {
+        super(seed); // Calls setSeed
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        state = (seed ^ MULTIPLIER) & MASK;
+        super.setSeed(seed);
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Returns the internal state, which setState() continues from
+     * @return the 48-bit state
+     */
+    public long getState()
+    {
+        return state;
+    }
+
+    /**
+     * Continues from a state returned by getState()
+     * @param state the 48-bit state
+     */
+    public void setState(long state)
+    {
+        this.state = state & MASK;
+    }
+}
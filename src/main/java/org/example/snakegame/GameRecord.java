@@ -0,0 +1,132 @@
+package org.example.snakegame;
+
+import java.time.Instant;
+
+/**
+ * The outcome of one finished game as kept by the StatsStore:
+ * when it ended, its seed, score, length, duration, the food eaten per type
+ * and how often insane mode was triggered.
+ */
+public final class GameRecord
+{
+    private final long finishedAt;
+    private final long seed;
+    private final int score;
+    private final int length;
+    private final long ticks;
+    private final long durationMillis;
+    private final int insaneCount;
+    private final int[] eaten;
+
+    /**
+     * Creates a record
+     * @param finishedAt when the game ended, in ms since the epoch
+     * @param seed the seed of the game
+     * @param score the final score
+     * @param length the final length of the snake
+     * @param ticks the number of steps
+     * @param durationMillis the simulated play time
+     * @param insaneCount how often insane mode was triggered
+     * @param eaten the number of food items eaten, indexed by FoodType index
+     */
+    GameRecord(long finishedAt, long seed, int score, int length, long ticks, long durationMillis,
+               int insaneCount, int[] eaten)
+    {
+        this.finishedAt = finishedAt;
+        this.seed = seed;
+        this.score = score;
+        this.length = length;
+        this.ticks = ticks;
+        this.durationMillis = durationMillis;
+        this.insaneCount = insaneCount;
+        this.eaten = eaten;
+    }
+
+    /**
+     * Takes the record of a game, meant to be called when it is over
+     * @param state the state of the game
+     * @param finishedAt when the game ended, in ms since the epoch
+     * @return the record
+     */
+    public static GameRecord of(GameState state, long finishedAt)
+    {
+        int[] eaten = new int[state.getEatenTypes()];
+        for (int i = 0; i < eaten.length; i++) {
+            eaten[i] = state.getEaten(i);
+        }
+        return new GameRecord(finishedAt, state.getSeed(), state.getScore().getScore(),
+                state.getSnake().getLength(), state.getTick(), state.getElapsedMillis(),
+                state.getInsaneCount(), eaten);
+    }
+
+    //region Getter
+
+    /**
+     * Returns when the game ended
+     * @return ms since the epoch
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns how long the game lasted in simulated time, which is play time for a game at normal speed
+     * @return the duration in ms
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getInsaneCount() {
+        return insaneCount;
+    }
+
+    /**
+     * Returns how many food items of a type were eaten
+     * @param type the index of the food type
+     * @return the number eaten
+     */
+    public int getEaten(int type) {
+        return type < eaten.length ? eaten[type] : 0;
+    }
+
+    /**
+     * Returns how many food items of a type were eaten
+     * @param type the food type
+     * @return the number eaten
+     */
+    public int getEaten(FoodType type) {
+        return getEaten(type.getIndex());
+    }
+    //endregion
+
+    @Override
+    public String toString()
+    {
+        StringBuilder out = new StringBuilder(96);
+        out.append(Instant.ofEpochMilli(finishedAt)).append(" score=").append(score).append(" length=").append(length)
+                .append(" time=").append(durationMillis / 1000).append("s insane=").append(insaneCount);
+        out.append(" eaten=");
+        for (int i = 0; i < eaten.length; i++) {
+            if (i > 0) out.append(',');
+            out.append(eaten[i]);
+        }
+        return out.append(" seed=").append(seed).toString();
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.snakegame;
+
+import javafx.scene.layout.Pane;
+
+/**
+ * Draws a GameState on screen.
+ * Implementations add their nodes to the game pane when they are created
+ * and work out themselves what changed since the last frame.
+ */
+public interface GameRenderer
+{
+    /**
+     * Renders the snake, food, score and length on screen.
+     * The head and the end of the tail are drawn between their cells of the
+     * last and the current tick, the rest of the body sits on its cells.
+     * @param state the state to render
+     * @param alpha how far the game is into the next step, from 0 to 1
+     */
+    void render(GameState state, double alpha);
+
+    /**
+     * Creates the renderer selected by name
+     * @param config the configuration, its renderer is "node" for one node per segment
+     *               or "canvas" for a single canvas
+     * @param gamePane the pane to draw on
+     * @return the renderer
+     */
+    static GameRenderer create(GameConfig config, Pane gamePane)
+    {
+        return switch (config.getRenderer()) {
+            case "node" -> new NodeRenderer(gamePane, config);
+            case "canvas" -> new CanvasRenderer(gamePane, config);
+            default -> throw new IllegalArgumentException("Unknown renderer: " + config.getRenderer());
+        };
+    }
+}
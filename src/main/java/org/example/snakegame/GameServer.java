@@ -0,0 +1,575 @@
+package org.example.snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves one Arena to network clients and owns its authoritative tick.
+ * Every snake of the arena is a slot: a client that connects takes a free
+ * slot, all others are played by a GreedyArenaPolicy, so players and bots
+ * share the board. A round ends when no snake is left, or when all snakes of
+ * the players died; the next round is a new arena.
+ * Everything runs on one thread around a Selector: accepting, reading turns
+ * and writing frames never block, and the arena is ticked at its tick length
+ * in between. Turns that arrive between two ticks go into the slot's
+ * InputQueue and are taken one per move, like key presses in the single game.
+ * After each tick one delta (see NetProtocol) is encoded and copied to every
+ * client, so the cost of a tick grows with the number of changes and clients,
+ * not with the length of the snakes. A client whose send buffer is full gets
+ * no more deltas and is sent a keyframe once it caught up, so a slow client
+ * cannot hold up the tick or make the server buffer without bound.
+ * Usage: GameServer [--port=N] [--snakes=N] [--food=N] [--seed=N] plus the
+ * board and speed keys of GameConfig, e.g. --width=200 --height=200
+ */
+public class GameServer implements Closeable
+{
+    private static final int SEND_BUFFER = 64 * 1024; // Per client, a full buffer means the client is behind
+    private static final int MAX_LATE_TICKS = 5; // Further behind, the server skips ticks instead of catching up
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final int snakeCount;
+    private final int foodCount;
+    private final SpeedProfile speeds;
+    private final FoodTable foods;
+    private final GameRandom random;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    private Arena arena;
+    private final Connection[] owners; // The client playing each snake, null for a bot
+    private final InputQueue[] inputs;
+    private final ArenaPolicy bot = new GreedyArenaPolicy();
+    private final ArenaPolicy player;
+    private final List<Connection> connections = new ArrayList<>();
+    private int players; // Connections whose snake is still alive this round
+
+    // What the clients were told so far, to find the changes of a tick
+    private final long[] sentMoves;
+    private final int[] sentLengths;
+    private final boolean[] sentAlive;
+    private final boolean[] sentEnlarged;
+    private final FoodType[] sentFoodTypes;
+    private final int[] sentFoodCells;
+
+    private ByteBuffer delta;
+    private ByteBuffer keyframe;
+    private long keyframeTick = -1; // Tick the keyframe buffer was encoded at
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private volatile boolean running = true;
+
+    /**
+     * Creates a server and binds it to a port, the arena starts when run() is called
+     * @param address the address to listen on, port 0 picks a free port
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snakeCount the number of snakes, which is also the most clients at once
+     * @param foodCount the number of food items on the board at once
+     * @param speeds the step lengths of the snakes
+     * @param seed seed of the first round, the seeds of later rounds are derived from it
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(InetSocketAddress address, int width, int height, int snakeCount, int foodCount,
+                      SpeedProfile speeds, long seed) throws IOException
+    {
+        this(address, width, height, snakeCount, foodCount, speeds, FoodTable.DEFAULT, seed);
+    }
+
+    /**
+     * Creates a server with its own food types and binds it to a port, the arena starts when run() is called.
+     * The clients must use the same food table, only the index of a type is sent.
+     * @param address the address to listen on, port 0 picks a free port
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snakeCount the number of snakes, which is also the most clients at once
+     * @param foodCount the number of food items on the board at once
+     * @param speeds the step lengths of the snakes
+     * @param foods the food types and their effects
+     * @param seed seed of the first round, the seeds of later rounds are derived from it
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(InetSocketAddress address, int width, int height, int snakeCount, int foodCount,
+                      SpeedProfile speeds, FoodTable foods, long seed) throws IOException
+    {
+        this.width = width;
+        this.height = height;
+        this.snakeCount = snakeCount;
+        this.foodCount = foodCount;
+        this.speeds = speeds;
+        this.foods = foods;
+        this.random = new GameRandom(seed);
+        this.owners = new Connection[snakeCount];
+        this.inputs = new InputQueue[snakeCount];
+        for (int i = 0; i < snakeCount; i++) {
+            inputs[i] = new InputQueue(Direction.RIGHT);
+        }
+        // Only take a turn on the ticks the snake moves, the arena drops the others
+        this.player = (arena, snake) -> arena.willMove(snake) ? inputs[snake].poll() : null;
+        this.sentMoves = new long[snakeCount];
+        this.sentLengths = new int[snakeCount];
+        this.sentAlive = new boolean[snakeCount];
+        this.sentEnlarged = new boolean[snakeCount];
+        this.sentFoodTypes = new FoodType[foodCount];
+        this.sentFoodCells = new int[foodCount];
+        this.delta = ByteBuffer.allocate(64 + snakeCount * 11 + foodCount * 11);
+        this.keyframe = ByteBuffer.allocate(SEND_BUFFER);
+        newRound(seed);
+
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port the server listens on
+     * @return the port, also when it was picked by the system
+     */
+    public int getPort()
+    {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the time per tick spent on ticking, encoding and sending, recorded on the server thread
+     * @return the histogram, other threads may read slightly stale values
+     */
+    public LatencyHistogram getTickTimes()
+    {
+        return tickTimes;
+    }
+
+    /**
+     * Returns the number of connected clients
+     * @return the number of clients, possibly a moment old when called from another thread
+     */
+    public int getClientCount()
+    {
+        return connections.size();
+    }
+
+    /**
+     * Starts run() on a new daemon thread
+     * @return the thread
+     */
+    public Thread start()
+    {
+        Thread thread = new Thread(this::runUnchecked, "game-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void runUnchecked()
+    {
+        try {
+            run();
+        } catch (IOException e) {
+            System.err.println("Game server stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serves clients and ticks the arena until close() is called
+     * @throws IOException if the selector fails
+     */
+    public void run() throws IOException
+    {
+        long tickNanos = (long) (arena.getTickMillis() * 1_000_000);
+        long nextTick = System.nanoTime() + tickNanos;
+        while (running) {
+            long wait = nextTick - System.nanoTime();
+            if (wait >= 1_000_000) {
+                selector.select(wait / 1_000_000);
+            } else {
+                selector.selectNow();
+            }
+            handleKeys();
+
+            long now = System.nanoTime();
+            if (now >= nextTick) {
+                tick();
+                tickTimes.record(System.nanoTime() - now);
+                nextTick += tickNanos;
+                if (now - nextTick > MAX_LATE_TICKS * tickNanos) nextTick = now + tickNanos;
+            }
+        }
+        for (Connection connection : new ArrayList<>(connections)) {
+            disconnect(connection);
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    /**
+     * Stops the server, the thread in run() closes all connections and returns
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void handleKeys() throws IOException
+    {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) continue;
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) read(connection);
+                if (key.isValid() && key.isWritable()) flush(connection);
+            } catch (IOException e) {
+                disconnect(connection);
+            }
+        }
+    }
+
+    /**
+     * Accepts a client and gives it a free snake, preferring one that is still alive.
+     * The client gets a welcome now and a keyframe with the next tick.
+     */
+    private void accept() throws IOException
+    {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        int slot = -1;
+        for (int i = 0; i < snakeCount; i++) {
+            if (owners[i] != null) continue;
+            if (arena.isAlive(i)) {
+                slot = i;
+                break;
+            }
+            if (slot < 0) slot = i;
+        }
+        if (slot < 0) {
+            channel.close(); // Every snake has a player
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel, slot);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+        owners[slot] = connection;
+        arena.setPolicy(slot, player);
+        inputs[slot].clear(arena.getSnake(slot).getDirection());
+        if (arena.isAlive(slot)) players++;
+
+        connection.out.putInt(1 + 5 * Integer.BYTES + Double.BYTES).put(NetProtocol.WELCOME);
+        connection.out.putInt(slot).putInt(width).putInt(height).putInt(snakeCount).putInt(foodCount);
+        connection.out.putDouble(arena.getTickMillis());
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    /**
+     * Reads the turns a client sent and queues them for its snake
+     */
+    private void read(Connection connection) throws IOException
+    {
+        ByteBuffer in = connection.in;
+        int read;
+        while ((read = connection.channel.read(in)) > 0) {
+            in.flip();
+            while (in.hasRemaining()) {
+                int direction = in.get();
+                if (direction < 0 || direction >= DIRECTIONS.length) throw new IOException("Invalid turn");
+                inputs[connection.slot].offer(DIRECTIONS[direction]);
+            }
+            in.clear();
+        }
+        if (read < 0) disconnect(connection);
+    }
+
+    /**
+     * Writes as much of the client's send buffer as the socket takes,
+     * and asks to be told when the socket can take the rest
+     */
+    private void flush(Connection connection) throws IOException
+    {
+        ByteBuffer out = connection.out.flip();
+        connection.channel.write(out);
+        out.compact();
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (connection.key.interestOps() != ops) connection.key.interestOps(ops);
+    }
+
+    private void disconnect(Connection connection)
+    {
+        if (!connections.remove(connection)) return;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with a broken connection
+        }
+        if (owners[connection.slot] == connection) {
+            owners[connection.slot] = null;
+            arena.setPolicy(connection.slot, bot);
+            if (arena.isAlive(connection.slot)) players--;
+        }
+    }
+
+    /**
+     * Advances the arena by one tick and sends what changed to every client.
+     * Starts a new round when nobody is left to play.
+     */
+    void tick()
+    {
+        if (arena.getAliveCount() == 0 || (players == 0 && !connections.isEmpty())) {
+            newRound(random.nextLong());
+            for (Connection connection : connections) {
+                connection.needsKeyframe = true;
+            }
+        } else {
+            arena.tick();
+            encodeDelta();
+        }
+
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            ByteBuffer out = connection.out;
+            if (connection.needsKeyframe) {
+                if (out.position() > 0) continue; // Wait until the client read everything else
+                if (keyframeTick != arena.getTick()) encodeKeyframe();
+                connection.out = out = NetProtocol.ensureRemaining(out, keyframe.remaining());
+                out.put(keyframe.duplicate());
+                connection.needsKeyframe = false;
+            } else if (out.remaining() < delta.remaining()) {
+                connection.needsKeyframe = true; // Too far behind, resend everything once it caught up
+                continue;
+            } else {
+                out.put(delta.duplicate());
+            }
+            try {
+                flush(connection);
+            } catch (IOException e) {
+                disconnect(connection);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * Replaces the arena with a fresh one, the players keep their snakes
+     */
+    private void newRound(long seed)
+    {
+        arena = new Arena(width, height, snakeCount, foodCount, speeds, foods, seed);
+        players = 0;
+        for (int i = 0; i < snakeCount; i++) {
+            arena.setPolicy(i, owners[i] != null ? player : bot);
+            inputs[i].clear(arena.getSnake(i).getDirection());
+            if (owners[i] != null) players++;
+        }
+        remember();
+        keyframeTick = -1;
+        delta.clear().flip();
+    }
+
+    /**
+     * Stores the state of all snakes and food as what the clients know
+     */
+    private void remember()
+    {
+        for (int i = 0; i < snakeCount; i++) {
+            Snake snake = arena.getSnake(i);
+            sentMoves[i] = snake.getMoves();
+            sentLengths[i] = snake.getLength();
+            sentAlive[i] = arena.isAlive(i);
+            sentEnlarged[i] = snake.isHeadEnlarged();
+        }
+        for (int i = 0; i < foodCount; i++) {
+            sentFoodTypes[i] = arena.getFoodType(i);
+            sentFoodCells[i] = arena.getFoodY(i) * width + arena.getFoodX(i);
+        }
+    }
+
+    /**
+     * Encodes the changes of the last tick: snakes that moved, grew, died or
+     * changed their head, and food that was eaten or relocated
+     */
+    private void encodeDelta()
+    {
+        ByteBuffer out = delta.clear();
+        out.putInt(0).put(NetProtocol.DELTA).putLong(arena.getTick()).putLong(System.nanoTime());
+
+        int countAt = out.position();
+        out.putInt(0); // Filled in when the changes are counted
+        int changed = 0;
+        for (int i = 0; i < snakeCount; i++) {
+            if (!sentAlive[i]) continue;
+            Snake snake = arena.getSnake(i);
+            int flags = snake.getDirection().ordinal();
+            if (snake.getMoves() != sentMoves[i]) flags |= NetProtocol.MOVED;
+            if (snake.getLength() != sentLengths[i]) flags |= NetProtocol.GREW;
+            if (!arena.isAlive(i)) {
+                flags |= arena.isHeadOn(i) ? NetProtocol.DIED | NetProtocol.HEAD_ON : NetProtocol.DIED;
+                if (owners[i] != null) players--;
+            }
+            if (snake.isHeadEnlarged()) flags |= NetProtocol.ENLARGED;
+            if ((flags & ~NetProtocol.DIRECTION_MASK) == (sentEnlarged[i] ? NetProtocol.ENLARGED : 0)) continue;
+
+            NetProtocol.putVarInt(out, i);
+            out.put((byte) flags);
+            if ((flags & NetProtocol.GREW) != 0) NetProtocol.putVarInt(out, snake.getLength() - sentLengths[i]);
+            sentMoves[i] = snake.getMoves();
+            sentLengths[i] = snake.getLength();
+            sentAlive[i] = arena.isAlive(i);
+            sentEnlarged[i] = snake.isHeadEnlarged();
+            changed++;
+        }
+        out.putInt(countAt, changed);
+
+        countAt = out.position();
+        out.putInt(0);
+        int foodChanged = 0;
+        for (int i = 0; i < foodCount; i++) {
+            FoodType type = arena.getFoodType(i);
+            int cell = arena.getFoodY(i) * width + arena.getFoodX(i);
+            if (type == sentFoodTypes[i] && (type == null || cell == sentFoodCells[i])) continue;
+            NetProtocol.putVarInt(out, i);
+            out.put((byte) (type == null ? -1 : type.getIndex()));
+            if (type != null) NetProtocol.putVarInt(out, cell);
+            sentFoodTypes[i] = type;
+            sentFoodCells[i] = cell;
+            foodChanged++;
+        }
+        out.putInt(countAt, foodChanged);
+        out.putInt(0, out.position() - Integer.BYTES);
+        out.flip();
+    }
+
+    /**
+     * Returns the arena of the current round, only to be used on the server thread
+     * @return the authoritative arena
+     */
+    Arena getArena()
+    {
+        return arena;
+    }
+
+    /**
+     * Returns the delta of the last tick as every client is sent it
+     * @return a view of the frame with its length, empty right after a new round
+     */
+    ByteBuffer getDelta()
+    {
+        return delta.duplicate();
+    }
+
+    /**
+     * Returns a keyframe of the current tick as a client that joins is sent it
+     * @return a view of the frame with its length
+     */
+    ByteBuffer getKeyframe()
+    {
+        if (keyframeTick != arena.getTick()) encodeKeyframe();
+        return keyframe.duplicate();
+    }
+
+    /**
+     * Encodes the whole arena as of now, for clients that join or fell behind
+     */
+    private void encodeKeyframe()
+    {
+        int cells = 0;
+        for (int i = 0; i < snakeCount; i++) {
+            if (arena.isAlive(i)) cells += arena.getSnake(i).getLength();
+        }
+        ByteBuffer out = keyframe.clear();
+        out = keyframe = NetProtocol.ensureRemaining(out, 32 + snakeCount * 6 + cells * Integer.BYTES + foodCount * 6);
+        out.putInt(0).put(NetProtocol.KEYFRAME).putLong(arena.getTick());
+        for (int i = 0; i < snakeCount; i++) {
+            Snake snake = arena.getSnake(i);
+            if (!arena.isAlive(i)) {
+                out.put((byte) 0);
+                continue;
+            }
+            int flags = NetProtocol.ALIVE | snake.getDirection().ordinal();
+            if (snake.isHeadEnlarged()) flags |= NetProtocol.ENLARGED;
+            out.put((byte) flags);
+            NetProtocol.putVarInt(out, snake.getLength());
+            IntBuffer body = out.asIntBuffer();
+            snake.writeBody(body);
+            out.position(out.position() + body.position() * Integer.BYTES);
+        }
+        for (int i = 0; i < foodCount; i++) {
+            FoodType type = arena.getFoodType(i);
+            out.put((byte) (type == null ? -1 : type.getIndex()));
+            if (type != null) NetProtocol.putVarInt(out, arena.getFoodY(i) * width + arena.getFoodX(i));
+        }
+        out.putInt(0, out.position() - Integer.BYTES);
+        out.flip();
+        keyframeTick = arena.getTick();
+    }
+
+    /**
+     * A connected client and the snake it plays
+     */
+    private static class Connection
+    {
+        private final SocketChannel channel;
+        private final int slot;
+        private final ByteBuffer in = ByteBuffer.allocate(64);
+        private ByteBuffer out = ByteBuffer.allocate(SEND_BUFFER); // In write mode between flushes
+        private SelectionKey key;
+        private boolean needsKeyframe = true;
+
+        Connection(SocketChannel channel, int slot)
+        {
+            this.channel = channel;
+            this.slot = slot;
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        GameConfig config = GameConfig.load(arguments);
+        int port = Integer.parseInt(arguments.getOrDefault("port", "7777"));
+        int snakes = Integer.parseInt(arguments.getOrDefault("snakes", "16"));
+        int food = Integer.parseInt(arguments.getOrDefault("food", String.valueOf(snakes / 4 + 1)));
+
+        GameServer server = new GameServer(new InetSocketAddress(port), config.getWidth(), config.getHeight(),
+                snakes, food, config.getSpeeds(), config.getFoodTable(), config.getSeed());
+        System.out.println("Serving " + snakes + " snakes on port " + server.getPort());
+        server.start();
+        while (true) {
+            Thread.sleep(10_000);
+            System.out.println("clients=" + server.getClientCount() + " tick "
+                    + server.getTickTimes().appendSummary(new StringBuilder()) + " us");
+        }
+    }
+}
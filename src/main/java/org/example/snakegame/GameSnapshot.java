@@ -0,0 +1,270 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and restores the complete state of a game in a versioned binary format:
+ * the snake body and direction, speed and enlarged head, score, insane mode,
+ * food, the effect deadlines, the insane mode blinking, the simulated time and the state of the random
+ * generator, so a restored game continues exactly like the original would have.
+ * On normal boards the order of the free-cell list is stored as well, since
+ * it decides where food appears next. The statistics of the game (its seed,
+ * the food eaten per type and the insane mode count) and the score multiplier
+ * follow at the end. Food types are stored by their index in the engine's
+ * FoodTable, so a snapshot must be loaded with the table it was saved with.
+ * The body is stored as one packed int per segment and copied in bulk, so
+ * writing goes through a FileChannel and reading from a memory-mapped file
+ * take a few milliseconds even for a snake that fills a 1000x1000 board.
+ * All numbers are big-endian.
+ */
+public final class GameSnapshot
+{
+    private static final int MAGIC = 0x534E4B53; // "SNKS"
+    // Version 1 had no blinking, version 2 no statistics, version 3 no score multiplier, all are still read
+    private static final short VERSION = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // magic, version, flags, width, height, random, tick, elapsed, game over,
+    // score, insane trigger, rotation, food type, x, y, expiry, speed and head reset,
+    // blink and next blink (since version 2), direction, speed, enlarged, moves,
+    // previous tail, length, followed by the body, the size of the free-cell order, the order
+    // and, since version 3, the statistics and since version 4 the score multiplier
+    static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 4 + 8 + 8 + 8 + 1
+            + 4 + 4 + 4 + 1 + 4 + 4 + 8 + 8 + 8 + 4 + 8
+            + 1 + 8 + 1 + 8 + 4 + 4;
+    private static final int BLINK_SIZE = 4 + 8;
+    // seed, insane mode count, number of food types, followed by the eaten count per type
+    private static final int STATS_SIZE = 8 + 4 + 1;
+    // score multiplier and its reset
+    private static final int MULTIPLIER_SIZE = 4 + 8;
+
+    private GameSnapshot()
+    {
+    }
+
+    /**
+     * Encodes the current game of the engine
+     * @param engine the engine
+     * @return a buffer with the snapshot between position and limit
+     */
+    public static ByteBuffer encode(SimulationEngine engine)
+    {
+        GameState state = engine.getState();
+        Snake snake = state.getSnake();
+        Occupancy occupancy = snake.getOccupancy();
+        int orderSize = occupancy.getOrderSize();
+        int types = state.getEatenTypes();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (snake.getLength() + 1 + orderSize) * Integer.BYTES
+                + STATS_SIZE + types * Integer.BYTES + MULTIPLIER_SIZE);
+
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        buffer.putInt(state.getWidth()).putInt(state.getHeight());
+        buffer.putLong(engine.getRandom().getState());
+        buffer.putLong(state.getTick()).putLong(state.getElapsedMillis()).put((byte) (state.isGameOver() ? 1 : 0));
+        buffer.putInt(state.getScore().getScore()).putInt(state.getNextInsaneTrigger()).putInt(state.getRotation());
+        buffer.put((byte) (state.getFoodType() == null ? -1 : state.getFoodType().getIndex()));
+        buffer.putInt(state.getFoodX()).putInt(state.getFoodY()).putLong(state.getFoodExpiresAt());
+        buffer.putLong(state.getSpeedResetAt()).putLong(state.getHeadResetAt());
+        buffer.putInt(state.getBlink()).putLong(state.getNextBlinkAt());
+
+        buffer.put((byte) snake.getDirection().ordinal()).putDouble(snake.getSpeed());
+        buffer.put((byte) (snake.isHeadEnlarged() ? 1 : 0)).putLong(snake.getMoves());
+        buffer.putInt(snake.getPackedPreviousTail()).putInt(snake.getLength());
+
+        IntBuffer cells = buffer.asIntBuffer();
+        snake.writeBody(cells);
+        cells.put(orderSize);
+        occupancy.writeOrder(cells);
+        buffer.position(buffer.position() + cells.position() * Integer.BYTES);
+
+        buffer.putLong(state.getSeed()).putInt(state.getInsaneCount()).put((byte) types);
+        for (int i = 0; i < types; i++) {
+            buffer.putInt(state.getEaten(i));
+        }
+        buffer.putInt(state.getScoreMultiplier()).putLong(state.getMultiplierResetAt());
+        return buffer.flip();
+    }
+
+    /**
+     * Replaces the current game of the engine with the one in the buffer
+     * @param engine the engine, for a board of the snapshot's size
+     * @param buffer the snapshot, read from its position
+     * @throws IOException if the buffer is not a valid snapshot for this engine
+     */
+    public static void decode(SimulationEngine engine, ByteBuffer buffer) throws IOException
+    {
+        if (buffer.remaining() < HEADER_SIZE - BLINK_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported snapshot version " + version);
+        if (version >= 2 && buffer.remaining() < HEADER_SIZE - 6) throw new IOException("Corrupt snapshot");
+        buffer.getShort(); // Flags, none defined yet
+
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        long randomState = buffer.getLong();
+        long tick = buffer.getLong();
+        long elapsedMillis = buffer.getLong();
+        boolean gameOver = buffer.get() != 0;
+        int score = buffer.getInt();
+        int nextInsaneTrigger = buffer.getInt();
+        int rotation = buffer.getInt();
+        int foodType = buffer.get();
+        int foodX = buffer.getInt();
+        int foodY = buffer.getInt();
+        long foodExpiresAt = buffer.getLong();
+        long speedResetAt = buffer.getLong();
+        long headResetAt = buffer.getLong();
+        int blink = version == 1 ? -1 : buffer.getInt();
+        long nextBlinkAt = version == 1 ? -1 : buffer.getLong();
+
+        int direction = buffer.get();
+        double speed = buffer.getDouble();
+        boolean headEnlarged = buffer.get() != 0;
+        long moves = buffer.getLong();
+        int previousTail = buffer.getInt();
+        int length = buffer.getInt();
+        FoodTable foods = engine.getFoods();
+        if (foodType >= foods.size()) throw new IOException("Snapshot is for another food table");
+        if (length < 1 || length > buffer.remaining() / Integer.BYTES
+                || direction < 0 || direction >= DIRECTIONS.length || foodType < -1 || !SpeedProfile.isValid(speed)
+                || blink < -1 || blink >= SimulationEngine.BLINKS
+                || width < 1 || height < 1 || width > Snake.MAX_BOARD_SIZE || height > Snake.MAX_BOARD_SIZE) {
+            throw new IOException("Corrupt snapshot");
+        }
+        if (foodType >= 0 && (foodX < 0 || foodX >= width || foodY < 0 || foodY >= height)) {
+            throw new IOException("Corrupt snapshot");
+        }
+
+        IntBuffer cells = buffer.asIntBuffer();
+        if (!isValidBody(cells, length, width, height, gameOver)) throw new IOException("Corrupt snapshot");
+        Snake snake = new Snake(width, height, cells, length);
+        int orderSize = cells.hasRemaining() ? cells.get() : -1;
+        if (orderSize < 0 || orderSize > cells.remaining()) throw new IOException("Corrupt snapshot");
+        try {
+            snake.getOccupancy().readOrder(cells, orderSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt snapshot: " + e.getMessage(), e);
+        }
+        buffer.position(buffer.position() + cells.position() * Integer.BYTES);
+
+        long seed = 0;
+        int insaneCount = 0;
+        int[] eaten = new int[0];
+        if (version >= 3) {
+            if (buffer.remaining() < STATS_SIZE) throw new IOException("Corrupt snapshot");
+            seed = buffer.getLong();
+            insaneCount = buffer.getInt();
+            int types = buffer.get();
+            if (types < 0 || buffer.remaining() < types * 4) throw new IOException("Corrupt snapshot");
+            eaten = new int[types];
+            for (int i = 0; i < types; i++) {
+                eaten[i] = buffer.getInt();
+            }
+        }
+        int multiplier = 1;
+        long multiplierResetAt = -1;
+        if (version >= 4) {
+            if (buffer.remaining() < MULTIPLIER_SIZE) throw new IOException("Corrupt snapshot");
+            multiplier = buffer.getInt();
+            multiplierResetAt = buffer.getLong();
+            if (multiplier < 1) throw new IOException("Corrupt snapshot");
+        }
+        snake.restore(DIRECTIONS[direction], moves, previousTail);
+        snake.setSpeed(speed);
+        if (headEnlarged) snake.enlargeHead();
+
+        GameState state = new GameState(width, height, snake);
+        state.restoreTime(tick, elapsedMillis);
+        state.setGameOver(gameOver);
+        state.getScore().updateScore(score);
+        state.setNextInsaneTrigger(nextInsaneTrigger);
+        state.setRotation(rotation);
+        if (foodType >= 0) state.placeFood(foods.get(foodType), foodX, foodY, foodExpiresAt);
+        state.setSpeedResetAt(speedResetAt);
+        state.setHeadResetAt(headResetAt);
+        state.setScoreMultiplier(multiplier, multiplierResetAt);
+        if (blink >= 0) state.setBlink(blink, nextBlinkAt);
+        state.setSeed(seed);
+        state.setInsaneCount(insaneCount);
+        for (int i = 0; i < eaten.length; i++) {
+            state.setEaten(i, eaten[i]);
+        }
+
+        try {
+            engine.load(state);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        engine.getRandom().setState(randomState);
+    }
+
+    /**
+     * Writes a snapshot of the engine's current game to a file
+     * @param engine the engine
+     * @param file the file, replaced if it exists
+     * @throws IOException if writing fails
+     */
+    public static void save(SimulationEngine engine, Path file) throws IOException
+    {
+        ByteBuffer buffer = encode(engine);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Replaces the engine's current game with the one saved in a file.
+     * The file is memory-mapped instead of copied into the heap first.
+     * @param engine the engine, for a board of the snapshot's size
+     * @param file the snapshot file
+     * @throws IOException if reading fails or the file is not a valid snapshot for this engine
+     */
+    public static void load(SimulationEngine engine, Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Snapshot too large");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            decode(engine, buffer);
+        }
+    }
+
+    /**
+     * Checks that a saved body lies on the board and each cell is next to the one before it.
+     * A cell may repeat the one before it, since grown segments stack on the tail cell,
+     * and the head of a finished game may have left the board by one step.
+     * @param cells the packed cells, head first; their position is not changed
+     * @param length the number of cells
+     * @param width the board width in cells
+     * @param height the board height in cells
+     * @param gameOver whether the game is over
+     * @return true if the body is valid
+     */
+    private static boolean isValidBody(IntBuffer cells, int length, int width, int height, boolean gameOver)
+    {
+        int start = cells.position();
+        int previousX = 0;
+        int previousY = 0;
+        for (int i = 0; i < length; i++) {
+            int cell = cells.get(start + i);
+            int x = Snake.unpackX(cell);
+            int y = Snake.unpackY(cell);
+            boolean onBoard = x >= 0 && x < width && y >= 0 && y < height;
+            if (!onBoard && (i > 0 || !gameOver)) return false;
+            if (i > 0 && Math.abs(x - previousX) + Math.abs(y - previousY) > 1) return false;
+            previousX = x;
+            previousY = y;
+        }
+        return true;
+    }
+}
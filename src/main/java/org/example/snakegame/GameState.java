@@ -0,0 +1,286 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Holds the complete state of one game without any JavaFX types.
+ * Everything is expressed in grid cells and simulated milliseconds,
+ * so a game can be stepped headless by the SimulationEngine.
+ */
+public class GameState
+{
+    private final int width;
+    private final int height;
+    private final Snake snake;
+    private final Score score = new Score();
+
+    private FoodType foodType;
+    private int foodX;
+    private int foodY;
+    private long foodExpiresAt;
+
+    // Simulated time in ms at which the running effects end, -1 when not active
+    private long speedResetAt = -1;
+    private long headResetAt = -1;
+    private long multiplierResetAt = -1;
+    private int scoreMultiplier = 1;
+
+    //Trigger insane mode when score reaches this value
+    private int nextInsaneTrigger = 10;
+    private int rotation;
+    private int blink = -1; // Insane mode blink shown right now, -1 when not blinking
+    private long nextBlinkAt = -1;
+
+    private long tick;
+    private long elapsedMillis;
+    private boolean gameOver;
+
+    // Statistics of the game, recorded in the StatsStore when it ends
+    private long seed;
+    private int[] eaten = new int[0]; // By food type index, grown when a type is counted
+    private int insaneCount;
+
+    /**
+     * Creates a fresh state with a new snake on a board of the given size
+     * @param width board width in cells
+     * @param height board height in cells
+     */
+    public GameState(int width, int height)
+    {
+        this(width, height, new Snake(width, height));
+    }
+
+    /**
+     * Creates a fresh state around an existing snake, e.g. a prepared position
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param snake the snake, created for a board of the same size
+     */
+    public GameState(int width, int height, Snake snake)
+    {
+        this.width = width;
+        this.height = height;
+        this.snake = snake;
+    }
+
+    //region Getter and setter
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Snake getSnake() {
+        return snake;
+    }
+
+    public Score getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the type of the food currently on the board
+     * @return the current food type
+     */
+    public FoodType getFoodType() {
+        return foodType;
+    }
+
+    /**
+     * Returns the x-coordinate of the food
+     * @return the x grid position
+     */
+    public int getFoodX() {
+        return foodX;
+    }
+
+    /**
+     * Returns the y-coordinate of the food
+     * @return the y grid position
+     */
+    public int getFoodY() {
+        return foodY;
+    }
+
+    void placeFood(FoodType type, int x, int y, long expiresAt) {
+        this.foodType = type;
+        this.foodX = x;
+        this.foodY = y;
+        this.foodExpiresAt = expiresAt;
+    }
+
+    long getFoodExpiresAt() {
+        return foodExpiresAt;
+    }
+
+    long getSpeedResetAt() {
+        return speedResetAt;
+    }
+
+    void setSpeedResetAt(long speedResetAt) {
+        this.speedResetAt = speedResetAt;
+    }
+
+    long getHeadResetAt() {
+        return headResetAt;
+    }
+
+    void setHeadResetAt(long headResetAt) {
+        this.headResetAt = headResetAt;
+    }
+
+    /**
+     * Returns by how much the points of the next food are multiplied
+     * @return the running score multiplier, 1 if none runs
+     */
+    public int getScoreMultiplier() {
+        return scoreMultiplier;
+    }
+
+    long getMultiplierResetAt() {
+        return multiplierResetAt;
+    }
+
+    void setScoreMultiplier(int scoreMultiplier, long multiplierResetAt) {
+        this.scoreMultiplier = scoreMultiplier;
+        this.multiplierResetAt = multiplierResetAt;
+    }
+
+    public int getNextInsaneTrigger() {
+        return nextInsaneTrigger;
+    }
+
+    void setNextInsaneTrigger(int nextInsaneTrigger) {
+        this.nextInsaneTrigger = nextInsaneTrigger;
+    }
+
+    /**
+     * Returns the rotation of the board caused by insane mode
+     * @return 0, 90, 180 or 270 degrees
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    void setRotation(int rotation) {
+        this.rotation = rotation;
+    }
+
+    /**
+     * Returns which blink of insane mode is shown
+     * @return the blink from 0, or -1 when the board is not blinking
+     */
+    public int getBlink() {
+        return blink;
+    }
+
+    long getNextBlinkAt() {
+        return nextBlinkAt;
+    }
+
+    void setBlink(int blink, long nextBlinkAt) {
+        this.blink = blink;
+        this.nextBlinkAt = nextBlinkAt;
+    }
+
+    /**
+     * Returns the number of steps simulated so far
+     * @return the current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the simulated play time, the sum of all step lengths
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void advance(long stepMillis) {
+        tick++;
+        elapsedMillis += stepMillis;
+    }
+
+    void restoreTime(long tick, long elapsedMillis) {
+        this.tick = tick;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    void setGameOver(boolean gameOver) {
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * Returns the seed the game was started with
+     * @return the seed, 0 for a game restored from a snapshot of version 2 or older
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns how many food items of a type the snake has eaten
+     * @param type the food type
+     * @return the number eaten in this game
+     */
+    public int getEaten(FoodType type) {
+        return getEaten(type.getIndex());
+    }
+
+    /**
+     * Returns how many food items of a type the snake has eaten
+     * @param type the index of the food type
+     * @return the number eaten in this game
+     */
+    public int getEaten(int type) {
+        return type < eaten.length ? eaten[type] : 0;
+    }
+
+    /**
+     * Returns up to which food type index something was counted
+     * @return one more than the highest index with a count
+     */
+    public int getEatenTypes() {
+        return eaten.length;
+    }
+
+    void countEaten(FoodType type) {
+        setEaten(type.getIndex(), getEaten(type.getIndex()) + 1);
+    }
+
+    void setEaten(int type, int count) {
+        if (type >= eaten.length) eaten = Arrays.copyOf(eaten, type + 1);
+        eaten[type] = count;
+    }
+
+    /**
+     * Returns how often insane mode was triggered
+     * @return the number of triggers in this game
+     */
+    public int getInsaneCount() {
+        return insaneCount;
+    }
+
+    void countInsaneMode() {
+        insaneCount++;
+    }
+
+    void setInsaneCount(int insaneCount) {
+        this.insaneCount = insaneCount;
+    }
+    //endregion
+}
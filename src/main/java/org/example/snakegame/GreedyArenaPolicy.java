@@ -0,0 +1,56 @@
+package org.example.snakegame;
+
+/**
+ * Baseline policy for an Arena: heads for the nearest food and only avoids
+ * walls and bodies on the next cell. It keeps no state, so one instance can
+ * steer all snakes from several threads.
+ */
+public class GreedyArenaPolicy implements ArenaPolicy
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Override
+    public Direction decide(Arena arena, int index)
+    {
+        Snake snake = arena.getSnake(index);
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+
+        int targetX = headX;
+        int targetY = headY;
+        int best = Integer.MAX_VALUE;
+        for (int food = 0; food < arena.getFoodCount(); food++) {
+            if (arena.getFoodType(food) == null) continue;
+            int distance = Math.abs(arena.getFoodX(food) - headX) + Math.abs(arena.getFoodY(food) - headY);
+            if (distance < best) {
+                best = distance;
+                targetX = arena.getFoodX(food);
+                targetY = arena.getFoodY(food);
+            }
+        }
+
+        int dx = Integer.compare(targetX, headX);
+        int dy = Integer.compare(targetY, headY);
+        Direction wanted = dx > 0 ? Direction.RIGHT : dx < 0 ? Direction.LEFT
+                : dy > 0 ? Direction.DOWN : Direction.UP;
+        if (isSafe(arena, snake, wanted)) return wanted;
+        for (Direction direction : DIRECTIONS) {
+            if (isSafe(arena, snake, direction)) return direction;
+        }
+        return null;
+    }
+
+    private static boolean isSafe(Arena arena, Snake snake, Direction direction)
+    {
+        if (snake.getDirection().isOpposite(direction)) return false;
+        int x = snake.getHeadX();
+        int y = snake.getHeadY();
+        switch (direction) {
+            case UP: y--; break;
+            case DOWN: y++; break;
+            case LEFT: x--; break;
+            case RIGHT: x++; break;
+        }
+        return x >= 0 && x < arena.getWidth() && y >= 0 && y < arena.getHeight() && !arena.isOccupied(x, y);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.snakegame;
+
+/**
+ * Simple baseline policy: heads straight for the food and only avoids
+ * walls and its own body on the next cell. It does not look further ahead,
+ * so it traps itself once the snake gets long.
+ */
+public class GreedyPolicy implements Policy
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Override
+    public Direction decide(GameState view)
+    {
+        Snake snake = view.getSnake();
+        int dx = Integer.compare(view.getFoodX(), snake.getHeadX());
+        int dy = Integer.compare(view.getFoodY(), snake.getHeadY());
+        Direction wanted = dx > 0 ? Direction.RIGHT : dx < 0 ? Direction.LEFT
+                : dy > 0 ? Direction.DOWN : Direction.UP;
+        if (isSafe(view, wanted)) return wanted;
+
+        // Take any other direction that does not end the game right away
+        for (Direction direction : DIRECTIONS) {
+            if (isSafe(view, direction)) return direction;
+        }
+        return null;
+    }
+
+    private static boolean isSafe(GameState view, Direction direction)
+    {
+        Snake snake = view.getSnake();
+        if (snake.getDirection().isOpposite(direction)) return false;
+        int x = snake.getHeadX();
+        int y = snake.getHeadY();
+        switch (direction) {
+            case UP: y--; break;
+            case DOWN: y++; break;
+            case LEFT: x--; break;
+            case RIGHT: x++; break;
+        }
+        if (x < 0 || x >= view.getWidth() || y < 0 || y >= view.getHeight()) return false;
+        // The tail moves away in the same step, unless the snake has just grown
+        int tail = snake.getLength() - 1;
+        boolean tailLeaves = tail > 0 && (snake.getX(tail) != snake.getX(tail - 1) || snake.getY(tail) != snake.getY(tail - 1));
+        return !snake.isOccupied(x, y) || (tailLeaves && x == snake.getX(tail) && y == snake.getY(tail));
+    }
+}
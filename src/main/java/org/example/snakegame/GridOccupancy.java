@@ -0,0 +1,81 @@
+package org.example.snakegame;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+/**
+ * Occupancy for boards up to Occupancy.DENSE_LIMIT cells.
+ * Keeps one bit per cell for constant-time lookups and a FreeCells list
+ * for picking a free cell in O(1) even on a nearly full board.
+ */
+public class GridOccupancy implements Occupancy
+{
+    private final int width;
+    private final long[] occupied; // One bit per cell, index y * width + x
+    private final FreeCells freeCells; // The complement of occupied, for placing food
+
+    /**
+     * Creates an empty occupancy
+     * @param width the width of the board in cells
+     * @param height the height of the board in cells
+     */
+    public GridOccupancy(int width, int height)
+    {
+        this.width = width;
+        this.occupied = new long[(width * height + 63) >>> 6];
+        this.freeCells = new FreeCells(width, height);
+    }
+
+    @Override
+    public boolean contains(int x, int y)
+    {
+        int index = y * width + x;
+        return (occupied[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public void add(int x, int y)
+    {
+        int index = y * width + x;
+        occupied[index >>> 6] |= 1L << index;
+        freeCells.remove(x, y);
+    }
+
+    @Override
+    public void remove(int x, int y)
+    {
+        int index = y * width + x;
+        occupied[index >>> 6] &= ~(1L << index);
+        freeCells.add(x, y);
+    }
+
+    @Override
+    public long freeCount()
+    {
+        return freeCells.size();
+    }
+
+    @Override
+    public int sampleFree(Random random)
+    {
+        return freeCells.size() == 0 ? -1 : freeCells.sample(random);
+    }
+
+    @Override
+    public int getOrderSize()
+    {
+        return freeCells.size();
+    }
+
+    @Override
+    public void writeOrder(IntBuffer out)
+    {
+        freeCells.writeTo(out);
+    }
+
+    @Override
+    public void readOrder(IntBuffer in, int size)
+    {
+        freeCells.readFrom(in, size);
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Occupancy for large boards, where a structure over the whole board would not fit.
+ * The covered cells are kept in an open-addressing hash set of cell indices
+ * with linear probing, so memory is proportional to the snake length.
+ * A free cell is found by picking random cells until one is free, which takes
+ * a few tries as long as the snake covers a small part of the board.
+ */
+public class HashOccupancy implements Occupancy
+{
+    private static final int EMPTY = -1;
+    private static final int MAX_TRIES = 64;
+
+    private final int width;
+    private final long area;
+    private int[] table = newTable(64);
+    private int size;
+
+    /**
+     * Creates an empty occupancy
+     * @param width the width of the board in cells
+     * @param height the height of the board in cells
+     */
+    public HashOccupancy(int width, int height)
+    {
+        this.width = width;
+        this.area = (long) width * height;
+    }
+
+    @Override
+    public boolean contains(int x, int y)
+    {
+        return table[find(y * width + x)] != EMPTY;
+    }
+
+    @Override
+    public void add(int x, int y)
+    {
+        int cell = y * width + x;
+        int slot = find(cell);
+        if (table[slot] != EMPTY) return;
+        table[slot] = cell;
+        // Keep the table at most half full
+        if (++size * 2 > table.length) rehash(table.length * 2);
+    }
+
+    @Override
+    public void remove(int x, int y)
+    {
+        int slot = find(y * width + x);
+        if (table[slot] == EMPTY) return;
+        // Shift the following entries back, so no probe sequence is broken
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = hash(table[next]) & mask;
+            // Move the entry if its home slot is not between the hole and its slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = EMPTY;
+        size--;
+    }
+
+    @Override
+    public long freeCount()
+    {
+        return area - size;
+    }
+
+    @Override
+    public int sampleFree(Random random)
+    {
+        if (size >= area) return -1;
+        int height = (int) (area / width);
+        for (int i = 0; i < MAX_TRIES; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (!contains(x, y)) return y * width + x;
+        }
+        // Nearly full board, walk from a random cell to the next free one
+        long start = (long) random.nextInt(height) * width + random.nextInt(width);
+        for (long i = 0; i < area; i++) {
+            long cell = (start + i) % area;
+            int x = (int) (cell % width);
+            int y = (int) (cell / width);
+            if (!contains(x, y)) return (int) cell;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the slot that holds the cell, or the empty slot where it would go
+     */
+    private int find(int cell)
+    {
+        int mask = table.length - 1;
+        int slot = hash(cell) & mask;
+        while (table[slot] != EMPTY && table[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity)
+    {
+        int[] old = table;
+        table = newTable(capacity);
+        for (int cell : old) {
+            if (cell != EMPTY) table[find(cell)] = cell;
+        }
+    }
+
+    private static int[] newTable(int capacity)
+    {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(int cell)
+    {
+        // Spread neighbouring cells over the table
+        int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
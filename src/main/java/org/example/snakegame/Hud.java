@@ -0,0 +1,81 @@
+package org.example.snakegame;
+
+import java.util.function.IntConsumer;
+
+/**
+ * The score and length texts shown by the renderers.
+ * It listens to the Score and the Snake of the game it shows, so the texts
+ * are only formatted again after a value changed; the digits go through one
+ * reusable buffer. On frames where nothing changed update() only compares
+ * two references.
+ */
+public class Hud
+{
+    private final StringBuilder buffer = new StringBuilder(24);
+    private Score score;
+    private Snake snake;
+    private boolean scoreChanged;
+    private boolean lengthChanged;
+    private String scoreText = "";
+    private String lengthText = "";
+
+    private final IntConsumer scoreListener = value -> scoreChanged = true;
+    private final IntConsumer lengthListener = value -> lengthChanged = true;
+
+    /**
+     * Brings the texts up to date with the state, listening to its score and snake from now on
+     * @param state the state shown
+     * @return true if a text changed since the last call
+     */
+    public boolean update(GameState state)
+    {
+        if (state.getScore() != score || state.getSnake() != snake) bind(state);
+        if (!scoreChanged && !lengthChanged) return false;
+
+        if (scoreChanged) {
+            buffer.setLength(0);
+            scoreText = score.appendScore(buffer).toString();
+            scoreChanged = false;
+        }
+        if (lengthChanged) {
+            buffer.setLength(0);
+            lengthText = buffer.append("Length: ").append(snake.getLength()).toString();
+            lengthChanged = false;
+        }
+        return true;
+    }
+
+    /**
+     * Listens to the score and snake of a new game instead of the old ones
+     */
+    private void bind(GameState state)
+    {
+        if (score != null) score.setListener(null);
+        if (snake != null) snake.setLengthListener(null);
+        score = state.getScore();
+        snake = state.getSnake();
+        score.setListener(scoreListener);
+        snake.setLengthListener(lengthListener);
+        scoreChanged = true;
+        lengthChanged = true;
+    }
+
+    //region Getter and setter
+
+    /**
+     * Returns the score text as of the last update()
+     * @return e.g. "Score: 12"
+     */
+    public String getScoreText() {
+        return scoreText;
+    }
+
+    /**
+     * Returns the length text as of the last update()
+     * @return e.g. "Length: 13"
+     */
+    public String getLengthText() {
+        return lengthText;
+    }
+    //endregion
+}
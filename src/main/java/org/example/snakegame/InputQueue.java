@@ -0,0 +1,71 @@
+package org.example.snakegame;
+
+/**
+ * Bounded single-producer, single-consumer queue of turns between the thread
+ * that reads input (the FX thread, a network or bot thread) and the thread
+ * that steps the engine. The ring holds enum constants and the two indices
+ * are only ever advanced by their own thread, so offering and polling
+ * neither lock nor allocate.
+ * A turn is rejected when it reverses or repeats the last queued direction
+ * (or the current one, if nothing is queued), so quick combos like
+ * up-then-left within one tick are kept and the impossible ones are dropped.
+ */
+public class InputQueue
+{
+    private static final int CAPACITY = 4; // Must be a power of two
+
+    private final Direction[] ring = new Direction[CAPACITY];
+    private volatile long head; // Next slot to poll, written by the consumer only
+    private volatile long tail; // Next slot to fill, written by the producer only
+    private volatile Direction current; // Direction of the snake after the last poll
+
+    /**
+     * Creates an empty queue
+     * @param current the direction the snake is moving in
+     */
+    public InputQueue(Direction current)
+    {
+        this.current = current;
+    }
+
+    /**
+     * Queues a turn, called by the producer thread only
+     * @param direction the direction to turn to
+     * @return false if the turn reverses or repeats the last queued direction, or the queue is full
+     */
+    public boolean offer(Direction direction)
+    {
+        long t = tail;
+        long h = head;
+        if (t - h == CAPACITY) return false;
+        Direction last = t > h ? ring[(int) (t - 1) & (CAPACITY - 1)] : current;
+        if (direction == last || direction.isOpposite(last)) return false;
+        ring[(int) t & (CAPACITY - 1)] = direction;
+        tail = t + 1; // Publishes the slot to the consumer
+        return true;
+    }
+
+    /**
+     * Takes the oldest queued turn, called by the consumer thread only
+     * @return the direction, or null if nothing is queued
+     */
+    public Direction poll()
+    {
+        long h = head;
+        if (h == tail) return null;
+        Direction direction = ring[(int) h & (CAPACITY - 1)];
+        current = direction;
+        head = h + 1; // Frees the slot for the producer
+        return direction;
+    }
+
+    /**
+     * Drops all queued turns, called by the consumer thread only, e.g. when a new game starts
+     * @param current the direction the snake is moving in now
+     */
+    public void clear(Direction current)
+    {
+        this.current = current;
+        head = tail;
+    }
+}
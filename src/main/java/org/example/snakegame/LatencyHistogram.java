@@ -0,0 +1,117 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed relative precision, in the
+ * style of HdrHistogram. Values below 64 get their own bucket, above that every
+ * power of two is split into 32 buckets, so any value is off by at most about 3%
+ * and all of the long range fits into 1888 counters.
+ * Recording is a few shifts and an increment and never allocates. It is meant
+ * to be recorded from one thread; other threads may read slightly stale values.
+ */
+public class LatencyHistogram
+{
+    private static final int LINEAR = 64; // Values below this are counted exactly
+    private static final int SUB_BITS = 5; // 32 buckets per power of two
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Adds one duration
+     * @param nanos the duration, negative values count as 0
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    private static int index(long value)
+    {
+        if (value < LINEAR) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB + (int) (value >>> shift) - SUB;
+    }
+
+    // The middle of the range of values counted in a bucket
+    private static long valueAt(int index)
+    {
+        if (index < LINEAR) return index;
+        int shift = (index - LINEAR) / SUB + 1;
+        long low = (long) ((index - LINEAR) % SUB + SUB) << shift;
+        return low + (1L << shift) / 2;
+    }
+
+    /**
+     * Returns the value below which the given share of the recorded values lies
+     * @param percentile from 0 to 100
+     * @return the value in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile)
+    {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(valueAt(i), max);
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the average of the recorded values
+     * @return the mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Forgets all recorded values
+     */
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Appends a one-line summary in microseconds
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendSummary(StringBuilder out)
+    {
+        return out.append("count=").append(count)
+                .append(" mean=").append(micros((long) getMean()))
+                .append(" p50=").append(micros(getPercentile(50)))
+                .append(" p90=").append(micros(getPercentile(90)))
+                .append(" p99=").append(micros(getPercentile(99)))
+                .append(" max=").append(micros(max));
+    }
+
+    private static String micros(long nanos)
+    {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.snakegame;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Connects many clients to a GameServer and measures how late the ticks arrive.
+ * All clients run on one thread around a Selector, each keeps a full
+ * ArenaMirror, so a corrupt or missing delta fails the test. Every client
+ * sends a random turn now and then, so the server gets input from all of them.
+ * The latency is the time from the server sending a delta to a client having
+ * applied it; both clocks are System.nanoTime(), so server and clients must
+ * run on the same machine. With --server=local a server is started in this
+ * process on a free port.
+ * Usage: LoadTestClient [--clients=N] [--seconds=N] [--turnEvery=ms]
+ * [--host=name] [--port=N] [--server=local] plus the board and speed keys of
+ * GameConfig for a local server, e.g. --width=200 --height=200, and
+ * --foodTable=file, which must be the table of the server also for a remote one
+ */
+public class LoadTestClient
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int clients = Integer.parseInt(arguments.getOrDefault("clients", "200"));
+        int seconds = Integer.parseInt(arguments.getOrDefault("seconds", "30"));
+        long turnEvery = Long.parseLong(arguments.getOrDefault("turnEvery", "500")) * 1_000_000;
+        String host = arguments.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(arguments.getOrDefault("port", "7777"));
+
+        GameConfig config = GameConfig.load(arguments);
+        GameServer server = null;
+        if ("local".equals(arguments.get("server"))) {
+            server = new GameServer(new InetSocketAddress("localhost", 0), config.getWidth(), config.getHeight(),
+                    clients, clients / 4 + 1, config.getSpeeds(), config.getFoodTable(), config.getSeed());
+            port = server.getPort();
+            server.start();
+        }
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        Selector selector = Selector.open();
+        GameClient[] connected = new GameClient[clients];
+        long[] nextTurn = new long[clients];
+        Random random = new Random(1);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            connected[i] = GameClient.connect(new InetSocketAddress(host, port), config.getFoodTable());
+            connected[i].setLatencies(latencies);
+            connected[i].getChannel().register(selector, SelectionKey.OP_READ, connected[i]);
+            nextTurn[i] = start + (long) (random.nextDouble() * turnEvery);
+        }
+        System.out.println("Connected " + clients + " clients in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long ticks = 0;
+        while (System.nanoTime() < end) {
+            selector.select(10);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                GameClient client = (GameClient) keys.next().attachment();
+                keys.remove();
+                long before = client.getMirror().getTick();
+                client.poll();
+                ticks += client.getMirror().getTick() - before;
+            }
+            long now = System.nanoTime();
+            for (int i = 0; i < clients; i++) {
+                if (now < nextTurn[i]) continue;
+                connected[i].steer(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                nextTurn[i] = now + turnEvery;
+            }
+        }
+
+        for (GameClient client : connected) {
+            client.close();
+        }
+        selector.close();
+        System.out.println("Ticks applied: " + ticks + ", " + ticks / Math.max(1, seconds) + "/s over all clients");
+        System.out.println("Delta latency " + latencies.appendSummary(new StringBuilder()) + " us");
+        if (server != null) {
+            System.out.println("Server tick " + server.getTickTimes().appendSummary(new StringBuilder()) + " us");
+            server.close();
+        }
+    }
+}
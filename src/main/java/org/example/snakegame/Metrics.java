@@ -0,0 +1,296 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the game loop: whole ticks, moving and
+ * collision checks, food spawning, rendering and whole frames, plus the
+ * allocation rate of the loop thread.
+ * Everything is recorded on the game loop thread without allocating. Other
+ * threads (JMX, the periodic dump) only read, so they may see values that are
+ * a moment old, which is fine for monitoring.
+ */
+public class Metrics implements MetricsMXBean
+{
+    static final String OBJECT_NAME = "org.example.snakegame:type=Metrics";
+
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private final LatencyHistogram collisionTimes = new LatencyHistogram();
+    private final LatencyHistogram spawnTimes = new LatencyHistogram();
+    private final LatencyHistogram renderTimes = new LatencyHistogram();
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private long ticks;
+    private long frames;
+    private long foodSpawned;
+    private long insaneTriggers;
+    private long lateFrames;
+    private long droppedFrames;
+
+    private final long loopThreadId;
+    private long lastAllocatedBytes = -1;
+    private long lastSampleNanos;
+    private volatile long allocationRate;
+    private ScheduledExecutorService reporter;
+
+    /**
+     * Creates the metrics for the calling thread, which should be the game loop thread
+     */
+    public Metrics()
+    {
+        this.loopThreadId = Thread.currentThread().threadId();
+    }
+
+    void recordTick(long nanos) {
+        ticks++;
+        tickTimes.record(nanos);
+    }
+
+    void recordCollision(long nanos) {
+        collisionTimes.record(nanos);
+    }
+
+    void recordSpawn(long nanos) {
+        foodSpawned++;
+        spawnTimes.record(nanos);
+    }
+
+    void recordInsaneTrigger() {
+        insaneTriggers++;
+    }
+
+    void recordRender(long nanos) {
+        renderTimes.record(nanos);
+    }
+
+    /**
+     * Records one frame of the game loop
+     * @param nanos the time spent on the frame
+     * @param late true if the frame came more than two vsync intervals after the previous one
+     * @param dropped true if the loop stopped catching up and dropped simulated time
+     */
+    void recordFrame(long nanos, boolean late, boolean dropped) {
+        frames++;
+        frameTimes.record(nanos);
+        if (late) lateFrames++;
+        if (dropped) droppedFrames++;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, so they can be watched with JConsole
+     * @throws JMException if the name is already taken
+     */
+    public void registerMBean() throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Publishes the metrics over JMX on the reporting thread, so starting the
+     * platform MBean server does not hold up the caller.
+     * startReporting() must have been called before.
+     */
+    public void registerMBeanLater()
+    {
+        reporter.execute(() -> {
+            try {
+                registerMBean();
+            } catch (JMException e) {
+                System.err.println("Could not register the metrics: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Samples the allocation rate at a fixed interval and, if a file is given,
+     * appends the report to it every time
+     * @param file the dump file, or null to only sample
+     * @param intervalMillis the time between two samples
+     */
+    public void startReporting(Path file, long intervalMillis)
+    {
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            sampleAllocation();
+            if (file != null) dump(file);
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic sampling and dumping
+     */
+    public void stopReporting()
+    {
+        if (reporter != null) reporter.shutdownNow();
+    }
+
+    private void sampleAllocation()
+    {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) return;
+        long bytes = threads.getThreadAllocatedBytes(loopThreadId);
+        long now = System.nanoTime();
+        if (bytes >= 0 && lastAllocatedBytes >= 0) {
+            allocationRate = (long) ((bytes - lastAllocatedBytes) * 1e9 / (now - lastSampleNanos));
+        }
+        lastAllocatedBytes = bytes;
+        lastSampleNanos = now;
+    }
+
+    private void dump(Path file)
+    {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write("# " + Instant.now() + System.lineSeparator());
+            writer.write(getReport());
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            System.err.println("Could not write the metrics: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getReport()
+    {
+        StringBuilder out = new StringBuilder(512);
+        String newline = System.lineSeparator();
+        out.append("ticks ").append(ticks).append(newline);
+        out.append("frames ").append(frames).append(newline);
+        out.append("food_spawned ").append(foodSpawned).append(newline);
+        out.append("insane_triggers ").append(insaneTriggers).append(newline);
+        out.append("late_frames ").append(lateFrames).append(newline);
+        out.append("dropped_frames ").append(droppedFrames).append(newline);
+        out.append("allocation_bytes_per_second ").append(allocationRate).append(newline);
+        tickTimes.appendSummary(out.append("tick_us ")).append(newline);
+        collisionTimes.appendSummary(out.append("collision_us ")).append(newline);
+        spawnTimes.appendSummary(out.append("spawn_us ")).append(newline);
+        renderTimes.appendSummary(out.append("render_us ")).append(newline);
+        frameTimes.appendSummary(out.append("frame_us ")).append(newline);
+        return out.toString();
+    }
+
+    /**
+     * Returns a short summary for the on-screen overlay
+     * @return three lines of text
+     */
+    public String displayOverlay()
+    {
+        return String.format("Tick: %.1f µs (p99 %.1f)%nRender: %.0f µs (p99 %.0f)%nLate frames: %d, alloc: %d KB/s",
+                getTickMeanMicros(), getTickP99Micros(), getRenderMeanMicros(), getRenderP99Micros(),
+                lateFrames, allocationRate / 1024);
+    }
+
+    @Override
+    public void reset()
+    {
+        tickTimes.reset();
+        collisionTimes.reset();
+        spawnTimes.reset();
+        renderTimes.reset();
+        frameTimes.reset();
+        ticks = 0;
+        frames = 0;
+        foodSpawned = 0;
+        insaneTriggers = 0;
+        lateFrames = 0;
+        droppedFrames = 0;
+    }
+
+    //region Getter
+
+    @Override
+    public long getTicks() {
+        return ticks;
+    }
+
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public long getFoodSpawned() {
+        return foodSpawned;
+    }
+
+    @Override
+    public long getInsaneTriggers() {
+        return insaneTriggers;
+    }
+
+    @Override
+    public long getLateFrames() {
+        return lateFrames;
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public long getAllocationRate() {
+        return allocationRate;
+    }
+
+    @Override
+    public double getTickMeanMicros() {
+        return tickTimes.getMean() / 1000;
+    }
+
+    @Override
+    public double getTickP99Micros() {
+        return tickTimes.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getRenderMeanMicros() {
+        return renderTimes.getMean() / 1000;
+    }
+
+    @Override
+    public double getRenderP99Micros() {
+        return renderTimes.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getFrameP99Micros() {
+        return frameTimes.getPercentile(99) / 1000.0;
+    }
+
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    public LatencyHistogram getCollisionTimes() {
+        return collisionTimes;
+    }
+
+    public LatencyHistogram getSpawnTimes() {
+        return spawnTimes;
+    }
+
+    public LatencyHistogram getRenderTimes() {
+        return renderTimes;
+    }
+
+    public LatencyHistogram getFrameTimes() {
+        return frameTimes;
+    }
+    //endregion
+}
@@ -0,0 +1,51 @@
+package org.example.snakegame;
+
+/**
+ * Management interface of Metrics, shown in JConsole or VisualVM under
+ * org.example.snakegame:type=Metrics. Durations are in microseconds.
+ */
+public interface MetricsMXBean
+{
+    long getTicks();
+
+    long getFrames();
+
+    long getFoodSpawned();
+
+    long getInsaneTriggers();
+
+    /**
+     * @return frames that came more than two vsync intervals after the previous one
+     */
+    long getLateFrames();
+
+    /**
+     * @return frames after which the loop gave up catching up and dropped simulated time
+     */
+    long getDroppedFrames();
+
+    /**
+     * @return bytes allocated per second by the game loop thread, at the last sample
+     */
+    long getAllocationRate();
+
+    double getTickMeanMicros();
+
+    double getTickP99Micros();
+
+    double getRenderMeanMicros();
+
+    double getRenderP99Micros();
+
+    double getFrameP99Micros();
+
+    /**
+     * @return all counters and histograms in the text format of the dump file
+     */
+    String getReport();
+
+    /**
+     * Sets all counters and histograms back to 0
+     */
+    void reset();
+}
@@ -0,0 +1,97 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format between a GameServer and its clients.
+ * The server sends frames of an int length followed by a type byte and the payload:
+ * - WELCOME: the snake of the client, the board size, the number of snakes and
+ *   food items and the tick length.
+ * - KEYFRAME: the tick and the complete arena, every snake with its flags and
+ *   body as packed cells (see Snake), then every food item. Sent when a client
+ *   joins, when a round starts and when a client fell too far behind for deltas.
+ * - DELTA: the tick, the server time it was sent at and only what changed
+ *   since the previous tick: for each changed snake its index, one flags byte
+ *   and, if it GREW, by how many segments, for each changed food its index,
+ *   type and cell. A move only carries the
+ *   direction, since the new head is the neighbour of the old one and the tail
+ *   that leaves is the last cell the client already has.
+ * A client sends single bytes, each the ordinal of a Direction to turn to.
+ * Indices, lengths and cells are varints, everything else is big-endian.
+ */
+public final class NetProtocol
+{
+    static final byte WELCOME = 1;
+    static final byte KEYFRAME = 2;
+    static final byte DELTA = 3;
+
+    // Flags of a snake in a keyframe or delta, the low two bits are the direction
+    static final int DIRECTION_MASK = 3;
+    static final int MOVED = 4;
+    static final int GREW = 8;
+    static final int DIED = 16;
+    static final int HEAD_ON = 32; // Died by meeting another head, the head cell is freed too
+    static final int ENLARGED = 64;
+    static final int ALIVE = 128; // Keyframes only
+
+    static final int MAX_FRAME = 1 << 28; // Larger frames are treated as corrupt
+
+    private NetProtocol()
+    {
+    }
+
+    /**
+     * Takes the next complete frame out of a receive buffer
+     * @param in the buffer in read mode, its position is moved past the frame
+     * @return a view of the frame from the type byte on, or null if the frame is not complete yet
+     * @throws IOException if the frame length is invalid
+     */
+    static ByteBuffer nextFrame(ByteBuffer in) throws IOException
+    {
+        if (in.remaining() < Integer.BYTES) return null;
+        int length = in.getInt(in.position());
+        if (length < 1 || length > MAX_FRAME) throw new IOException("Invalid frame length " + length);
+        if (in.remaining() < Integer.BYTES + length) return null;
+        int start = in.position() + Integer.BYTES;
+        ByteBuffer frame = in.slice(start, length);
+        in.position(start + length);
+        return frame;
+    }
+
+    /**
+     * Returns a buffer with room for the given number of bytes after its position,
+     * the buffer itself if it is large enough, otherwise a copy twice the needed size
+     * @param buffer the buffer in write mode
+     * @param needed the number of bytes to be written
+     * @return the buffer to write to
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer buffer, int needed)
+    {
+        if (buffer.remaining() >= needed) return buffer;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity(), buffer.position() + needed) * 2);
+        return larger.put(buffer.flip());
+    }
+
+    // Seven bits per byte, the high bit is set on all bytes but the last, like in a Replay
+    static void putVarInt(ByteBuffer out, int value)
+    {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer in) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!in.hasRemaining()) throw new IOException("Truncated frame");
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt frame");
+    }
+}
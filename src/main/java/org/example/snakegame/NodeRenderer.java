@@ -0,0 +1,223 @@
+package org.example.snakegame;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.text.Text;
+
+/**
+ * Renders the snake with one Circle node per segment, in retained mode.
+ * The food is shown with a Food image view.
+ * The circles are kept in a ring in body order. When the snake moves, the
+ * tail circle is reused as the new head, and only circles for new segments
+ * are added, so the work per frame does not grow with the length of the snake.
+ * Circles that are no longer needed are hidden and kept for later.
+ * Between ticks the head circle slides towards its new cell and one extra
+ * circle slides the end of the tail after it.
+ * Food and circles live in a board pane that is shifted by the camera,
+ * so on large boards following the head only moves that one pane.
+ */
+public class NodeRenderer implements GameRenderer
+{
+    private final Pane board = new Pane();
+    private final int tileSize;
+    private final Camera camera;
+    private final Text scoreText = new Text();
+    private final Text lengthText = new Text();
+    private final Hud hud = new Hud();
+    private final Food food;
+    private final Circle tailEnd;
+
+    private Circle[] nodes = new Circle[64]; // Ring in body order, size is a power of two
+    private int headIndex;
+    private int count;
+    private Circle[] spare = new Circle[16]; // Hidden circles ready for reuse
+    private int spareCount;
+
+    private Snake renderedSnake;
+    private long renderedMoves;
+    private Circle enlargedNode;
+    private FoodType renderedFoodType;
+    private int renderedFoodX;
+    private int renderedFoodY;
+
+    /**
+     * Creates the renderer and adds the board and the score and length texts to the pane
+     * @param gamePane the pane to draw on
+     * @param config the board, viewport and tile size
+     */
+    public NodeRenderer(Pane gamePane, GameConfig config)
+    {
+        this.tileSize = config.getTileSize();
+        this.camera = new Camera(config.getWidth(), config.getHeight(),
+                config.getViewportWidth(), config.getViewportHeight());
+        gamePane.getChildren().add(board);
+        this.food = new Food(board);
+        this.tailEnd = new Circle(tileSize / 2.0, Color.PINK);
+        board.getChildren().add(tailEnd);
+
+        // Score text setup
+        scoreText.setFill(Color.WHITE);
+        scoreText.setLayoutX(10);
+        scoreText.setLayoutY(20);
+        gamePane.getChildren().add(scoreText);
+
+        // Length text setup
+        lengthText.setFill(Color.WHITE);
+        lengthText.setLayoutX(10);
+        lengthText.setLayoutY(40);
+        gamePane.getChildren().add(lengthText);
+    }
+
+    /**
+     * Renders the snake, food, score and length on screen.
+     * Only the segments that changed since the last call are touched.
+     * @param state the state to render
+     * @param alpha how far the game is into the next step, from 0 to 1
+     */
+    @Override
+    public void render(GameState state, double alpha)
+    {
+        if (state.getFoodType() != renderedFoodType
+                || state.getFoodX() != renderedFoodX || state.getFoodY() != renderedFoodY) {
+            renderedFoodType = state.getFoodType();
+            renderedFoodX = state.getFoodX();
+            renderedFoodY = state.getFoodY();
+            food.show(renderedFoodType, renderedFoodX, renderedFoodY, tileSize);
+        }
+
+        Snake snake = state.getSnake();
+        int length = snake.getLength();
+        long moved = snake.getMoves() - renderedMoves;
+
+        boolean cameraMoved = snake != renderedSnake
+                ? camera.center(snake.getHeadX(), snake.getHeadY())
+                : camera.follow(snake.getHeadX(), snake.getHeadY());
+        if (cameraMoved || renderedSnake == null) {
+            board.setTranslateX(-camera.getOffsetX() * tileSize);
+            board.setTranslateY(-camera.getOffsetY() * tileSize);
+        }
+
+        if (snake != renderedSnake || moved > count || length < count) {
+            // New game or too far behind, place every circle again
+            resize(length);
+            for (int i = 0; i < count; i++) {
+                place(node(i), snake, i);
+            }
+        } else {
+            // Reuse the tail circles as the new heads
+            for (int i = 0; i < moved; i++) {
+                int tail = (headIndex + count - 1) & (nodes.length - 1);
+                Circle c = nodes[tail];
+                nodes[tail] = null;
+                headIndex = (headIndex - 1) & (nodes.length - 1);
+                nodes[headIndex] = c;
+            }
+            // The old head was drawn between two cells, put it back on its own
+            for (int i = 0; i <= moved && i < count; i++) {
+                place(node(i), snake, i);
+            }
+            // Segments added by grow() sit at the end of the body
+            int before = count;
+            resize(length);
+            for (int i = before; i < count; i++) {
+                place(node(i), snake, i);
+            }
+        }
+        renderedSnake = snake;
+        renderedMoves = snake.getMoves();
+
+        // Slide the head from the previous head cell and the tail end from the previous tail cell
+        if (count > 0) {
+            int previousHeadX = length > 1 ? snake.getX(1) : snake.getPreviousTailX();
+            int previousHeadY = length > 1 ? snake.getY(1) : snake.getPreviousTailY();
+            placeBetween(node(0), previousHeadX, previousHeadY, snake.getHeadX(), snake.getHeadY(), alpha);
+            placeBetween(tailEnd, snake.getPreviousTailX(), snake.getPreviousTailY(),
+                    snake.getX(length - 1), snake.getY(length - 1), alpha);
+        }
+
+        // If head is enlarged, increase size
+        if (enlargedNode != null) enlargedNode.setRadius(tileSize / 2.0);
+        enlargedNode = null;
+        if (count > 0 && snake.isHeadEnlarged()) {
+            enlargedNode = node(0);
+            enlargedNode.setRadius(tileSize / 1.2);
+        }
+
+        // Update display score and length only when they changed, setText() lays the text out again
+        if (hud.update(state)) {
+            if (!scoreText.getText().equals(hud.getScoreText())) scoreText.setText(hud.getScoreText());
+            if (!lengthText.getText().equals(hud.getLengthText())) lengthText.setText(hud.getLengthText());
+        }
+    }
+
+    private Circle node(int index)
+    {
+        return nodes[(headIndex + index) & (nodes.length - 1)];
+    }
+
+    private void place(Circle c, Snake snake, int index)
+    {
+        c.setLayoutX(snake.getX(index) * tileSize + tileSize / 2.0);
+        c.setLayoutY(snake.getY(index) * tileSize + tileSize / 2.0);
+    }
+
+    private void placeBetween(Circle c, int fromX, int fromY, int toX, int toY, double alpha)
+    {
+        c.setLayoutX((fromX + (toX - fromX) * alpha) * tileSize + tileSize / 2.0);
+        c.setLayoutY((fromY + (toY - fromY) * alpha) * tileSize + tileSize / 2.0);
+    }
+
+    /**
+     * Adds or hides circles at the tail until there is one per segment
+     */
+    private void resize(int length)
+    {
+        while (count < length) {
+            if (count == nodes.length) {
+                Circle[] larger = new Circle[nodes.length * 2];
+                for (int i = 0; i < count; i++) {
+                    larger[i] = node(i);
+                }
+                nodes = larger;
+                headIndex = 0;
+            }
+            nodes[(headIndex + count) & (nodes.length - 1)] = obtain();
+            count++;
+        }
+        while (count > length) {
+            int tail = (headIndex + count - 1) & (nodes.length - 1);
+            release(nodes[tail]);
+            nodes[tail] = null;
+            count--;
+        }
+    }
+
+    private Circle obtain()
+    {
+        if (spareCount > 0) {
+            Circle c = spare[--spareCount];
+            spare[spareCount] = null;
+            c.setVisible(true);
+            return c;
+        }
+        Circle c = new Circle(tileSize / 2.0, Color.PINK);
+        board.getChildren().add(c);
+        return c;
+    }
+
+    private void release(Circle c)
+    {
+        c.setVisible(false);
+        if (c == enlargedNode) {
+            c.setRadius(tileSize / 2.0);
+            enlargedNode = null;
+        }
+        if (spareCount == spare.length) {
+            Circle[] larger = new Circle[spare.length * 2];
+            System.arraycopy(spare, 0, larger, 0, spareCount);
+            spare = larger;
+        }
+        spare[spareCount++] = c;
+    }
+}
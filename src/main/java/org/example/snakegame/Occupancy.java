@@ -0,0 +1,98 @@
+package org.example.snakegame;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+/**
+ * The set of board cells covered by a snake.
+ * Small boards use a bitset plus a free-cell list over the whole board,
+ * large boards a hash set that only grows with the snake, so memory stays
+ * proportional to the snake length instead of the board area.
+ * A cell is identified by its index y * width + x, coordinates must be on the board.
+ */
+public interface Occupancy
+{
+    /**
+     * Boards with more cells than this use the hash set
+     */
+    int DENSE_LIMIT = 1 << 20;
+
+    /**
+     * Creates the occupancy that fits the board size
+     * @param width the width of the board in cells
+     * @param height the height of the board in cells
+     * @return an empty occupancy
+     */
+    static Occupancy forBoard(int width, int height)
+    {
+        if ((long) width * height <= DENSE_LIMIT) {
+            return new GridOccupancy(width, height);
+        }
+        return new HashOccupancy(width, height);
+    }
+
+    /**
+     * Checks if a cell is covered
+     * @param x the x grid position
+     * @param y the y grid position
+     * @return true if the cell is covered
+     */
+    boolean contains(int x, int y);
+
+    /**
+     * Marks a cell as covered
+     * @param x the x grid position
+     * @param y the y grid position
+     */
+    void add(int x, int y);
+
+    /**
+     * Marks a cell as free
+     * @param x the x grid position
+     * @param y the y grid position
+     */
+    void remove(int x, int y);
+
+    /**
+     * Returns the number of cells that are not covered
+     * @return the number of free cells
+     */
+    long freeCount();
+
+    /**
+     * Picks a free cell
+     * @param random the random generator to use
+     * @return the cell index y * width + x, or -1 if the board is full
+     */
+    int sampleFree(Random random);
+
+    /**
+     * Returns how many ints writeOrder() writes. Which cell sampleFree() picks
+     * may depend on the order in which cells were added and removed, a snapshot
+     * has to keep that order to continue a game exactly.
+     * @return the number of ints, 0 if the order does not matter
+     */
+    default int getOrderSize()
+    {
+        return 0;
+    }
+
+    /**
+     * Writes the internal order of the free cells
+     * @param out the buffer to write getOrderSize() ints to
+     */
+    default void writeOrder(IntBuffer out)
+    {
+    }
+
+    /**
+     * Restores the order written by writeOrder(), after the same cells were added
+     * @param in the buffer to read from
+     * @param size the number of ints written
+     * @throws IllegalArgumentException if the order does not match the covered cells
+     */
+    default void readOrder(IntBuffer in, int size)
+    {
+        if (size != 0) throw new IllegalArgumentException("No order expected");
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes ARGB frames as PNG files without going through ImageIO.
+ * The frames of the FrameRaster are opaque, so they are stored as 8 bit RGB.
+ * Every row uses the Sub filter, which turns the large areas of one color into
+ * runs of zeros that deflate well even at the fastest level.
+ * An encoder keeps its Deflater and byte buffers between frames, so encoding
+ * does not allocate once the buffers fit the frame size. It is not thread-safe,
+ * every encoding thread needs its own.
+ */
+public class PngEncoder
+{
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    private static final int BYTES_PER_PIXEL = 3;
+    private static final int FILTER_SUB = 1;
+
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] header = new byte[13];
+    private final byte[] word = new byte[4];
+    private byte[] raw = new byte[0];
+    private byte[] compressed = new byte[0];
+
+    /**
+     * Creates an encoder
+     * @param level the deflate level from 0 to 9, Deflater.BEST_SPEED is usually the best trade-off for bulk export
+     */
+    public PngEncoder(int level)
+    {
+        this.deflater = new Deflater(level);
+    }
+
+    /**
+     * Writes a frame as a complete PNG file to a stream, the alpha channel is ignored
+     * @param pixels the ARGB pixels row by row
+     * @param width the width of the frame in pixels
+     * @param height the height of the frame in pixels
+     * @param out the stream to write to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void write(int[] pixels, int width, int height, OutputStream out) throws IOException
+    {
+        if (width < 1 || height < 1 || (long) width * height > pixels.length) {
+            throw new IllegalArgumentException("Invalid frame size " + width + " x " + height);
+        }
+        int rawSize = filter(pixels, width, height);
+        int compressedSize = deflate(rawSize);
+
+        out.write(SIGNATURE);
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // Bits per channel
+        header[9] = 2; // Color type RGB
+        header[10] = 0; // Deflate
+        header[11] = 0; // Adaptive filtering
+        header[12] = 0; // Not interlaced
+        writeChunk(out, IHDR, header, header.length);
+        writeChunk(out, IDAT, compressed, compressedSize);
+        writeChunk(out, IEND, compressed, 0);
+    }
+
+    /**
+     * Turns the pixels into Sub filtered RGB rows, each starting with its filter type
+     * @return the number of bytes in raw
+     */
+    private int filter(int[] pixels, int width, int height)
+    {
+        int rowSize = 1 + width * BYTES_PER_PIXEL;
+        int size = rowSize * height;
+        if (raw.length < size) raw = new byte[size];
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            raw[i++] = FILTER_SUB;
+            int row = y * width;
+            int previous = 0; // The pixel to the left, black before the first
+            for (int x = 0; x < width; x++) {
+                int color = pixels[row + x];
+                raw[i++] = (byte) ((color >> 16) - (previous >> 16));
+                raw[i++] = (byte) ((color >> 8) - (previous >> 8));
+                raw[i++] = (byte) (color - previous);
+                previous = color;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Compresses the filtered rows into one zlib stream
+     * @return the number of bytes in compressed
+     */
+    private int deflate(int rawSize)
+    {
+        deflater.reset();
+        deflater.setInput(raw, 0, rawSize);
+        deflater.finish();
+        if (compressed.length == 0) compressed = new byte[Math.max(1024, rawSize / 4)];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                byte[] larger = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, larger, 0, size);
+                compressed = larger;
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        return size;
+    }
+
+    private void writeChunk(OutputStream out, byte[] type, byte[] data, int length) throws IOException
+    {
+        putInt(word, 0, length);
+        out.write(word);
+        crc.reset();
+        crc.update(type);
+        crc.update(data, 0, length);
+        out.write(type);
+        out.write(data, 0, length);
+        putInt(word, 0, (int) crc.getValue());
+        out.write(word);
+    }
+
+    private static void putInt(byte[] target, int offset, int value)
+    {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.snakegame;
+
+/**
+ * Decides where the snake goes next, used to play games without a keyboard.
+ * The state passed in is the live game, a policy must only read it.
+ * One policy instance plays one game at a time, so it may keep buffers between calls.
+ */
+@FunctionalInterface
+public interface Policy
+{
+    /**
+     * Picks the direction for the next step
+     * @param view the current state of the game
+     * @return the direction to turn to, or null to keep going straight
+     */
+    Direction decide(GameState view);
+}
@@ -0,0 +1,240 @@
+package org.example.snakegame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Everything needed to play one game again: the board, the speeds, the seed
+ * of the game and the turns with the tick they were made at.
+ * Since the engine is deterministic, nothing else has to be stored.
+ * In the binary format every turn is one varint of (ticks since the previous
+ * turn << 2 | direction), which is one byte for turns less than 32 ticks apart.
+ */
+public class Replay
+{
+    private static final int MAGIC = 0x534E4B52; // "SNKR"
+    private static final int VERSION = 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final SpeedProfile speeds;
+    private final double startSpeed;
+    private final long seed;
+    private final long[] turnTicks;
+    private final Direction[] turns;
+    private final long ticks;
+
+    /**
+     * Creates a replay
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the speed profile of the engine
+     * @param startSpeed the step length the game started with
+     * @param seed the seed of the game
+     * @param turnTicks for every turn, the number of steps made before it, in ascending order
+     * @param turns the directions turned to
+     * @param ticks the number of steps the game lasted
+     */
+    public Replay(int width, int height, SpeedProfile speeds, double startSpeed, long seed,
+                  long[] turnTicks, Direction[] turns, long ticks)
+    {
+        if (turnTicks.length != turns.length) throw new IllegalArgumentException("Every turn needs a tick");
+        this.width = width;
+        this.height = height;
+        this.speeds = speeds;
+        this.startSpeed = startSpeed;
+        this.seed = seed;
+        this.turnTicks = turnTicks;
+        this.turns = turns;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Writes the replay in the binary format
+     * @param out the stream to write to, not closed
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeDouble(speeds.getNormalSpeed());
+        data.writeDouble(speeds.getBoostSpeed());
+        data.writeDouble(speeds.getRestartSpeed());
+        data.writeDouble(startSpeed);
+        data.writeLong(seed);
+        writeVarLong(data, ticks);
+        writeVarLong(data, turns.length);
+        long previous = 0;
+        for (int i = 0; i < turns.length; i++) {
+            writeVarLong(data, (turnTicks[i] - previous) << 2 | turns[i].ordinal());
+            previous = turnTicks[i];
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a replay written by write()
+     * @param in the stream to read from, not closed
+     * @return the replay
+     * @throws IOException if reading fails or the data is not a replay
+     */
+    public static Replay read(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) throw new IOException("Not a replay");
+        int version = data.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+        int width = data.readInt();
+        int height = data.readInt();
+        double normalSpeed = data.readDouble();
+        double boostSpeed = data.readDouble();
+        double restartSpeed = data.readDouble();
+        double startSpeed = data.readDouble();
+        if (!SpeedProfile.isValid(normalSpeed) || !SpeedProfile.isValid(boostSpeed)
+                || !SpeedProfile.isValid(restartSpeed) || !SpeedProfile.isValid(startSpeed)) {
+            throw new IOException("Corrupt replay");
+        }
+        SpeedProfile speeds = new SpeedProfile(normalSpeed, boostSpeed, restartSpeed);
+        long seed = data.readLong();
+        long ticks = readVarLong(data);
+        long count = readVarLong(data);
+        // At most one key press and one policy turn per tick
+        if (count > 2 * (ticks + 1) || count > Integer.MAX_VALUE) throw new IOException("Corrupt replay");
+
+        long[] turnTicks = new long[(int) count];
+        Direction[] turns = new Direction[(int) count];
+        long tick = 0;
+        for (int i = 0; i < count; i++) {
+            long value = readVarLong(data);
+            tick += value >>> 2;
+            turnTicks[i] = tick;
+            turns[i] = DIRECTIONS[(int) (value & 3)];
+        }
+        return new Replay(width, height, speeds, startSpeed, seed, turnTicks, turns, ticks);
+    }
+
+    /**
+     * Saves the replay to a file
+     * @param file the file, replaced if it exists
+     * @throws IOException if writing fails
+     */
+    public void save(Path file) throws IOException
+    {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Loads a replay from a file
+     * @param file the file
+     * @return the replay
+     * @throws IOException if reading fails or the file is not a replay
+     */
+    public static Replay load(Path file) throws IOException
+    {
+        return read(new ByteArrayInputStream(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Returns the replay in the binary format
+     * @return the encoded replay
+     */
+    public byte[] toBytes()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + turns.length * 2);
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        return out.toByteArray();
+    }
+
+    // Seven bits per byte, the high bit is set on all bytes but the last
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt replay");
+    }
+
+    //region Getter
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public SpeedProfile getSpeeds() {
+        return speeds;
+    }
+
+    public double getStartSpeed() {
+        return startSpeed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of recorded turns
+     * @return the number of turns
+     */
+    public int getTurnCount() {
+        return turns.length;
+    }
+
+    /**
+     * Returns after how many steps a turn was made
+     * @param index the index of the turn
+     * @return the tick of the turn
+     */
+    public long getTurnTick(int index) {
+        return turnTicks[index];
+    }
+
+    public Direction getTurn(int index) {
+        return turns[index];
+    }
+
+    /**
+     * Returns how many steps the recorded game lasted
+     * @return the number of ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+    //endregion
+}
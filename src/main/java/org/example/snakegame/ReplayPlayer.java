@@ -0,0 +1,103 @@
+package org.example.snakegame;
+
+import java.nio.file.Path;
+
+/**
+ * Plays a Replay on its own SimulationEngine.
+ * step() applies the turns recorded for the current tick and advances one
+ * tick, so the player can be driven by the GameLoop at any speed or
+ * fast-forwarded headless with fastForward().
+ */
+public class ReplayPlayer
+{
+    private final Replay replay;
+    private final SimulationEngine engine;
+    private int nextTurn;
+
+    /**
+     * Creates the player and sets up the recorded game at tick 0
+     * @param replay the replay to play
+     */
+    public ReplayPlayer(Replay replay)
+    {
+        this(replay, FoodTable.DEFAULT);
+    }
+
+    /**
+     * Creates the player and sets up the recorded game at tick 0
+     * @param replay the replay to play
+     * @param foods the food table the game was recorded with
+     */
+    public ReplayPlayer(Replay replay, FoodTable foods)
+    {
+        this.replay = replay;
+        this.engine = new SimulationEngine(replay.getWidth(), replay.getHeight(), replay.getSpeeds(), foods,
+                replay.getSeed());
+        restart();
+    }
+
+    /**
+     * Goes back to the start of the recorded game
+     */
+    public void restart()
+    {
+        engine.reset(replay.getSeed(), replay.getStartSpeed());
+        nextTurn = 0;
+    }
+
+    /**
+     * Applies the turns of the current tick and advances the game by one tick
+     * @return true if the game goes on, false once the snake died or the recording ended
+     */
+    public boolean step()
+    {
+        GameState state = engine.getState();
+        if (state.getTick() >= replay.getTicks()) return false;
+        while (nextTurn < replay.getTurnCount() && replay.getTurnTick(nextTurn) == state.getTick()) {
+            engine.turn(replay.getTurn(nextTurn++));
+        }
+        return engine.step();
+    }
+
+    /**
+     * Plays the rest of the game as fast as possible
+     * @return the state at the end of the recording
+     */
+    public GameState fastForward()
+    {
+        while (step()) {
+            // Nothing to do between steps
+        }
+        return engine.getState();
+    }
+
+    /**
+     * Returns the engine the replay is played on, e.g. to render its state
+     * @return the engine
+     */
+    public SimulationEngine getEngine() {
+        return engine;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Fast-forwards a replay file and prints how the game ended
+     * @param args the replay file and, if it was not recorded with the classic food, the food table file
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1 || args.length > 2) {
+            throw new IllegalArgumentException("Usage: ReplayPlayer <replay file> [food table file]");
+        }
+        FoodTable foods = args.length == 2 ? FoodTable.load(Path.of(args[1])) : FoodTable.DEFAULT;
+        ReplayPlayer player = new ReplayPlayer(Replay.load(Path.of(args[0])), foods);
+        long start = System.nanoTime();
+        GameState state = player.fastForward();
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d ticks in %.2f ms, %s, length %d%s%n", state.getTick(), nanos / 1e6,
+                state.getScore().displayScore(), state.getSnake().getLength(), state.isGameOver() ? ", game over" : "");
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Collects the turns of the running game for a Replay.
+ * The engine creates one per game and records every turn that changed the
+ * direction, into growing arrays, so recording a turn rarely allocates.
+ */
+public class ReplayRecorder
+{
+    private final int width;
+    private final int height;
+    private final SpeedProfile speeds;
+    private final double startSpeed;
+    private final long seed;
+    private long[] turnTicks = new long[16];
+    private Direction[] turns = new Direction[16];
+    private int count;
+
+    /**
+     * Creates a recorder for a game that starts now
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the speed profile of the engine
+     * @param startSpeed the step length the game starts with
+     * @param seed the seed of the game
+     */
+    public ReplayRecorder(int width, int height, SpeedProfile speeds, double startSpeed, long seed)
+    {
+        this.width = width;
+        this.height = height;
+        this.speeds = speeds;
+        this.startSpeed = startSpeed;
+        this.seed = seed;
+    }
+
+    /**
+     * Records a turn
+     * @param tick the number of steps made before the turn
+     * @param direction the direction turned to
+     */
+    public void record(long tick, Direction direction)
+    {
+        if (count == turns.length) {
+            turnTicks = Arrays.copyOf(turnTicks, count * 2);
+            turns = Arrays.copyOf(turns, count * 2);
+        }
+        turnTicks[count] = tick;
+        turns[count] = direction;
+        count++;
+    }
+
+    /**
+     * Returns the game recorded so far
+     * @param ticks the number of steps made so far
+     * @return the replay
+     */
+    public Replay toReplay(long ticks)
+    {
+        return new Replay(width, height, speeds, startSpeed, seed,
+                Arrays.copyOf(turnTicks, count), Arrays.copyOf(turns, count), ticks);
+    }
+}
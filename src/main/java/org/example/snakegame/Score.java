@@ -1,13 +1,17 @@
 package org.example.snakegame;
 
+import java.util.function.IntConsumer;
+
 /**
  * Class to control the score
+ * A listener is told about every change, so a display only updates when the score changed.
  */
 
 public class Score
 {
     // Variable to store the score
     private int value;
+    private IntConsumer listener; // null if nobody listens
 
     /**
      * Constructor
@@ -24,6 +28,7 @@ public class Score
     public void updateScore(int points)
     {
         this.value += points;
+        if (listener != null) listener.accept(value);
     }
 
     /**
@@ -41,6 +46,26 @@ public class Score
     public void resetScore()
     {
         this.value = 0;
+        if (listener != null) listener.accept(value);
+    }
+
+    /**
+     * Sets the listener that receives the new score after every change
+     * @param listener the listener, or null to remove it
+     */
+    public void setListener(IntConsumer listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Appends the text of displayScore() without creating a String
+     * @param out the buffer to append to
+     * @return the buffer
+     */
+    public StringBuilder appendScore(StringBuilder out)
+    {
+        return out.append("Score: ").append(this.value);
     }
 
     /**
@@ -49,6 +74,6 @@ public class Score
      */
     public String displayScore()
     {
-        return "Score: " + this.value;
+        return appendScore(new StringBuilder(16)).toString();
     }
 }
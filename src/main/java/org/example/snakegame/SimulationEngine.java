@@ -0,0 +1,439 @@
+package org.example.snakegame;
+
+/**
+ * Runs the rules of the game on a GameState without any JavaFX dependency.
+ * Each call to step() advances the game by exactly one tick, so the engine
+ * can be driven by the Game's game loop or run headless as fast as the CPU allows.
+ * Timed effects use simulated time (the sum of the step lengths), which keeps
+ * a game with the same seed and the same inputs fully deterministic. They are
+ * scheduled on a TimerWheel, so a step only looks at the effects that are due.
+ * Every game has its own seed, drawn from the previous game's generator, and
+ * its turns are recorded, so getReplay() can reproduce any single game.
+ * What food does is looked up in a FoodTable, see there how effects combine.
+ */
+public class SimulationEngine
+{
+    static final int WIDTH = 30; // Default board size in cells
+    static final int HEIGHT = 30;
+    static final long FOOD_LIFETIME = 7000; // Food relocates after this many ms
+    static final int INSANE_INTERVAL = 10;
+    static final int BLINKS = 10; // Colours shown when insane mode starts
+    static final long BLINK_INTERVAL = 200; // ms per colour
+
+    // Kinds of timers on the wheel
+    private static final int SPEED_RESET = 0;
+    private static final int HEAD_RESET = 1;
+    private static final int FOOD_EXPIRY = 2;
+    private static final int BLINK = 3;
+    private static final int MULTIPLIER_RESET = 4;
+    static final int TIMER_SLOTS = 256;
+    static final long TIMER_RESOLUTION = 25; // ms per slot, the wheel turns every 6.4 s
+
+    private static final SimulationListener NO_LISTENER = new SimulationListener() { };
+
+    private final int width;
+    private final int height;
+    private final SpeedProfile speeds;
+    private final FoodTable foods;
+    private final double[] foodSpeeds; // Step length set by each food type, NaN for none
+    private final GameRandom random;
+    private SimulationListener listener = NO_LISTENER;
+    private GameState state;
+    private ReplayRecorder recorder; // null for a loaded state, which cannot be replayed
+    private final InputQueue input = new InputQueue(Direction.RIGHT);
+    private Metrics metrics; // null when nothing is measured, e.g. in batch runs
+
+    private final TimerWheel timers = new TimerWheel(TIMER_SLOTS, TIMER_RESOLUTION);
+    private final TimerWheel.Handler timerHandler = this::onTimer;
+    private int speedTimer = TimerWheel.NONE;
+    private int headTimer = TimerWheel.NONE;
+    private int multiplierTimer = TimerWheel.NONE;
+    private int foodTimer = TimerWheel.NONE;
+    private int blinkTimer = TimerWheel.NONE;
+
+    /**
+     * Creates an engine for a board of the given size with the classic speeds and starts the first game
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param seed seed for food placement and insane mode
+     */
+    public SimulationEngine(int width, int height, long seed)
+    {
+        this(width, height, SpeedProfile.CLASSIC, seed);
+    }
+
+    /**
+     * Creates an engine for a board of the given size and starts the first game
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snake
+     * @param seed seed of the first game, the seeds of later games are derived from it
+     */
+    public SimulationEngine(int width, int height, SpeedProfile speeds, long seed)
+    {
+        this(width, height, speeds, FoodTable.DEFAULT, seed);
+    }
+
+    /**
+     * Creates an engine for a board of the given size with its own food and starts the first game
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snake
+     * @param foods the food types and their effects
+     * @param seed seed of the first game, the seeds of later games are derived from it
+     */
+    public SimulationEngine(int width, int height, SpeedProfile speeds, FoodTable foods, long seed)
+    {
+        if (width < 1 || height < 1 || width > Snake.MAX_BOARD_SIZE || height > Snake.MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException("Board must be between 1x1 and "
+                    + Snake.MAX_BOARD_SIZE + "x" + Snake.MAX_BOARD_SIZE + " cells");
+        }
+        this.width = width;
+        this.height = height;
+        this.speeds = speeds;
+        this.foods = foods;
+        this.foodSpeeds = foods.resolveSpeeds(speeds);
+        this.random = new GameRandom(seed);
+        reset(seed, speeds.getNormalSpeed());
+    }
+
+    /**
+     * Throws away the current game and starts a new one
+     * with the restart speed of the speed profile
+     */
+    public void reset()
+    {
+        reset(speeds.getRestartSpeed());
+    }
+
+    /**
+     * Throws away the current game and starts a new one
+     * @param speed the step length of the new snake in ms
+     */
+    public void reset(double speed)
+    {
+        reset(random.nextLong(), speed);
+    }
+
+    /**
+     * Throws away the current game and starts a new one with the given seed,
+     * the same seed, speed and turns always give the same game
+     * @param seed seed for food placement and insane mode
+     * @param speed the step length of the new snake in ms
+     */
+    public void reset(long seed, double speed)
+    {
+        if (!SpeedProfile.isValid(speed)) throw new IllegalArgumentException("Invalid step length " + speed);
+        random.setSeed(seed);
+        state = new GameState(width, height);
+        state.setSeed(seed);
+        state.getSnake().setSpeed(speed);
+        recorder = new ReplayRecorder(width, height, speeds, speed, seed);
+        input.clear(state.getSnake().getDirection());
+        clearTimers();
+        spawnFood();
+    }
+
+    /**
+     * Continues with the given state instead of the current game.
+     * Places food first if the state has none yet and the game is not over.
+     * The running effects are scheduled again from the deadlines in the state.
+     * @param state the state to continue with, for a board of the engine's size
+     */
+    public void load(GameState state)
+    {
+        if (state.getWidth() != width || state.getHeight() != height) {
+            throw new IllegalArgumentException("State is for a board of " + state.getWidth() + "x" + state.getHeight()
+                    + ", engine is " + width + "x" + height);
+        }
+        if (state.getFoodType() != null && state.getFoodType() != foods.get(state.getFoodType().getIndex())) {
+            throw new IllegalArgumentException("State is for another food table");
+        }
+        this.state = state;
+        this.recorder = null;
+        input.clear(state.getSnake().getDirection());
+        clearTimers();
+        if (state.getSpeedResetAt() >= 0) speedTimer = timers.schedule(state.getSpeedResetAt(), SPEED_RESET, 0);
+        if (state.getHeadResetAt() >= 0) headTimer = timers.schedule(state.getHeadResetAt(), HEAD_RESET, 0);
+        if (state.getMultiplierResetAt() >= 0) {
+            multiplierTimer = timers.schedule(state.getMultiplierResetAt(), MULTIPLIER_RESET, 0);
+        }
+        if (state.getBlink() >= 0) blinkTimer = timers.schedule(state.getNextBlinkAt(), BLINK, state.getBlink());
+        if (state.getFoodType() == null) {
+            if (!state.isGameOver()) spawnFood();
+        } else {
+            foodTimer = timers.schedule(state.getFoodExpiresAt(), FOOD_EXPIRY, 0);
+        }
+    }
+
+    /**
+     * Sets the listener that is told about food, insane mode and game over
+     * @param listener the listener, or null to remove it
+     */
+    public void setListener(SimulationListener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    /**
+     * Sets where tick, collision and food spawn times are recorded
+     * @param metrics the metrics, or null to stop measuring
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SpeedProfile getSpeeds() {
+        return speeds;
+    }
+
+    public FoodTable getFoods() {
+        return foods;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the current game as a replay, with the turns up to now
+     * @return the replay
+     * @throws IllegalStateException if the game was loaded with load(), its seed is unknown
+     */
+    public Replay getReplay() {
+        if (recorder == null) throw new IllegalStateException("A loaded game cannot be replayed");
+        return recorder.toReplay(state.getTick());
+    }
+
+    /**
+     * Queues a turn, the same way a key press does. The next steps take one
+     * queued turn each, so quick key combos are kept instead of dropped.
+     * May be called from any one thread other than the one that steps the engine.
+     * @param direction the direction to turn to
+     * @return false if the turn reverses or repeats the last queued direction, or too many are queued
+     */
+    public boolean steer(Direction direction) {
+        return input.offer(direction);
+    }
+
+    /**
+     * Turns the snake right away, without going through the input queue
+     * @param direction the direction to turn to
+     * @return true if the direction changed
+     */
+    boolean turn(Direction direction) {
+        Snake snake = state.getSnake();
+        Direction before = snake.getDirection();
+        snake.turn(direction);
+        if (snake.getDirection() == before) return false;
+        if (recorder != null) recorder.record(state.getTick(), direction);
+        return true;
+    }
+
+    /**
+     * Turns the snake and advances the game by one tick.
+     * Meant for policies and tests, which decide once per step.
+     * @param direction the direction to turn to, or null to keep going straight
+     * @return true if the snake is still alive after the step
+     */
+    public boolean step(Direction direction)
+    {
+        if (direction != null) turn(direction);
+        return step();
+    }
+
+    /**
+     * Advances the game by one tick: applies at most one queued turn, moves
+     * the snake, checks the collisions, eats food and expires timed effects.
+     * @return true if the snake is still alive after the step
+     */
+    public boolean step()
+    {
+        if (metrics == null || state.isGameOver()) return tick();
+        long start = System.nanoTime();
+        boolean alive = tick();
+        metrics.recordTick(System.nanoTime() - start);
+        return alive;
+    }
+
+    private boolean tick()
+    {
+        if (state.isGameOver()) return false;
+
+        Direction queued;
+        while ((queued = input.poll()) != null && !turn(queued)) {
+            // Skip turns that are no longer valid, e.g. after a policy turned the snake
+        }
+
+        Snake snake = state.getSnake();
+        state.advance((long) snake.getSpeed());
+
+        long moveStart = metrics != null ? System.nanoTime() : 0;
+        snake.move();
+        boolean collided = snake.checkEdgeCollision(width, height) || snake.checkCollision();
+        if (metrics != null) metrics.recordCollision(System.nanoTime() - moveStart);
+        if (collided) {
+            state.setGameOver(true);
+            listener.onGameOver();
+            return false;
+        }
+
+        checkFoodCollision();
+        timers.advance(state.getElapsedMillis(), timerHandler);
+        return !state.isGameOver();
+    }
+
+    /**
+     * Checks if the snake's head is on the food cell.
+     * If so, applies the effects of the food from the FoodTable: a speed,
+     * an enlarged head and a score multiplier, each until its own deadline.
+     * Then the snake grows, the score increases by the food's points times
+     * the running multiplier, and a new food item is spawned. Every time the
+     * score passes a multiple of 10, Insane Mode is triggered.
+     */
+    private void checkFoodCollision()
+    {
+        Snake snake = state.getSnake();
+        if (snake.getHeadX() != state.getFoodX() || snake.getHeadY() != state.getFoodY()) return;
+
+        FoodType type = state.getFoodType();
+        int t = type.getIndex();
+        long now = state.getElapsedMillis();
+        // Points are multiplied by the multiplier running before this food
+        int points = foods.points[t] * state.getScoreMultiplier();
+        int effects = foods.effects[t];
+        if ((effects & FoodTable.SPEED) != 0) {
+            snake.setSpeed(foodSpeeds[t]);
+            state.setSpeedResetAt(foods.effectEnd(t, now, state.getSpeedResetAt()));
+            timers.cancel(speedTimer);
+            speedTimer = timers.schedule(state.getSpeedResetAt(), SPEED_RESET, 0);
+        }
+        if ((effects & FoodTable.HEAD) != 0) {
+            snake.enlargeHead();
+            state.setHeadResetAt(foods.effectEnd(t, now, state.getHeadResetAt()));
+            timers.cancel(headTimer);
+            headTimer = timers.schedule(state.getHeadResetAt(), HEAD_RESET, 0);
+        }
+        if ((effects & FoodTable.MULTIPLIER) != 0) {
+            state.setScoreMultiplier(foods.multipliers[t], foods.effectEnd(t, now, state.getMultiplierResetAt()));
+            timers.cancel(multiplierTimer);
+            multiplierTimer = timers.schedule(state.getMultiplierResetAt(), MULTIPLIER_RESET, 0);
+        }
+
+        for (int i = foods.growth[t]; i > 0; i--) {
+            snake.grow();
+        }
+        state.getScore().updateScore(points);
+        state.countEaten(type);
+        listener.onFoodEaten(type);
+        spawnFood();
+
+        if (state.getScore().getScore() >= state.getNextInsaneTrigger()) {
+            triggerInsaneMode();
+            // Next trigger at the next multiple of 10, food worth more points may skip some
+            int next = state.getNextInsaneTrigger();
+            while (next <= state.getScore().getScore()) {
+                next += INSANE_INTERVAL;
+            }
+            state.setNextInsaneTrigger(next);
+        }
+    }
+
+    /**
+     * Ends the effect of a timer whose time is up: resets the speed, head or score multiplier,
+     * relocates food that has been lying around too long or shows the next blink
+     */
+    private void onTimer(int kind, int payload)
+    {
+        switch (kind) {
+            case SPEED_RESET -> {
+                speedTimer = TimerWheel.NONE;
+                state.getSnake().setSpeed(speeds.getNormalSpeed());
+                state.setSpeedResetAt(-1);
+            }
+            case HEAD_RESET -> {
+                headTimer = TimerWheel.NONE;
+                state.getSnake().resetHeadSize();
+                state.setHeadResetAt(-1);
+            }
+            case MULTIPLIER_RESET -> {
+                multiplierTimer = TimerWheel.NONE;
+                state.setScoreMultiplier(1, -1);
+            }
+            case FOOD_EXPIRY -> {
+                foodTimer = TimerWheel.NONE;
+                spawnFood();
+            }
+            case BLINK -> {
+                blinkTimer = TimerWheel.NONE;
+                blink(payload);
+            }
+        }
+    }
+
+    private void clearTimers()
+    {
+        timers.clear(state.getElapsedMillis());
+        speedTimer = TimerWheel.NONE;
+        headTimer = TimerWheel.NONE;
+        multiplierTimer = TimerWheel.NONE;
+        foodTimer = TimerWheel.NONE;
+        blinkTimer = TimerWheel.NONE;
+    }
+
+    /**
+     * Places a food item of a type picked by weight on a random cell that is not covered by the snake.
+     * The cell is picked from the snake's occupancy, which is O(1) on a nearly full normal board.
+     * If the snake covers the whole board there is no place left and the game ends.
+     */
+    private void spawnFood()
+    {
+        long start = metrics != null ? System.nanoTime() : 0;
+        Occupancy occupancy = state.getSnake().getOccupancy();
+        if (occupancy.freeCount() == 0) {
+            state.setGameOver(true);
+            listener.onGameOver();
+            return;
+        }
+        FoodType type = foods.get(foods.sample(random));
+        int cell = occupancy.sampleFree(random);
+        int x = cell % width;
+        int y = cell / width;
+        state.placeFood(type, x, y, state.getElapsedMillis() + FOOD_LIFETIME);
+        timers.cancel(foodTimer);
+        foodTimer = timers.schedule(state.getFoodExpiresAt(), FOOD_EXPIRY, 0);
+        if (metrics != null) metrics.recordSpawn(System.nanoTime() - start);
+        listener.onFoodSpawned(type, x, y);
+    }
+
+    /**
+     * Rotates the board randomly by 90°, 180° or 270° and starts blinking
+     */
+    private void triggerInsaneMode()
+    {
+        int rotation = (random.nextInt(3) + 1) * 90;
+        state.setRotation((state.getRotation() + rotation) % 360);
+        state.countInsaneMode();
+        if (metrics != null) metrics.recordInsaneTrigger();
+        listener.onInsaneMode(state.getRotation());
+        timers.cancel(blinkTimer);
+        blink(0);
+    }
+
+    /**
+     * Shows one blink of insane mode and schedules the next, blink BLINKS ends the blinking
+     */
+    private void blink(int blink)
+    {
+        if (blink < BLINKS) {
+            state.setBlink(blink, state.getElapsedMillis() + BLINK_INTERVAL);
+            blinkTimer = timers.schedule(state.getNextBlinkAt(), BLINK, blink + 1);
+        } else {
+            state.setBlink(-1, -1);
+        }
+        listener.onBlink(blink);
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.snakegame;
+
+/**
+ * Receives the events of a running simulation.
+ * All methods do nothing by default, so a listener only overrides what it needs.
+ */
+public interface SimulationListener
+{
+    /**
+     * Called when a new food item has been placed on the board
+     * @param type the type of the new food
+     * @param x the x grid position
+     * @param y the y grid position
+     */
+    default void onFoodSpawned(FoodType type, int x, int y) {
+    }
+
+    /**
+     * Called when the snake has eaten a food item
+     * @param type the type of the eaten food
+     */
+    default void onFoodEaten(FoodType type) {
+    }
+
+    /**
+     * Called when the score reaches the next insane mode trigger
+     * @param rotation the new rotation of the board in degrees
+     */
+    default void onInsaneMode(int rotation) {
+    }
+
+    /**
+     * Called every 200 simulated ms while the board blinks after insane mode was triggered
+     * @param blink the blink from 0 to 9 while blinking, 10 when the blinking ends
+     */
+    default void onBlink(int blink) {
+    }
+
+    /**
+     * Called once when the snake hits the edge or itself
+     */
+    default void onGameOver() {
+    }
+}
@@ -1,72 +1,356 @@
 package org.example.snakegame;
-import java.util.ArrayList;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Represents the snake in the game.
  * It consists of a list of segments and has a direction in which it moves.
+ * The body is stored as packed cell coordinates in a circular array, so moving
+ * and growing never shift or allocate. Which cells are covered by the body is
+ * also kept in an Occupancy (a bitset on normal boards, a hash set on very large
+ * ones), so checking for a collision with itself does not depend on the length of the snake.
  */
 public class Snake
 {
     private boolean headEnlarged = false; // Keep track of whether the head is enlarged.
     private double speed = 150; // default speed in ms
     private Direction direction = Direction.RIGHT;
-    private final List<Segment> segments = new ArrayList<>();
-    private long lastDirectionChangeTime = 0;
-    private static final long TURN_DELAY = 150; // In milliseconds
+    private int[] body = new int[INITIAL_CAPACITY]; // Packed cells, see pack()
+    private int headIndex; // Slot of the head, the tail is at headIndex + length - 1
+    private int length;
+    private long moves; // Number of moves so far, lets renderers catch up incrementally
+    private int previousTail; // Tail cell before the last move, for interpolation
+    private final List<Segment> segments = new SegmentView();
+    private static final int INITIAL_CAPACITY = 64; // Must be a power of two
+    static final int MAX_BOARD_SIZE = Short.MAX_VALUE; // Coordinates are packed into 16 bits
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final Occupancy occupancy;
+    private boolean collided;
+    private IntConsumer lengthListener; // null if nobody listens
 
     /**
-     * Constructs a new Snake object.
+     * Constructs a new Snake object on a board of the default size.
      * Initializes the snake with a starting direction and one segment.
      */
     public Snake()
+    {
+        this(SimulationEngine.WIDTH, SimulationEngine.HEIGHT);
+    }
+
+    /**
+     * Constructs a new Snake object on a board of the given size.
+     * Initializes the snake with a starting direction and one segment.
+     * @param boardWidth the width of the board in cells
+     * @param boardHeight the height of the board in cells
+     */
+    public Snake(int boardWidth, int boardHeight)
     {
         //Snakes starting position
-        this.segments.add(new Segment(5,5));
+        this(boardWidth, boardHeight, 5, 5);
+    }
+
+    /**
+     * Constructs a new Snake object with one segment on the given cell.
+     * @param boardWidth the width of the board in cells
+     * @param boardHeight the height of the board in cells
+     * @param startX the x grid position of the head
+     * @param startY the y grid position of the head
+     */
+    public Snake(int boardWidth, int boardHeight, int startX, int startY)
+    {
+        this(boardWidth, boardHeight, startX, startY, Occupancy.forBoard(boardWidth, boardHeight));
+    }
+
+    /**
+     * Constructs a new Snake object with one segment on the given cell that
+     * marks its body in an occupancy shared with other snakes, see Arena.
+     * Collisions are then detected against all snakes on the board.
+     * @param boardWidth the width of the board in cells
+     * @param boardHeight the height of the board in cells
+     * @param startX the x grid position of the head
+     * @param startY the y grid position of the head
+     * @param occupancy the occupancy of the whole board
+     */
+    Snake(int boardWidth, int boardHeight, int startX, int startY, Occupancy occupancy)
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.occupancy = occupancy;
+        this.body[0] = pack(startX, startY);
+        this.length = 1;
+        this.previousTail = body[0];
+        occupy(startX, startY);
+    }
+
+    /**
+     * Constructs a snake from a saved body, see writeBody()
+     * @param boardWidth the width of the board in cells
+     * @param boardHeight the height of the board in cells
+     * @param cells the packed cells, head first
+     * @param length the number of cells to read
+     */
+    Snake(int boardWidth, int boardHeight, IntBuffer cells, int length)
+    {
+        this(boardWidth, boardHeight, cells, length, Occupancy.forBoard(boardWidth, boardHeight));
+    }
+
+    /**
+     * Constructs a snake from a saved body that marks its cells in an occupancy
+     * shared with other snakes, e.g. the snakes of an ArenaMirror
+     * @param boardWidth the width of the board in cells
+     * @param boardHeight the height of the board in cells
+     * @param cells the packed cells, head first
+     * @param length the number of cells to read
+     * @param occupancy the occupancy of the whole board
+     */
+    Snake(int boardWidth, int boardHeight, IntBuffer cells, int length, Occupancy occupancy)
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.occupancy = occupancy;
+        this.body = new int[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(length - 1, 1)) << 1)];
+        cells.get(body, 0, length);
+        this.length = length;
+        this.previousTail = body[length - 1];
+        for (int i = 0; i < length; i++) {
+            occupy(unpackX(body[i]), unpackY(body[i]));
+        }
     }
 
     /**
      * Moves the snake one step forward in the current direction.
      * Adds a new head and removes the tail (unless the snake is growing).
+     * Whether the new head hits the body is decided here, against the
+     * body without the tail that was just removed.
      */
     public void move()
     {
-        Segment head = segments.get(0);
-        int x = head.getX();
-        int y = head.getY();
+        retractTail();
+        extendHead();
+    }
 
-        switch(direction) {
-            case UP: y --; break;
-            case DOWN: y ++; break;
-            case LEFT: x --; break;
-            case RIGHT: x ++; break;
+    /**
+     * First half of move(): removes the last segment to maintain current length.
+     * An Arena retracts the tails of all snakes before any head moves.
+     */
+    void retractTail()
+    {
+        //After grow() the tail is doubled, then the cell stays occupied.
+        int mask = body.length - 1;
+        int tail = body[(headIndex + length - 1) & mask];
+        previousTail = tail;
+        if (length == 1 || body[(headIndex + length - 2) & mask] != tail) {
+            vacate(unpackX(tail), unpackY(tail));
         }
+    }
+
+    /**
+     * Second half of move(): adds a new head segment in the current direction,
+     * in the slot the tail just left, and checks whether it hits a body
+     */
+    void extendHead()
+    {
+        int x = getNextX();
+        int y = getNextY();
+        collided = isOccupied(x, y);
+        headIndex = (headIndex - 1) & (body.length - 1);
+        body[headIndex] = pack(x, y);
+        occupy(x, y);
+        moves++;
+    }
 
-        //Add a new head segment at the new position
-        segments.add(0, new Segment(x, y));
+    /**
+     * Returns the x-coordinate the head moves to with the next move
+     * @return the x grid position
+     */
+    public int getNextX()
+    {
+        int x = getHeadX();
+        if (direction == Direction.LEFT) return x - 1;
+        if (direction == Direction.RIGHT) return x + 1;
+        return x;
+    }
 
-        //Remove the last segment to maintain current length
-        segments.remove(segments.size() - 1);
+    /**
+     * Returns the y-coordinate the head moves to with the next move
+     * @return the y grid position
+     */
+    public int getNextY()
+    {
+        int y = getHeadY();
+        if (direction == Direction.UP) return y - 1;
+        if (direction == Direction.DOWN) return y + 1;
+        return y;
     }
 
     /**
      * Increases the length of the snake by adding a new segment at the tail
      * This should be called when the snake eats food.
+     * The new segment lies on the tail's cell, so the occupied cells do not change.
      */
     public void grow()
     {
-        segments.add(new Segment(segments.get(segments.size() - 1).getX(),
-                segments.get(segments.size() - 1).getY()));
+        if (length == body.length) {
+            // Unroll the ring into an array of twice the size
+            int[] larger = new int[body.length * 2];
+            for (int i = 0; i < length; i++) {
+                larger[i] = body[(headIndex + i) & (body.length - 1)];
+            }
+            body = larger;
+            headIndex = 0;
+        }
+        int mask = body.length - 1;
+        body[(headIndex + length) & mask] = body[(headIndex + length - 1) & mask];
+        length++;
+        if (lengthListener != null) lengthListener.accept(length);
     }
 
     /**
-     * Checks if the snake has collided with itself
+     * Checks if the snake has collided with itself during the last move
      * @return true if the snake's head touches any other segment, otherwise return false
      */
     public boolean checkCollision()
     {
-        Segment head = segments.get(0);
-        return segments.subList(1, segments.size()).contains(head);
+        return collided;
+    }
+
+    /**
+     * Checks if any segment of the snake lies on the given cell
+     * @param x the x grid position
+     * @param y the y grid position
+     * @return true if the cell is covered by the snake, false otherwise or if the cell is outside the board
+     */
+    public boolean isOccupied(int x, int y)
+    {
+        if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) return false;
+        return occupancy.contains(x, y);
+    }
+
+    /**
+     * Returns the cells of the board that are covered by the snake.
+     * The set is updated with every move.
+     * @return the occupancy of the board
+     */
+    public Occupancy getOccupancy()
+    {
+        return occupancy;
+    }
+
+    /**
+     * Returns the x-coordinate of the head
+     * @return the x grid position
+     */
+    public int getHeadX()
+    {
+        return unpackX(body[headIndex]);
+    }
+
+    /**
+     * Returns the y-coordinate of the head
+     * @return the y grid position
+     */
+    public int getHeadY()
+    {
+        return unpackY(body[headIndex]);
+    }
+
+    /**
+     * Returns the x-coordinate of a segment without creating a Segment object
+     * @param index the index of the segment, 0 is the head
+     * @return the x grid position
+     */
+    public int getX(int index)
+    {
+        return unpackX(body[(headIndex + index) & (body.length - 1)]);
+    }
+
+    /**
+     * Returns the y-coordinate of a segment without creating a Segment object
+     * @param index the index of the segment, 0 is the head
+     * @return the y grid position
+     */
+    public int getY(int index)
+    {
+        return unpackY(body[(headIndex + index) & (body.length - 1)]);
+    }
+
+    /**
+     * Returns the x-coordinate the tail had before the last move,
+     * so renderers can slide the tail between two ticks.
+     * @return the x grid position
+     */
+    public int getPreviousTailX()
+    {
+        return unpackX(previousTail);
+    }
+
+    /**
+     * Returns the y-coordinate the tail had before the last move,
+     * so renderers can slide the tail between two ticks.
+     * @return the y grid position
+     */
+    public int getPreviousTailY()
+    {
+        return unpackY(previousTail);
+    }
+
+    /**
+     * Writes the body as packed cells, head first, in at most two bulk copies
+     * @param out the buffer to write getLength() cells to
+     */
+    void writeBody(IntBuffer out)
+    {
+        int first = Math.min(length, body.length - headIndex);
+        out.put(body, headIndex, first);
+        out.put(body, 0, length - first);
+    }
+
+    int getPackedPreviousTail()
+    {
+        return previousTail;
+    }
+
+    /**
+     * Restores the fields that are not part of the body, after the body was read
+     */
+    void restore(Direction direction, long moves, int previousTail)
+    {
+        this.direction = direction;
+        this.moves = moves;
+        this.previousTail = previousTail;
+    }
+
+    // A cell is stored as x in the upper and y in the lower 16 bits, both signed,
+    // so a head that left the board (-1) can still be stored
+    static int pack(int x, int y)
+    {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    static int unpackX(int cell)
+    {
+        return cell >> 16;
+    }
+
+    static int unpackY(int cell)
+    {
+        return (short) cell;
+    }
+
+    private void occupy(int x, int y)
+    {
+        if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) return;
+        occupancy.add(x, y);
+    }
+
+    void vacate(int x, int y)
+    {
+        if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) return;
+        occupancy.remove(x, y);
     }
 
     /**
@@ -76,8 +360,9 @@ public class Snake
      * @return
      */
     public boolean checkEdgeCollision(int width, int height) {
-        Segment head = segments.get(0);
-        return head.getX() < 0 || head.getX() >= width || head.getY() < 0 || head.getY() >= height;
+        int x = getHeadX();
+        int y = getHeadY();
+        return x < 0 || x >= width || y < 0 || y >= height;
     }
 
     /**
@@ -112,24 +397,30 @@ public class Snake
 
     /**
      * Changes the snake's direction, if the new direction is not opposite
-     * of current direction on a delay we have predetermined
+     * of current direction. Key presses go through the engine's InputQueue,
+     * which applies at most one turn per move.
      * @param newDirection The direction to turn to.
      */
     public void setDirection(Direction newDirection) {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastDirectionChangeTime >= TURN_DELAY) {
-            if ((this.direction == Direction.UP && newDirection != Direction.DOWN) ||
-                    (this.direction == Direction.DOWN && newDirection != Direction.UP) ||
-                    (this.direction == Direction.LEFT && newDirection != Direction.RIGHT) ||
-                    (this.direction == Direction.RIGHT && newDirection != Direction.LEFT)) {
-                this.direction = newDirection;
-                lastDirectionChangeTime = currentTime;
-            }
-        }
+        turn(newDirection);
+    }
+
+    /**
+     * Changes the snake's direction if the new direction is not opposite
+     * of the current direction.
+     * @param newDirection The direction to turn to.
+     * @return true if the direction was accepted
+     */
+    boolean turn(Direction newDirection) {
+        if (direction.isOpposite(newDirection)) return false;
+        this.direction = newDirection;
+        return true;
     }
 
     /**
-     * Gets the current list of snake segments
+     * Gets the current list of snake segments.
+     * The list is a read-only view of the body that follows every move,
+     * each get() creates a new Segment. Use getX() and getY() in hot paths.
      * @return A list of segments representing the snakes body
      */
     public List<Segment> getSegments() {
@@ -142,7 +433,25 @@ public class Snake
      */
     public int getLength()
     {
-        return segments.size();
+        return length;
+    }
+
+    /**
+     * Returns how many times the snake has moved since it was created
+     * @return the number of calls to move()
+     */
+    public long getMoves()
+    {
+        return moves;
+    }
+
+    /**
+     * Sets the listener that receives the new length whenever the snake grows
+     * @param lengthListener the listener, or null to remove it
+     */
+    public void setLengthListener(IntConsumer lengthListener)
+    {
+        this.lengthListener = lengthListener;
     }
 
     public double getSpeed() {
@@ -154,4 +463,22 @@ public class Snake
     }
 //endregion
 
+    /**
+     * Read-only list view over the circular body array
+     */
+    private class SegmentView extends AbstractList<Segment>
+    {
+        @Override
+        public Segment get(int index)
+        {
+            if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+            return new Segment(getX(index), getY(index));
+        }
+
+        @Override
+        public int size()
+        {
+            return length;
+        }
+    }
 }
@@ -0,0 +1,283 @@
+package org.example.snakegame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reinforcement learning environment around one SimulationEngine, in the style of a gym env:
+ * reset(seed) starts an episode, step(action) advances it by one tick and
+ * reports the reward and whether the episode is done in a reused StepResult.
+ * Actions are the Direction ordinals 0 to 3, and ACTION_STRAIGHT to keep going.
+ * The observation is written into a buffer of the caller as getObservationPlanes()
+ * grids of width x height floats, row by row, followed by OBSERVATION_FEATURES floats:
+ * - plane 0: 1 on the cells of the body without the head
+ * - plane 1: 1 on the head
+ * - plane 2 + FoodType index: 1 on the food of that type
+ * - features: the remaining part of the speed effect, the enlarged head and the
+ *   score multiplier as a fraction of the longest effect of the food table, the
+ *   remaining food lifetime from 1 to 0, the direction one-hot in Direction
+ *   order and the length as a fraction of the board
+ * Stepping and observing do not allocate, so an agent can run millions of
+ * steps without garbage; only reset() creates the new game.
+ */
+public class SnakeEnv
+{
+    public static final int ACTION_STRAIGHT = 4;
+    public static final int ACTION_COUNT = 5;
+    public static final int OBSERVATION_FEATURES = 4 + 4 + 1;
+
+    private static final int BODY = 0;
+    private static final int HEAD = 1;
+    private static final int FOOD = 2;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SimulationEngine engine;
+    private final int width;
+    private final int height;
+    private final int maxTicks;
+    private final int planes;
+    private final int observationSize;
+    private final long effectDuration; // Remaining effects are given as a fraction of this
+    private final StepResult result = new StepResult();
+    private float foodReward = 1;
+    private float deathReward = -1;
+    private float stepReward = 0;
+    private boolean done = true;
+
+    /**
+     * Creates an environment, reset() must be called before the first step
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snake, they decide how long effects last in steps
+     * @param maxTicks episodes still running after this many steps are truncated
+     */
+    public SnakeEnv(int width, int height, SpeedProfile speeds, int maxTicks)
+    {
+        this(width, height, speeds, FoodTable.DEFAULT, maxTicks);
+    }
+
+    /**
+     * Creates an environment with its own food, reset() must be called before the first step
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snake, they decide how long effects last in steps
+     * @param foods the food types and their effects, each type gets its own plane
+     * @param maxTicks episodes still running after this many steps are truncated
+     */
+    public SnakeEnv(int width, int height, SpeedProfile speeds, FoodTable foods, int maxTicks)
+    {
+        if (maxTicks < 1) throw new IllegalArgumentException("maxTicks must be positive");
+        this.engine = new SimulationEngine(width, height, speeds, foods, 0);
+        this.width = width;
+        this.height = height;
+        this.maxTicks = maxTicks;
+        this.planes = 2 + foods.size();
+        this.observationSize = planes * width * height + OBSERVATION_FEATURES;
+        this.effectDuration = Math.max(1, foods.getMaxDuration());
+    }
+
+    /**
+     * Sets the rewards, by default 1 per food, -1 for dying and 0 per step
+     * @param food reward for eating food
+     * @param death reward for the step the snake dies in
+     * @param step reward added to every step, e.g. a small penalty against circling
+     */
+    public void setRewards(float food, float death, float step)
+    {
+        this.foodReward = food;
+        this.deathReward = death;
+        this.stepReward = step;
+    }
+
+    /**
+     * Starts a new episode, the same seed and actions always give the same episode
+     * @param seed seed for food placement and insane mode
+     */
+    public void reset(long seed)
+    {
+        engine.reset(seed, engine.getSpeeds().getNormalSpeed());
+        done = false;
+    }
+
+    /**
+     * Takes one action and advances the game by one tick
+     * @param action a Direction ordinal, or ACTION_STRAIGHT
+     * @return the result of the step, overwritten by the next step
+     * @throws IllegalStateException if the episode is done and was not reset
+     */
+    public StepResult step(int action)
+    {
+        if (done) throw new IllegalStateException("Episode is done, call reset() first");
+        if (action < 0 || action >= ACTION_COUNT) throw new IllegalArgumentException("Invalid action " + action);
+        GameState state = engine.getState();
+        FoodType food = state.getFoodType();
+        int eatenBefore = state.getEaten(food); // Not the score, food may be worth 0 points
+
+        boolean alive = engine.step(action == ACTION_STRAIGHT ? null : DIRECTIONS[action]);
+        FoodType eaten = state.getEaten(food) > eatenBefore ? food : null;
+        boolean truncated = alive && state.getTick() >= maxTicks;
+        float reward = stepReward + (eaten != null ? foodReward : 0) + (alive ? 0 : deathReward);
+        done = !alive || truncated;
+        result.set(reward, !alive, truncated, eaten, state);
+        return result;
+    }
+
+    /**
+     * Writes the observation of the current state
+     * @param out the buffer to write to
+     * @param offset where the observation starts, getObservationSize() floats are written
+     */
+    public void observe(float[] out, int offset)
+    {
+        GameState state = engine.getState();
+        Snake snake = state.getSnake();
+        int cells = width * height;
+        Arrays.fill(out, offset, offset + planes * cells, 0);
+        for (int i = snake.getLength() - 1; i > 0; i--) {
+            out[offset + BODY * cells + cell(snake.getX(i), snake.getY(i))] = 1;
+        }
+        // The head has left the board when the snake died at the edge
+        if (isOnBoard(snake.getHeadX(), snake.getHeadY())) {
+            out[offset + HEAD * cells + cell(snake.getHeadX(), snake.getHeadY())] = 1;
+        }
+        if (state.getFoodType() != null) {
+            int food = (FOOD + state.getFoodType().getIndex()) * cells + cell(state.getFoodX(), state.getFoodY());
+            out[offset + food] = 1;
+        }
+        int features = offset + planes * cells;
+        for (int i = 0; i < OBSERVATION_FEATURES; i++) {
+            out[features + i] = feature(state, i);
+        }
+    }
+
+    /**
+     * Writes the observation of the current state as floats in the byte order of the buffer,
+     * e.g. into a direct buffer shared with a native training loop
+     * @param out the buffer to write to from its position on, which is moved past the observation
+     */
+    public void observe(ByteBuffer out)
+    {
+        observe(out, out.position());
+        out.position(out.position() + observationSize * Float.BYTES);
+    }
+
+    /**
+     * Writes the observation of the current state as floats in the byte order of the buffer,
+     * without moving its position, so several threads may fill separate parts of one buffer
+     * @param out the buffer to write to
+     * @param index the byte index the observation starts at
+     */
+    public void observe(ByteBuffer out, int index)
+    {
+        if (index < 0 || index + observationSize * Float.BYTES > out.limit()) {
+            throw new IllegalArgumentException("Buffer too small for the observation");
+        }
+        GameState state = engine.getState();
+        Snake snake = state.getSnake();
+        int cells = width * height;
+        int planesEnd = index + planes * cells * Float.BYTES;
+        int i = index;
+        for (; i + Long.BYTES <= planesEnd; i += Long.BYTES) {
+            out.putLong(i, 0);
+        }
+        for (; i < planesEnd; i += Float.BYTES) {
+            out.putFloat(i, 0);
+        }
+        for (int s = snake.getLength() - 1; s > 0; s--) {
+            out.putFloat(index + (BODY * cells + cell(snake.getX(s), snake.getY(s))) * Float.BYTES, 1);
+        }
+        if (isOnBoard(snake.getHeadX(), snake.getHeadY())) {
+            out.putFloat(index + (HEAD * cells + cell(snake.getHeadX(), snake.getHeadY())) * Float.BYTES, 1);
+        }
+        if (state.getFoodType() != null) {
+            int food = (FOOD + state.getFoodType().getIndex()) * cells + cell(state.getFoodX(), state.getFoodY());
+            out.putFloat(index + food * Float.BYTES, 1);
+        }
+        for (int f = 0; f < OBSERVATION_FEATURES; f++) {
+            out.putFloat(planesEnd + f * Float.BYTES, feature(state, f));
+        }
+    }
+
+    /**
+     * Returns one of the features after the planes
+     */
+    private float feature(GameState state, int index)
+    {
+        long now = state.getElapsedMillis();
+        return switch (index) {
+            case 0 -> remaining(state.getSpeedResetAt(), now, effectDuration);
+            case 1 -> remaining(state.getHeadResetAt(), now, effectDuration);
+            case 2 -> remaining(state.getMultiplierResetAt(), now, effectDuration);
+            case 3 -> state.getFoodType() == null ? 0
+                    : remaining(state.getFoodExpiresAt(), now, SimulationEngine.FOOD_LIFETIME);
+            case 4, 5, 6, 7 -> state.getSnake().getDirection().ordinal() == index - 4 ? 1 : 0;
+            default -> (float) state.getSnake().getLength() / (width * height);
+        };
+    }
+
+    private static float remaining(long endsAt, long now, long duration)
+    {
+        return endsAt < 0 ? 0 : Math.max(0, Math.min(1, (float) (endsAt - now) / duration));
+    }
+
+    private int cell(int x, int y)
+    {
+        return y * width + x;
+    }
+
+    private boolean isOnBoard(int x, int y)
+    {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    //region Getter
+
+    /**
+     * Returns how many floats one observation has
+     * @return getObservationPlanes() grids of the board plus OBSERVATION_FEATURES
+     */
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    /**
+     * Returns how many grids of the board one observation has
+     * @return 2 plus one per food type
+     */
+    public int getObservationPlanes() {
+        return planes;
+    }
+
+    /**
+     * Returns the result of the last step
+     * @return the result, overwritten by the next step
+     */
+    public StepResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns whether the episode is over and reset() must be called
+     * @return true before the first reset and after the last step of an episode
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the live game, e.g. to render it; it must only be read
+     * @return the state of the current episode
+     */
+    public GameState getState() {
+        return engine.getState();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+    //endregion
+}
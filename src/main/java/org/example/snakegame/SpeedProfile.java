@@ -0,0 +1,73 @@
+package org.example.snakegame;
+
+/**
+ * The step lengths of the snake in ms, a lower value means a faster snake.
+ * normal is used for the first game and after a speed boost ends,
+ * boost while food with the boost speed (the blue apple) is active and restart for every game after the first.
+ * Step lengths are whole milliseconds, so the simulated clock never drifts and
+ * always moves forward.
+ */
+public class SpeedProfile
+{
+    public static final SpeedProfile CLASSIC = new SpeedProfile(150, 75, 250);
+    public static final SpeedProfile RELAXED = new SpeedProfile(250, 150, 250);
+    public static final SpeedProfile FAST = new SpeedProfile(80, 40, 80);
+
+    private final double normalSpeed;
+    private final double boostSpeed;
+    private final double restartSpeed;
+
+    /**
+     * Creates a profile with the given step lengths
+     * @param normalSpeed the normal step length in ms
+     * @param boostSpeed the step length while boosted in ms
+     * @param restartSpeed the step length after a restart in ms
+     */
+    public SpeedProfile(double normalSpeed, double boostSpeed, double restartSpeed)
+    {
+        if (!isValid(normalSpeed) || !isValid(boostSpeed) || !isValid(restartSpeed)) {
+            throw new IllegalArgumentException("Speeds must be whole numbers of ms of at least 1");
+        }
+        this.normalSpeed = normalSpeed;
+        this.boostSpeed = boostSpeed;
+        this.restartSpeed = restartSpeed;
+    }
+
+    /**
+     * Returns one of the predefined profiles
+     * @param name "classic", "relaxed" or "fast"
+     * @return the profile
+     */
+    public static SpeedProfile named(String name)
+    {
+        return switch (name) {
+            case "classic" -> CLASSIC;
+            case "relaxed" -> RELAXED;
+            case "fast" -> FAST;
+            default -> throw new IllegalArgumentException("Unknown speed profile: " + name);
+        };
+    }
+
+    /**
+     * Checks if a step length can be simulated: the clock advances by whole ms,
+     * a fraction would be lost every step and below 1 ms time would stand still
+     * @param speed the step length in ms
+     * @return true for a whole number of at least 1 ms
+     */
+    static boolean isValid(double speed)
+    {
+        return speed >= 1 && speed <= Integer.MAX_VALUE && speed == Math.rint(speed);
+    }
+
+    public double getNormalSpeed() {
+        return normalSpeed;
+    }
+
+    public double getBoostSpeed() {
+        return boostSpeed;
+    }
+
+    public double getRestartSpeed() {
+        return restartSpeed;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.snakegame;
+
+import javafx.scene.image.Image;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of the food images, one decoded Image per FoodType.
+ * An image is loaded the first time its food is shown, decoded on a
+ * background thread so the first frame does not wait for it; preload() loads
+ * the others once the game is running. After that showing or relocating food
+ * only swaps references and never reads the PNG files again.
+ * The images are decoded at twice the size they are drawn at instead of the
+ * full size of the files, which keeps them sharp on HiDPI screens at a
+ * fraction of the memory and decoding time.
+ * Must be used from the JavaFX application thread.
+ */
+public final class SpriteCache
+{
+    private static final double SPRITE_WIDTH = 60; // Drawn at 30 x 35
+    private static final double SPRITE_HEIGHT = 70;
+    private static final Map<FoodType, Image> sprites = new HashMap<>();
+
+    private SpriteCache()
+    {
+    }
+
+    /**
+     * Loads the images of all food types of a table that are not loaded yet
+     * @param foods the food types
+     * @param background true to decode the images on a background thread,
+     *                   an image is then drawn as soon as it is ready
+     */
+    public static void preload(FoodTable foods, boolean background)
+    {
+        for (int i = 0; i < foods.size(); i++) {
+            sprites.computeIfAbsent(foods.get(i), t -> load(t, background));
+        }
+    }
+
+    /**
+     * Returns the image for a food type, starting to load it in the background if it is not loaded yet
+     * @param type the food type
+     * @return the shared image, possibly still loading
+     */
+    public static Image get(FoodType type)
+    {
+        return sprites.computeIfAbsent(type, t -> load(t, true));
+    }
+
+    private static Image load(FoodType type, boolean background)
+    {
+        return new Image(type.getImageUrl().toExternalForm(), SPRITE_WIDTH, SPRITE_HEIGHT, false, true, background);
+    }
+}
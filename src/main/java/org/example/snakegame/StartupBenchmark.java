@@ -0,0 +1,100 @@
+package org.example.snakegame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long the game takes from launch to its first frame.
+ * Starts the game again and again in a new JVM with --exitAfterFirstFrame=true
+ * and takes the time from starting the process to the line the game prints
+ * once the first frame is shown, so JVM startup, module resolution and class
+ * loading are all included. With --archive=file every round also starts the
+ * game with that AppCDS archive (see the cds profile in the pom), so the gain
+ * shows side by side.
+ * Must itself be started from the module path, the game is launched with the same one.
+ * Usage: StartupBenchmark [--runs=N] [--archive=file] plus game keys that are
+ * passed on, e.g. --renderer=canvas
+ */
+public class StartupBenchmark
+{
+    private static final String GAME = "org.example.snakegame/org.example.snakegame.Game";
+    private static final String FIRST_FRAME = "First frame after ";
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int runs = Integer.parseInt(arguments.getOrDefault("runs", "10"));
+        if (runs < 1) throw new IllegalArgumentException("runs must be positive");
+        String archive = arguments.remove("archive");
+        arguments.remove("runs");
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath == null) throw new IllegalStateException("Start the benchmark from the module path");
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("--module-path");
+        command.add(modulePath);
+        command.add("--module");
+        command.add(GAME);
+        command.add("--exitAfterFirstFrame=true");
+        command.add("--stats=none");
+        arguments.forEach((key, value) -> command.add("--" + key + "=" + value));
+        List<String> withArchive = new ArrayList<>(command);
+        if (archive != null) withArchive.add(1, "-XX:SharedArchiveFile=" + archive);
+
+        // One run each first, so the files are in the page cache for all measured runs
+        launch(command);
+        if (archive != null) launch(withArchive);
+
+        long[] plain = new long[runs];
+        long[] shared = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            plain[i] = launch(command);
+            if (archive != null) shared[i] = launch(withArchive);
+        }
+        System.out.println("Launch to first frame, " + runs + " runs");
+        System.out.println("default:    " + summary(plain));
+        if (archive != null) System.out.println("AppCDS:     " + summary(shared));
+    }
+
+    /**
+     * Starts the game and waits until it has shown its first frame and quit
+     * @return the time from starting the process to the first frame in ns
+     */
+    private static long launch(List<String> command) throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        long elapsed = -1;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (elapsed < 0 && line.startsWith(FIRST_FRAME)) elapsed = System.nanoTime() - start;
+            }
+        }
+        int exit = process.waitFor();
+        if (elapsed < 0) throw new IOException("The game quit with " + exit + " before showing a frame");
+        return elapsed;
+    }
+
+    private static String summary(long[] nanos)
+    {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("min %d ms, median %d ms, max %d ms", sorted[0] / 1_000_000,
+                sorted[sorted.length / 2] / 1_000_000, sorted[sorted.length - 1] / 1_000_000);
+    }
+}
@@ -0,0 +1,448 @@
+package org.example.snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a GameRecord of every finished game across sessions.
+ * The records are appended to a log of fixed-size entries in a memory-mapped
+ * file, so writing one is a few puts into the page cache and reading any
+ * record is a lookup by index. The number of records in the header is only
+ * raised after the record is written, so a crash never leaves a torn record behind.
+ * The best games by score are kept in a top list in memory. Every compaction
+ * interval it is written to an index file next to the log together with the
+ * number of records it covers, so opening a log of millions of games only
+ * reads the index and the records added since.
+ * All writes run on one background thread: record() only hands the record
+ * over and returns, so it can be called on the FX thread when a game ends.
+ * Queries may be made from any thread and see the records written so far.
+ * A log keeps the number of food types it was created with, counts of types
+ * beyond it are not recorded, and holds up to 2 GB.
+ * Usage: StatsStore [--stats=file] [--top=N] prints the leaderboard of a log.
+ */
+public class StatsStore implements Closeable
+{
+    private static final int MAGIC = 0x534E4B4C; // "SNKL"
+    private static final int INDEX_MAGIC = 0x534E4B54; // "SNKT"
+    private static final short VERSION = 1;
+
+    // magic, version, number of food types, record size, record count, padded to 32
+    static final int HEADER_SIZE = 32;
+    private static final int COUNT_OFFSET = 4 + 2 + 2 + 4;
+    // finished at, seed, ticks, duration, score, length, insane count, followed by the eaten counts
+    private static final int FIXED_RECORD_SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final int SCORE_OFFSET = 32; // Within a record
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    static final int DEFAULT_TOP = 100;
+    static final long DEFAULT_COMPACT_INTERVAL = 30_000;
+
+    private final Path indexFile;
+    private final FileChannel channel;
+    private final int types;
+    private final int recordSize;
+    private volatile MappedByteBuffer log;
+    private volatile long count;
+
+    // Top list, changed on the writer thread only and published as a copy
+    private final int topSize;
+    private final long[] top; // Record indices by descending score, ties in the order they were played
+    private final int[] topScores;
+    private int topCount;
+    private volatile long[] published = new long[0];
+    private boolean indexDirty;
+
+    private volatile int sessionGames;
+    private volatile int sessionBest;
+    private volatile long sessionMillis;
+    private final ScheduledExecutorService writer;
+
+    private StatsStore(Path file, FileChannel channel, int topSize, int foodTypes) throws IOException
+    {
+        this.indexFile = file.resolveSibling(file.getFileName() + ".top");
+        this.channel = channel;
+        this.topSize = topSize;
+        this.top = new long[topSize];
+        this.topScores = new int[topSize];
+
+        long size = channel.size();
+        if (size == 0) {
+            types = foodTypes;
+            recordSize = FIXED_RECORD_SIZE + types * Integer.BYTES;
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+            log.putInt(0, MAGIC).putShort(4, VERSION).putShort(6, (short) types).putInt(8, recordSize);
+            log.putLong(COUNT_OFFSET, 0);
+        } else {
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) throw new IOException("Not a stats log");
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (log.getInt(0) != MAGIC) throw new IOException("Not a stats log");
+            if (log.getShort(4) != VERSION) throw new IOException("Unsupported stats log version " + log.getShort(4));
+            types = log.getShort(6);
+            recordSize = log.getInt(8);
+            count = log.getLong(COUNT_OFFSET);
+            if (types < 0 || types > FoodTable.MAX_TYPES || recordSize != FIXED_RECORD_SIZE + types * Integer.BYTES
+                    || count < 0 || HEADER_SIZE + count * recordSize > size) {
+                throw new IOException("Corrupt stats log");
+            }
+        }
+
+        long indexed = loadIndex();
+        for (long i = indexed; i < count; i++) {
+            insertTop(i, log.getInt(offset(i) + SCORE_OFFSET));
+        }
+        indexDirty = indexed != count;
+        published = Arrays.copyOf(top, topCount);
+
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a log, creating it if it does not exist, with the default top list
+     * size and compaction interval
+     * @param file the log file
+     * @return the store
+     * @throws IOException if the file cannot be opened or is not a stats log
+     */
+    public static StatsStore open(Path file) throws IOException
+    {
+        return open(file, FoodTable.DEFAULT);
+    }
+
+    /**
+     * Opens a log, creating it for the types of a food table if it does not exist,
+     * with the default top list size and compaction interval
+     * @param file the log file
+     * @param foods the food types of the games that are recorded
+     * @return the store
+     * @throws IOException if the file cannot be opened or is not a stats log
+     */
+    public static StatsStore open(Path file, FoodTable foods) throws IOException
+    {
+        return open(file, DEFAULT_TOP, DEFAULT_COMPACT_INTERVAL, foods.size());
+    }
+
+    /**
+     * Opens a log, creating it if it does not exist
+     * @param file the log file, the index is kept in the same directory with the extension .top
+     * @param topSize how many of the best games are kept for the leaderboard
+     * @param compactIntervalMillis how often the top list is written to the index
+     * @return the store
+     * @throws IOException if the file cannot be opened or is not a stats log
+     */
+    public static StatsStore open(Path file, int topSize, long compactIntervalMillis) throws IOException
+    {
+        return open(file, topSize, compactIntervalMillis, FoodTable.DEFAULT.size());
+    }
+
+    /**
+     * Opens a log, creating it if it does not exist
+     * @param file the log file, the index is kept in the same directory with the extension .top
+     * @param topSize how many of the best games are kept for the leaderboard
+     * @param compactIntervalMillis how often the top list is written to the index
+     * @param foodTypes the number of food types a new log keeps counts for
+     * @return the store
+     * @throws IOException if the file cannot be opened or is not a stats log
+     */
+    public static StatsStore open(Path file, int topSize, long compactIntervalMillis, int foodTypes)
+            throws IOException
+    {
+        if (topSize < 1 || compactIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Top size and compaction interval must be positive");
+        }
+        if (foodTypes < 0 || foodTypes > FoodTable.MAX_TYPES) {
+            throw new IllegalArgumentException("Invalid number of food types " + foodTypes);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        StatsStore store;
+        try {
+            store = new StatsStore(file, channel, topSize, foodTypes);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        store.writer.scheduleWithFixedDelay(store::compactQuietly,
+                compactIntervalMillis, compactIntervalMillis, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    /**
+     * Appends a finished game in the background and returns right away
+     * @param record the game
+     */
+    public void record(GameRecord record)
+    {
+        try {
+            writer.execute(() -> {
+                try {
+                    append(record);
+                } catch (IOException e) {
+                    System.err.println("Could not record the game: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Could not record the game, the store is closed");
+        }
+    }
+
+    private void append(GameRecord record) throws IOException
+    {
+        int offset = offset(count);
+        if (offset + recordSize > log.capacity()) grow();
+        MappedByteBuffer out = log;
+        out.putLong(offset, record.getFinishedAt());
+        out.putLong(offset + 8, record.getSeed());
+        out.putLong(offset + 16, record.getTicks());
+        out.putLong(offset + 24, record.getDurationMillis());
+        out.putInt(offset + SCORE_OFFSET, record.getScore());
+        out.putInt(offset + 36, record.getLength());
+        out.putInt(offset + 40, record.getInsaneCount());
+        for (int i = 0; i < types; i++) {
+            out.putInt(offset + FIXED_RECORD_SIZE + i * Integer.BYTES, record.getEaten(i));
+        }
+        // Only now the record counts, readers and a later open never see it half written
+        out.putLong(COUNT_OFFSET, count + 1);
+        count++;
+
+        if (insertTop(count - 1, record.getScore())) {
+            published = Arrays.copyOf(top, topCount);
+            indexDirty = true;
+        }
+        sessionGames++;
+        sessionMillis += record.getDurationMillis();
+        if (record.getScore() > sessionBest) sessionBest = record.getScore();
+    }
+
+    /**
+     * Maps a file twice the size, the old mapping stays valid for readers that still hold it
+     */
+    private void grow() throws IOException
+    {
+        long capacity = (long) log.capacity() * 2;
+        if (capacity > Integer.MAX_VALUE) {
+            if (log.capacity() == Integer.MAX_VALUE) throw new IOException("Stats log is full");
+            capacity = Integer.MAX_VALUE;
+        }
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private int offset(long index)
+    {
+        return (int) (HEADER_SIZE + index * recordSize);
+    }
+
+    /**
+     * Puts a record into the top list if its score is high enough
+     * @return true if the list changed
+     */
+    private boolean insertTop(long index, int score)
+    {
+        int position = topCount;
+        while (position > 0 && topScores[position - 1] < score) {
+            position--;
+        }
+        if (position == topSize) return false;
+        int moved = Math.min(topCount, topSize - 1) - position;
+        System.arraycopy(top, position, top, position + 1, moved);
+        System.arraycopy(topScores, position, topScores, position + 1, moved);
+        top[position] = index;
+        topScores[position] = score;
+        if (topCount < topSize) topCount++;
+        return true;
+    }
+
+    /**
+     * Reads the top list from the index file
+     * @return the number of records the index covers, 0 if there is no usable index
+     */
+    private long loadIndex()
+    {
+        if (!Files.exists(indexFile)) return 0;
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (in.remaining() < 4 + 2 + 4 + 8 + 4 || in.getInt() != INDEX_MAGIC || in.getShort() != VERSION) return 0;
+            int size = in.getInt();
+            long covered = in.getLong();
+            int entries = in.getInt();
+            // A shorter list may lack games that belong into this one
+            if (size < topSize || covered < 0 || covered > count
+                    || entries < 0 || entries > size || in.remaining() != entries * Long.BYTES) return 0;
+            for (int i = 0; i < entries; i++) {
+                long index = in.getLong();
+                if (index < 0 || index >= covered) {
+                    topCount = 0;
+                    return 0;
+                }
+                insertTop(index, log.getInt(offset(index) + SCORE_OFFSET));
+            }
+            return covered;
+        } catch (IOException e) {
+            topCount = 0;
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the top list to the index file if it changed, and flushes the log to disk.
+     * The index is written to a temporary file first and then moved over the old one.
+     */
+    private void compact() throws IOException
+    {
+        if (!indexDirty) return;
+        ByteBuffer out = ByteBuffer.allocate(4 + 2 + 4 + 8 + 4 + topCount * Long.BYTES);
+        out.putInt(INDEX_MAGIC).putShort(VERSION).putInt(topSize).putLong(count).putInt(topCount);
+        for (int i = 0; i < topCount; i++) {
+            out.putLong(top[i]);
+        }
+        log.force();
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temporary, out.array());
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexDirty = false;
+    }
+
+    private void compactQuietly()
+    {
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Could not write the stats index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the best games
+     * @param n the most games to return
+     * @return the games by descending score, ties in the order they were played
+     */
+    public List<GameRecord> getTop(int n)
+    {
+        long[] best = published;
+        List<GameRecord> records = new ArrayList<>(Math.min(n, best.length));
+        for (int i = 0; i < best.length && i < n; i++) {
+            records.add(get(best[i]));
+        }
+        return records;
+    }
+
+    /**
+     * Returns the highest score ever recorded
+     * @return the score, 0 if no game was recorded yet
+     */
+    public int getBestScore()
+    {
+        long[] best = published;
+        return best.length == 0 ? 0 : log.getInt(offset(best[0]) + SCORE_OFFSET);
+    }
+
+    /**
+     * Reads a record
+     * @param index the index of the record, in the order the games were recorded
+     * @return the record
+     */
+    public GameRecord get(long index)
+    {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("No record " + index);
+        MappedByteBuffer in = log;
+        int offset = offset(index);
+        int[] eaten = new int[types];
+        for (int i = 0; i < types; i++) {
+            eaten[i] = in.getInt(offset + FIXED_RECORD_SIZE + i * Integer.BYTES);
+        }
+        return new GameRecord(in.getLong(offset), in.getLong(offset + 8), in.getInt(offset + SCORE_OFFSET),
+                in.getInt(offset + 36), in.getLong(offset + 16), in.getLong(offset + 24),
+                in.getInt(offset + 40), eaten);
+    }
+
+    /**
+     * Writes the index and closes the log, waiting for the records handed over before
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (writer.isShutdown()) return;
+        writer.execute(this::compactQuietly);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    //region Getter
+
+    /**
+     * Returns the number of recorded games
+     * @return the number of records written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of games recorded since the store was opened
+     * @return the number of games this session
+     */
+    public int getSessionGames() {
+        return sessionGames;
+    }
+
+    /**
+     * Returns the highest score recorded since the store was opened
+     * @return the best score this session
+     */
+    public int getSessionBest() {
+        return sessionBest;
+    }
+
+    /**
+     * Returns the play time of the games recorded since the store was opened
+     * @return the simulated time in ms
+     */
+    public long getSessionMillis() {
+        return sessionMillis;
+    }
+    //endregion
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        GameConfig config = GameConfig.load(arguments);
+        if (config.getStatsFile() == null) throw new IllegalArgumentException("No stats file given");
+        int n = Integer.parseInt(arguments.getOrDefault("top", "10"));
+        try (StatsStore store = open(config.getStatsFile(), Math.max(n, DEFAULT_TOP), DEFAULT_COMPACT_INTERVAL,
+                config.getFoodTable().size())) {
+            System.out.println(store.getCount() + " games recorded");
+            List<GameRecord> best = store.getTop(n);
+            for (int i = 0; i < best.size(); i++) {
+                System.out.println((i + 1) + ". " + best.get(i));
+            }
+        }
+    }
+}
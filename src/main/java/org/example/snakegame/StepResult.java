@@ -0,0 +1,87 @@
+package org.example.snakegame;
+
+/**
+ * Outcome of one SnakeEnv step: the reward, whether the episode ended and
+ * what happened in the game.
+ * Each environment owns one result and overwrites it on every step, so
+ * stepping does not allocate; copy the values out before the next step.
+ */
+public final class StepResult
+{
+    private float reward;
+    private boolean terminated;
+    private boolean truncated;
+    private FoodType eaten;
+    private int score;
+    private int length;
+    private long tick;
+
+    void set(float reward, boolean terminated, boolean truncated, FoodType eaten, GameState state)
+    {
+        this.reward = reward;
+        this.terminated = terminated;
+        this.truncated = truncated;
+        this.eaten = eaten;
+        this.score = state.getScore().getScore();
+        this.length = state.getSnake().getLength();
+        this.tick = state.getTick();
+    }
+
+    //region Getter
+
+    public float getReward() {
+        return reward;
+    }
+
+    /**
+     * Returns whether the episode is over, because the snake died or hit the step limit
+     * @return true if the environment must be reset before the next step
+     */
+    public boolean isDone() {
+        return terminated || truncated;
+    }
+
+    /**
+     * Returns whether the snake died or filled the board
+     * @return true if the game is over
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * Returns whether the episode was cut off at the step limit while the snake was still alive
+     * @return true if the episode was truncated
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Returns the food eaten in this step
+     * @return the food type, or null if nothing was eaten
+     */
+    public FoodType getEaten() {
+        return eaten;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+    //endregion
+
+    @Override
+    public String toString()
+    {
+        return "reward=" + reward + " terminated=" + terminated + " truncated=" + truncated
+                + " eaten=" + eaten + " score=" + score + " length=" + length + " tick=" + tick;
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timer wheel for the timed effects of the simulation, running on
+ * simulated time so it pauses, resumes and replays exactly with the game.
+ * Every slot covers a fixed span of time and holds a linked list of timers;
+ * a timer further away than one turn of the wheel simply stays in its slot
+ * until its deadline has come. Timers live in parallel int and long arrays
+ * linked by index, so scheduling and cancelling are O(1) and do not allocate
+ * once the arrays are large enough for the number of timers running at once.
+ * A handle is the index of the timer and is only valid until the timer fires
+ * or is cancelled.
+ */
+public class TimerWheel
+{
+    /**
+     * Receives the timers that are due
+     */
+    @FunctionalInterface
+    public interface Handler
+    {
+        /**
+         * @param kind the kind given to schedule()
+         * @param payload the payload given to schedule()
+         */
+        void onTimer(int kind, int payload);
+    }
+
+    public static final int NONE = -1;
+
+    private final int mask;
+    private final long resolution; // Simulated ms per slot
+    private final int[] slotHead;
+    private final int[] slotTail;
+
+    // The timers, linked within their slot, free ones are linked through next
+    private int[] next;
+    private int[] previous;
+    private int[] slot;
+    private int[] kind;
+    private int[] payload;
+    private long[] deadline;
+    private int free = NONE;
+    private int size;
+
+    private long now; // Time up to which timers have fired
+
+    /**
+     * Creates an empty wheel at time 0
+     * @param slots the number of slots, a power of two
+     * @param resolution the span of one slot in ms
+     */
+    public TimerWheel(int slots, long resolution)
+    {
+        if (Integer.bitCount(slots) != 1 || resolution < 1) {
+            throw new IllegalArgumentException("Slots must be a power of two and resolution positive");
+        }
+        this.mask = slots - 1;
+        this.resolution = resolution;
+        this.slotHead = new int[slots];
+        this.slotTail = new int[slots];
+        Arrays.fill(slotHead, NONE);
+        Arrays.fill(slotTail, NONE);
+        grow(16);
+    }
+
+    /**
+     * Schedules a timer
+     * @param deadline the time at which it fires, a time that has passed fires with the next advance()
+     * @param kind what the timer is for, passed back to the handler
+     * @param payload e.g. the index of a snake, passed back to the handler
+     * @return the handle to cancel the timer with
+     */
+    public int schedule(long deadline, int kind, int payload)
+    {
+        if (free == NONE) grow(next.length * 2);
+        int timer = free;
+        free = next[timer];
+
+        int s = (int) (Math.max(deadline, now) / resolution) & mask;
+        this.deadline[timer] = deadline;
+        this.kind[timer] = kind;
+        this.payload[timer] = payload;
+        slot[timer] = s;
+        // Append, so timers in one slot fire in the order they were scheduled
+        next[timer] = NONE;
+        previous[timer] = slotTail[s];
+        if (slotTail[s] == NONE) slotHead[s] = timer;
+        else next[slotTail[s]] = timer;
+        slotTail[s] = timer;
+        size++;
+        return timer;
+    }
+
+    /**
+     * Cancels a timer that has not fired yet
+     * @param timer the handle from schedule(), NONE is ignored
+     */
+    public void cancel(int timer)
+    {
+        if (timer == NONE) return;
+        int s = slot[timer];
+        if (previous[timer] == NONE) slotHead[s] = next[timer];
+        else next[previous[timer]] = next[timer];
+        if (next[timer] == NONE) slotTail[s] = previous[timer];
+        else previous[next[timer]] = previous[timer];
+
+        next[timer] = free;
+        free = timer;
+        size--;
+    }
+
+    /**
+     * Moves the time forward and fires every timer whose deadline has come,
+     * in the order of their slots. The handler may schedule and cancel timers.
+     * @param time the new time, not before the current one
+     * @param handler receives the due timers
+     */
+    public void advance(long time, Handler handler)
+    {
+        if (time < now) throw new IllegalArgumentException("Time cannot go back");
+        long from = now / resolution;
+        long to = time / resolution;
+        now = time;
+        if (size == 0) return;
+        // The slot of the old time is visited again, it may hold timers that were not due then
+        long last = Math.min(to, from + mask);
+        for (long s = from; s <= last; s++) {
+            fireDue((int) s & mask, handler);
+        }
+    }
+
+    private void fireDue(int s, Handler handler)
+    {
+        int timer = slotHead[s];
+        while (timer != NONE) {
+            if (deadline[timer] > now) {
+                timer = next[timer];
+                continue;
+            }
+            int k = kind[timer];
+            int p = payload[timer];
+            cancel(timer);
+            handler.onTimer(k, p);
+            // The handler may have changed this slot, start over
+            timer = slotHead[s];
+        }
+    }
+
+    /**
+     * Removes all timers and sets the time, e.g. when a new game starts
+     * @param time the new time
+     */
+    public void clear(long time)
+    {
+        Arrays.fill(slotHead, NONE);
+        Arrays.fill(slotTail, NONE);
+        free = NONE;
+        for (int i = next.length - 1; i >= 0; i--) {
+            next[i] = free;
+            free = i;
+        }
+        size = 0;
+        now = time;
+    }
+
+    private void grow(int capacity)
+    {
+        int old = next == null ? 0 : next.length;
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        previous = previous == null ? new int[capacity] : Arrays.copyOf(previous, capacity);
+        slot = slot == null ? new int[capacity] : Arrays.copyOf(slot, capacity);
+        kind = kind == null ? new int[capacity] : Arrays.copyOf(kind, capacity);
+        payload = payload == null ? new int[capacity] : Arrays.copyOf(payload, capacity);
+        deadline = deadline == null ? new long[capacity] : Arrays.copyOf(deadline, capacity);
+        for (int i = capacity - 1; i >= old; i--) {
+            next[i] = free;
+            free = i;
+        }
+    }
+
+    /**
+     * Returns the number of timers that have not fired yet
+     * @return the number of timers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the time up to which timers have fired
+     * @return the time in ms
+     */
+    public long getTime() {
+        return now;
+    }
+}
@@ -0,0 +1,319 @@
+package org.example.snakegame;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A batch of SnakeEnvs that are stepped together with one call, for training
+ * loops that act on many environments at once.
+ * step() takes one action per environment and writes the rewards, the done
+ * flags and all observations into flat arrays of the caller, observation i
+ * starting at i * getObservationSize(). An environment whose episode ended is
+ * reset right away, so its observation is the first one of the next episode,
+ * while getResult() still tells how the last one ended.
+ * The environments are split into ranges on a ForkJoinPool like the decisions
+ * of an Arena. A range covers many environments, so a step costs a handful of
+ * tasks instead of one hand-off per environment, and every worker writes only
+ * the slots of its own environments.
+ * The k-th episode of environment i gets a seed derived from the batch seed,
+ * i and k, so a batch gives the same episodes on any number of threads.
+ * Usage: VectorEnv [--envs=N] [--steps=N] [--threads=N] [--maxTicks=N]
+ * [--seed=N] plus the board, speed and food keys of GameConfig measures steps per
+ * second with random actions.
+ */
+public class VectorEnv
+{
+    private static final int ENVS_PER_TASK = 16; // Below this a range of environments is stepped on one thread
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L; // Spreads neighbouring episode seeds apart
+
+    private final SnakeEnv[] envs;
+    private final long[] episodes;
+    private final int observationSize;
+    private long seed;
+    private ForkJoinPool pool; // null to step on the calling thread
+
+    // The arrays of the step in progress
+    private int[] actions;
+    private float[] rewards;
+    private boolean[] dones;
+    private float[] observations;
+    private ByteBuffer observationBuffer;
+
+    /**
+     * Creates the environments, reset() must be called before the first step
+     * @param count the number of environments
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snakes
+     * @param maxTicks episodes still running after this many steps are truncated
+     */
+    public VectorEnv(int count, int width, int height, SpeedProfile speeds, int maxTicks)
+    {
+        this(count, width, height, speeds, FoodTable.DEFAULT, maxTicks);
+    }
+
+    /**
+     * Creates the environments with their own food, reset() must be called before the first step
+     * @param count the number of environments
+     * @param width board width in cells
+     * @param height board height in cells
+     * @param speeds the step lengths of the snakes
+     * @param foods the food types and their effects
+     * @param maxTicks episodes still running after this many steps are truncated
+     */
+    public VectorEnv(int count, int width, int height, SpeedProfile speeds, FoodTable foods, int maxTicks)
+    {
+        if (count < 1) throw new IllegalArgumentException("count must be positive");
+        this.envs = new SnakeEnv[count];
+        for (int i = 0; i < count; i++) {
+            envs[i] = new SnakeEnv(width, height, speeds, foods, maxTicks);
+        }
+        this.episodes = new long[count];
+        this.observationSize = envs[0].getObservationSize();
+    }
+
+    /**
+     * Sets the pool the environments are stepped on
+     * @param pool the pool, or null to step on the thread that calls step()
+     */
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the rewards of all environments, see SnakeEnv.setRewards()
+     * @param food reward for eating food
+     * @param death reward for the step the snake dies in
+     * @param step reward added to every step
+     */
+    public void setRewards(float food, float death, float step)
+    {
+        for (SnakeEnv env : envs) {
+            env.setRewards(food, death, step);
+        }
+    }
+
+    /**
+     * Starts a new episode in every environment and writes the first observations
+     * @param seed the seed of the batch
+     * @param observations the buffer for all observations, at least size() * getObservationSize() long
+     */
+    public void reset(long seed, float[] observations)
+    {
+        this.seed = seed;
+        for (int i = 0; i < envs.length; i++) {
+            episodes[i] = 0;
+            envs[i].reset(episodeSeed(i));
+            envs[i].observe(observations, i * observationSize);
+        }
+    }
+
+    /**
+     * Starts a new episode in every environment and writes the first observations
+     * @param seed the seed of the batch
+     * @param observations the buffer for all observations from index 0 on, its position is not moved
+     */
+    public void reset(long seed, ByteBuffer observations)
+    {
+        this.seed = seed;
+        for (int i = 0; i < envs.length; i++) {
+            episodes[i] = 0;
+            envs[i].reset(episodeSeed(i));
+            envs[i].observe(observations, i * observationSize * Float.BYTES);
+        }
+    }
+
+    /**
+     * Steps every environment once and resets those whose episode ended
+     * @param actions one action per environment, see SnakeEnv.step()
+     * @param rewards receives the reward of every environment
+     * @param dones receives whether the episode of every environment ended in this step
+     * @param observations receives all observations, at least size() * getObservationSize() long
+     */
+    public void step(int[] actions, float[] rewards, boolean[] dones, float[] observations)
+    {
+        this.observations = observations;
+        this.observationBuffer = null;
+        stepAll(actions, rewards, dones);
+    }
+
+    /**
+     * Steps every environment once and resets those whose episode ended
+     * @param actions one action per environment, see SnakeEnv.step()
+     * @param rewards receives the reward of every environment
+     * @param dones receives whether the episode of every environment ended in this step
+     * @param observations receives all observations as floats from index 0 on, its position is not moved
+     */
+    public void step(int[] actions, float[] rewards, boolean[] dones, ByteBuffer observations)
+    {
+        this.observations = null;
+        this.observationBuffer = observations;
+        stepAll(actions, rewards, dones);
+    }
+
+    private void stepAll(int[] actions, float[] rewards, boolean[] dones)
+    {
+        if (actions.length < envs.length || rewards.length < envs.length || dones.length < envs.length) {
+            throw new IllegalArgumentException("Arrays must hold one value per environment");
+        }
+        this.actions = actions;
+        this.rewards = rewards;
+        this.dones = dones;
+        try {
+            if (pool == null || envs.length <= ENVS_PER_TASK) {
+                step(0, envs.length);
+            } else {
+                pool.invoke(new Steps(0, envs.length));
+            }
+        } finally {
+            this.actions = null;
+            this.rewards = null;
+            this.dones = null;
+            this.observations = null;
+            this.observationBuffer = null;
+        }
+    }
+
+    /**
+     * Steps a range of environments, writing only their slots of the arrays
+     */
+    private void step(int from, int to)
+    {
+        for (int i = from; i < to; i++) {
+            SnakeEnv env = envs[i];
+            StepResult result = env.step(actions[i]);
+            rewards[i] = result.getReward();
+            dones[i] = result.isDone();
+            if (result.isDone()) {
+                episodes[i]++;
+                env.reset(episodeSeed(i));
+            }
+            if (observations != null) {
+                env.observe(observations, i * observationSize);
+            } else {
+                env.observe(observationBuffer, i * observationSize * Float.BYTES);
+            }
+        }
+    }
+
+    private long episodeSeed(int env)
+    {
+        return seed + (env + episodes[env] * envs.length) * SEED_GAMMA;
+    }
+
+    /**
+     * A range of environments, split in halves until it is small enough to step directly
+     */
+    private class Steps extends RecursiveAction
+    {
+        private final int from;
+        private final int to;
+
+        Steps(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= ENVS_PER_TASK) {
+                step(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Steps(from, middle), new Steps(middle, to));
+        }
+    }
+
+    //region Getter
+
+    /**
+     * Returns the number of environments
+     * @return the batch size
+     */
+    public int size() {
+        return envs.length;
+    }
+
+    /**
+     * Returns how many floats the observation of one environment has
+     * @return the size of one observation
+     */
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    /**
+     * Returns the result of the last step of an environment,
+     * for a done environment the last step of the episode that ended
+     * @param env the index of the environment
+     * @return the result, overwritten by the next step
+     */
+    public StepResult getResult(int env) {
+        return envs[env].getResult();
+    }
+
+    /**
+     * Returns one environment, e.g. to render its game
+     * @param env the index of the environment
+     * @return the environment
+     */
+    public SnakeEnv getEnv(int env) {
+        return envs[env];
+    }
+    //endregion
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --key=value: " + arg);
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        GameConfig config = GameConfig.load(arguments);
+        int count = Integer.parseInt(arguments.getOrDefault("envs", "256"));
+        int steps = Integer.parseInt(arguments.getOrDefault("steps", "1000"));
+        int threads = Integer.parseInt(arguments.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int maxTicks = Integer.parseInt(arguments.getOrDefault("maxTicks", "10000"));
+        long seed = Long.parseLong(arguments.getOrDefault("seed", "1"));
+
+        VectorEnv env = new VectorEnv(count, config.getWidth(), config.getHeight(), config.getSpeeds(),
+                config.getFoodTable(), maxTicks);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        env.setPool(pool);
+        int[] actions = new int[count];
+        float[] rewards = new float[count];
+        boolean[] dones = new boolean[count];
+        float[] observations = new float[count * env.getObservationSize()];
+        Random random = new Random(seed);
+        env.reset(seed, observations);
+
+        long episodes = 0;
+        double totalReward = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < count; i++) {
+                actions[i] = random.nextInt(SnakeEnv.ACTION_COUNT);
+            }
+            env.step(actions, rewards, dones, observations);
+            for (int i = 0; i < count; i++) {
+                totalReward += rewards[i];
+                if (dones[i]) episodes++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (pool != null) pool.shutdown();
+        System.out.printf("%d steps in %.2f s, %.0f steps/s, %d episodes, mean reward per step %.4f%n",
+                (long) steps * count, nanos / 1e9, (double) steps * count * 1e9 / nanos, episodes,
+                totalReward / ((double) steps * count));
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArenaMirrorTest
+{
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 20;
+    private static final int SNAKES = 4;
+    private static final int FOOD = 3;
+
+    @Test
+    void followsGrowthOfMoreThanOneSegment() throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("types", "apple");
+        properties.setProperty("apple.sprite", "/Pictures/red_apple.png");
+        properties.setProperty("apple.growth", "3");
+        FoodTable foods = FoodTable.parse(properties, null);
+
+        try (GameServer server = server(foods)) {
+            ArenaMirror mirror = new ArenaMirror(WIDTH, HEIGHT, SNAKES, FOOD, foods);
+            apply(mirror, server.getKeyframe());
+            boolean grew = false;
+            for (int t = 0; t < 2000; t++) {
+                int[] lengths = lengths(server.getArena());
+                server.tick();
+                ByteBuffer delta = server.getDelta();
+                apply(mirror, delta.hasRemaining() ? delta : server.getKeyframe());
+                assertSameArena(server.getArena(), mirror);
+                int[] now = lengths(server.getArena());
+                for (int i = 0; i < SNAKES; i++) {
+                    grew |= now[i] == lengths[i] + 3;
+                }
+            }
+            assertTrue(grew, "No snake ate in 2000 ticks");
+        }
+    }
+
+    @Test
+    void followsTheServerThroughSeveralRounds() throws IOException
+    {
+        try (GameServer server = server(FoodTable.DEFAULT)) {
+            ArenaMirror mirror = new ArenaMirror(WIDTH, HEIGHT, SNAKES, FOOD);
+            ArenaMirror late = new ArenaMirror(WIDTH, HEIGHT, SNAKES, FOOD);
+            apply(mirror, server.getKeyframe());
+            int rounds = 0;
+            for (int t = 0; t < 5000; t++) {
+                server.tick();
+                ByteBuffer delta = server.getDelta();
+                if (!delta.hasRemaining()) {
+                    rounds++;
+                    apply(mirror, server.getKeyframe());
+                    if (late.isSynced()) apply(late, server.getKeyframe());
+                    continue;
+                }
+                apply(mirror, delta);
+                assertSameArena(server.getArena(), mirror);
+                if (t == 500) {
+                    apply(late, server.getKeyframe());
+                } else if (late.isSynced()) {
+                    apply(late, server.getDelta());
+                    assertSameArena(server.getArena(), late);
+                }
+            }
+            assertTrue(rounds >= 2, "Only " + rounds + " new rounds");
+        }
+    }
+
+    @Test
+    void ignoresDeltasBeforeTheFirstKeyframe() throws IOException
+    {
+        try (GameServer server = server(FoodTable.DEFAULT)) {
+            server.tick();
+            ArenaMirror mirror = new ArenaMirror(WIDTH, HEIGHT, SNAKES, FOOD);
+            assertFalse(mirror.apply(NetProtocol.nextFrame(server.getDelta())));
+            assertFalse(mirror.isSynced());
+        }
+    }
+
+    @Test
+    void rejectsCorruptFrames() throws IOException
+    {
+        try (GameServer server = server(FoodTable.DEFAULT)) {
+            long next = server.getArena().getTick() + 1;
+            assertTrue(synced(server).apply(foodDelta(next, 0, 0)));
+
+            // A mirror is not used any more after a corrupt frame, so every case gets its own
+            assertThrows(IOException.class, () -> synced(server).apply(foodDelta(next, 0, -2)));
+            assertThrows(IOException.class, () -> synced(server).apply(foodDelta(next, 0, FoodTable.DEFAULT.size())));
+            assertThrows(IOException.class, () -> synced(server).apply(foodDelta(next, FOOD, 0)));
+            assertThrows(IOException.class, () -> synced(server).apply(foodDelta(next + 1, 0, 0)));
+            assertThrows(IOException.class,
+                    () -> synced(server).apply(ByteBuffer.wrap(new byte[] {NetProtocol.WELCOME})));
+        }
+    }
+
+    private static ArenaMirror synced(GameServer server) throws IOException
+    {
+        ArenaMirror mirror = new ArenaMirror(WIDTH, HEIGHT, SNAKES, FOOD);
+        apply(mirror, server.getKeyframe());
+        return mirror;
+    }
+
+    /**
+     * Builds a delta that only places one food item
+     */
+    private static ByteBuffer foodDelta(long tick, int food, int type)
+    {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        frame.put(NetProtocol.DELTA).putLong(tick).putLong(0).putInt(0).putInt(1);
+        NetProtocol.putVarInt(frame, food);
+        frame.put((byte) type);
+        NetProtocol.putVarInt(frame, 0);
+        return frame.flip();
+    }
+
+    static GameServer server(FoodTable foods) throws IOException
+    {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        return new GameServer(address, WIDTH, HEIGHT, SNAKES, FOOD, SpeedProfile.CLASSIC, foods, 42);
+    }
+
+    static void apply(ArenaMirror mirror, ByteBuffer frames) throws IOException
+    {
+        ByteBuffer frame = NetProtocol.nextFrame(frames);
+        assertTrue(mirror.apply(frame));
+        assertEquals(0, frame.remaining(), "Bytes left in the frame");
+    }
+
+    private static int[] lengths(Arena arena)
+    {
+        int[] lengths = new int[arena.getSnakeCount()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = arena.getSnake(i).getLength();
+        }
+        return lengths;
+    }
+
+    static void assertSameArena(Arena arena, ArenaMirror mirror)
+    {
+        assertEquals(arena.getTick(), mirror.getTick());
+        assertEquals(arena.getAliveCount(), mirror.getAliveCount());
+        for (int i = 0; i < arena.getSnakeCount(); i++) {
+            assertEquals(arena.isAlive(i), mirror.isAlive(i), "Snake " + i + " alive");
+            if (!arena.isAlive(i)) continue;
+            Snake expected = arena.getSnake(i);
+            Snake actual = mirror.getSnake(i);
+            assertEquals(expected.getDirection(), actual.getDirection());
+            assertEquals(expected.isHeadEnlarged(), actual.isHeadEnlarged());
+            assertArrayEquals(body(expected), body(actual), "Body of snake " + i);
+        }
+        for (int i = 0; i < arena.getFoodCount(); i++) {
+            assertSame(arena.getFoodType(i), mirror.getFoodType(i), "Type of food " + i);
+            if (arena.getFoodType(i) == null) continue;
+            assertEquals(arena.getFoodX(i), mirror.getFoodX(i));
+            assertEquals(arena.getFoodY(i), mirror.getFoodY(i));
+        }
+        for (int y = 0; y < arena.getHeight(); y++) {
+            for (int x = 0; x < arena.getWidth(); x++) {
+                assertEquals(arena.isOccupied(x, y), mirror.isOccupied(x, y), "Cell " + x + "," + y);
+            }
+        }
+    }
+
+    private static int[] body(Snake snake)
+    {
+        IntBuffer body = IntBuffer.allocate(snake.getLength());
+        snake.writeBody(body);
+        return body.array();
+    }
+}
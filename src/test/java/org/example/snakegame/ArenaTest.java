@@ -0,0 +1,166 @@
+package org.example.snakegame;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArenaTest
+{
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 6;
+
+    @Test
+    void twoHeadsMeetingInACellBothDie()
+    {
+        Arena arena = arena(3);
+        arena.placeSnakes(new Direction[] {Direction.RIGHT, Direction.LEFT, Direction.DOWN}, new int[][] {
+                {cell(2, 2), cell(1, 2)},
+                {cell(4, 2), cell(5, 2)},
+                {cell(0, 0)}});
+        move(arena);
+
+        assertFalse(arena.isAlive(0));
+        assertFalse(arena.isAlive(1));
+        assertTrue(arena.isAlive(2));
+        assertTrue(arena.isHeadOn(0));
+        assertTrue(arena.isHeadOn(1));
+        assertFalse(arena.isHeadOn(2));
+        assertEquals(1, arena.getAliveCount());
+        assertOccupied(arena, cell(0, 1));
+    }
+
+    @Test
+    void threeHeadsMeetingInACellAllDie()
+    {
+        Arena arena = arena(4);
+        arena.placeSnakes(new Direction[] {Direction.RIGHT, Direction.LEFT, Direction.DOWN, Direction.DOWN},
+                new int[][] {
+                        {cell(2, 2), cell(1, 2)},
+                        {cell(4, 2)},
+                        {cell(3, 1), cell(3, 0)},
+                        {cell(7, 0)}});
+        move(arena);
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(arena.isAlive(i));
+            assertTrue(arena.isHeadOn(i));
+        }
+        assertTrue(arena.isAlive(3));
+        assertEquals(1, arena.getAliveCount());
+        assertOccupied(arena, cell(7, 1));
+    }
+
+    @Test
+    void aHeadMayEnterATailCellLeftInTheSameTick()
+    {
+        Arena arena = arena(2);
+        // Snake 0 moves its head first, into the tail cell of snake 1 that has already been left
+        arena.placeSnakes(new Direction[] {Direction.UP, Direction.RIGHT}, new int[][] {
+                {cell(2, 3), cell(2, 4)},
+                {cell(3, 2), cell(2, 2)}});
+        move(arena);
+
+        assertTrue(arena.isAlive(0));
+        assertTrue(arena.isAlive(1));
+        assertOccupied(arena, cell(4, 2), cell(3, 2), cell(2, 2), cell(2, 3));
+    }
+
+    @Test
+    void aHeadMayFollowItsOwnTail()
+    {
+        Arena arena = arena(1);
+        arena.placeSnakes(new Direction[] {Direction.UP}, new int[][] {
+                {cell(1, 2), cell(2, 2), cell(2, 1), cell(1, 1)}});
+        move(arena);
+
+        assertTrue(arena.isAlive(0));
+        assertOccupied(arena, cell(1, 1), cell(1, 2), cell(2, 2), cell(2, 1));
+    }
+
+    @Test
+    void aGrownTailDoesNotLeaveItsCell()
+    {
+        Arena arena = arena(2);
+        // The last segment of snake 0 is stacked on its tail cell, as after eating
+        arena.placeSnakes(new Direction[] {Direction.RIGHT, Direction.UP}, new int[][] {
+                {cell(3, 2), cell(2, 2), cell(2, 2)},
+                {cell(2, 3), cell(2, 4)}});
+        move(arena);
+
+        assertTrue(arena.isAlive(0));
+        assertFalse(arena.isAlive(1));
+        assertFalse(arena.isHeadOn(1));
+        assertOccupied(arena, cell(4, 2), cell(3, 2), cell(2, 2));
+    }
+
+    @Test
+    void aSnakeRunningIntoABodyLeavesThatBodyOnTheBoard()
+    {
+        Arena arena = arena(2);
+        arena.placeSnakes(new Direction[] {Direction.RIGHT, Direction.UP}, new int[][] {
+                {cell(3, 2), cell(2, 2), cell(1, 2)},
+                {cell(4, 1), cell(4, 2), cell(4, 3)}});
+        move(arena);
+
+        assertFalse(arena.isAlive(0));
+        assertFalse(arena.isHeadOn(0));
+        assertTrue(arena.isAlive(1));
+        // Snake 0's head cell is part of snake 1, the rest of snake 0 is gone
+        assertOccupied(arena, cell(4, 0), cell(4, 1), cell(4, 2));
+    }
+
+    @Test
+    void aSnakeLeavingTheBoardIsRemoved()
+    {
+        Arena arena = arena(2);
+        arena.placeSnakes(new Direction[] {Direction.LEFT, Direction.DOWN}, new int[][] {
+                {cell(0, 3), cell(1, 3), cell(2, 3)},
+                {cell(5, 0)}});
+        move(arena);
+
+        assertFalse(arena.isAlive(0));
+        assertFalse(arena.isHeadOn(0));
+        assertTrue(arena.isAlive(1));
+        assertOccupied(arena, cell(5, 1));
+    }
+
+    /**
+     * Creates an arena without food, so only the placed snakes are on the board
+     */
+    private static Arena arena(int snakes)
+    {
+        return new Arena(WIDTH, HEIGHT, snakes, 0, SpeedProfile.CLASSIC, FoodTable.DEFAULT, 1);
+    }
+
+    private static int cell(int x, int y)
+    {
+        return y * WIDTH + x;
+    }
+
+    /**
+     * Ticks until the snakes, which were all placed at once and so move together, have made one move
+     */
+    private static void move(Arena arena)
+    {
+        while (!arena.willMove(0)) {
+            arena.tick();
+        }
+        arena.tick();
+    }
+
+    /**
+     * Checks that exactly the given cells are covered by a snake
+     */
+    private static void assertOccupied(Arena arena, int... cells)
+    {
+        boolean[] expected = new boolean[WIDTH * HEIGHT];
+        for (int cell : cells) {
+            expected[cell] = true;
+        }
+        for (int cell = 0; cell < expected.length; cell++) {
+            assertEquals(expected[cell], arena.isOccupied(cell % WIDTH, cell / WIDTH), "cell " + cell);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.snakegame;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest
+{
+    @Test
+    void aGameDyingOnTheLastTickIsFinished()
+    {
+        // The first game of a batch is played with the batch seed itself
+        SimulationEngine engine = new SimulationEngine(20, 15, SpeedProfile.CLASSIC, 5);
+        int lifetime = 1;
+        while (engine.step(Direction.UP)) {
+            lifetime++;
+        }
+        assertTrue(lifetime > 1);
+
+        BatchResult exact = new BatchRunner(20, 15, SpeedProfile.CLASSIC, lifetime)
+                .run(() -> state -> Direction.UP, 1, 5, 1);
+        assertEquals(lifetime, exact.getTicks());
+        assertEquals(0, exact.getUnfinished());
+
+        BatchResult cut = new BatchRunner(20, 15, SpeedProfile.CLASSIC, lifetime - 1)
+                .run(() -> state -> Direction.UP, 1, 5, 1);
+        assertEquals(lifetime - 1, cut.getTicks());
+        assertEquals(1, cut.getUnfinished());
+    }
+
+    @Test
+    void resultsDoNotDependOnTheNumberOfThreads()
+    {
+        BatchRunner runner = new BatchRunner(20, 15, SpeedProfile.CLASSIC, 2000);
+        BatchResult single = runner.run(GreedyPolicy::new, 64, 9, 1);
+        BatchResult parallel = runner.run(GreedyPolicy::new, 64, 9, 4);
+
+        assertEquals(64, parallel.getGames());
+        assertEquals(single.getTicks(), parallel.getTicks());
+        assertEquals(single.getUnfinished(), parallel.getUnfinished());
+        assertSameSamples(single.getScores(), parallel.getScores());
+        assertSameSamples(single.getLengths(), parallel.getLengths());
+    }
+
+    /**
+     * Compares two distributions sample by sample, in sorted order
+     */
+    private static void assertSameSamples(Distribution expected, Distribution actual)
+    {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMean(), actual.getMean());
+        for (int i = 0; i < expected.getCount(); i++) {
+            double percentile = 100.0 * (i + 1) / expected.getCount();
+            assertEquals(expected.getPercentile(percentile), actual.getPercentile(percentile));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FoodTableTest
+{
+    private static final String SPRITE = "/Pictures/red_apple.png";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultTableHasTheClassicApples()
+    {
+        FoodTable foods = FoodTable.DEFAULT;
+        assertEquals(3, foods.size());
+        assertEquals("redApple", foods.get(0).getName());
+        assertTrue(Double.isNaN(foods.get(0).getSpeed()));
+        assertEquals(FoodType.BOOST, foods.get(1).getSpeed());
+        assertTrue(foods.get(2).isEnlargeHead());
+        for (int i = 0; i < foods.size(); i++) {
+            assertEquals(i, foods.get(i).getIndex());
+            assertEquals(1, foods.get(i).getGrowth());
+            assertEquals(1, foods.get(i).getScore());
+        }
+        assertEquals(FoodTable.DEFAULT_DURATION, foods.getMaxDuration());
+    }
+
+    @Test
+    void equalWeightsDrawOneNumberPerFood()
+    {
+        // Replays recorded before food types had weights depend on this
+        Random table = new Random(31);
+        Random plain = new Random(31);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(plain.nextInt(3), FoodTable.DEFAULT.sample(table));
+        }
+    }
+
+    @Test
+    void drawsTypesByWeight()
+    {
+        FoodTable foods = FoodTable.parse(types("a", "6", "b", "2", "c", "1", "d", "1", "never", "0"), null);
+        int[] counts = new int[foods.size()];
+        Random random = new Random(37);
+        int draws = 200_000;
+        for (int i = 0; i < draws; i++) {
+            counts[foods.sample(random)]++;
+        }
+        assertEquals(0.6, counts[0] / (double) draws, 0.01);
+        assertEquals(0.2, counts[1] / (double) draws, 0.01);
+        assertEquals(0.1, counts[2] / (double) draws, 0.01);
+        assertEquals(0.1, counts[3] / (double) draws, 0.01);
+        assertEquals(0, counts[4], "A type of weight 0 was drawn");
+    }
+
+    @Test
+    void neverDrawsTypesOfWeightZero()
+    {
+        Random random = new Random(41);
+        for (int n = 2; n <= 40; n++) {
+            String[] pairs = new String[2 * n];
+            for (int i = 0; i < n; i++) {
+                pairs[2 * i] = "t" + i;
+                pairs[2 * i + 1] = i % 3 == 0 ? "0" : String.valueOf(random.nextDouble());
+            }
+            pairs[3] = "1"; // At least one type spawns
+            FoodTable foods = FoodTable.parse(types(pairs), null);
+            for (int i = 0; i < 2000; i++) {
+                int type = foods.sample(random);
+                assertTrue(foods.get(type).getWeight() > 0, "Drew " + foods.get(type) + " of " + n);
+            }
+        }
+    }
+
+    @Test
+    void compilesTheEffectsOfEachType()
+    {
+        Properties properties = types("plain", "1", "fast", "1", "double", "1");
+        properties.setProperty("plain.growth", "3");
+        properties.setProperty("plain.score", "0");
+        properties.setProperty("fast.speed", "40");
+        properties.setProperty("fast.duration", "2000");
+        properties.setProperty("fast.stacking", "extend");
+        properties.setProperty("double.scoreMultiplier", "2");
+        properties.setProperty("double.enlargeHead", "true");
+        properties.setProperty("double.duration", "7000");
+        properties.setProperty("double.stacking", "KEEP");
+        FoodTable foods = FoodTable.parse(properties, null);
+
+        assertEquals(0, foods.effects[0]);
+        assertEquals(3, foods.growth[0]);
+        assertEquals(0, foods.points[0]);
+        assertEquals(FoodTable.SPEED, foods.effects[1]);
+        assertEquals(FoodTable.HEAD | FoodTable.MULTIPLIER, foods.effects[2]);
+        assertEquals(2, foods.multipliers[2]);
+        assertEquals(7000, foods.getMaxDuration());
+
+        double[] speeds = foods.resolveSpeeds(SpeedProfile.CLASSIC);
+        assertTrue(Double.isNaN(speeds[0]));
+        assertEquals(40, speeds[1]);
+        assertEquals(SpeedProfile.CLASSIC.getBoostSpeed(), FoodTable.DEFAULT.resolveSpeeds(SpeedProfile.CLASSIC)[1]);
+    }
+
+    @Test
+    void stackingDecidesWhenARunningEffectEnds()
+    {
+        Properties properties = types("refresh", "1", "extend", "1", "keep", "1");
+        properties.setProperty("extend.stacking", "extend");
+        properties.setProperty("keep.stacking", "keep");
+        FoodTable foods = FoodTable.parse(properties, null);
+
+        for (int type = 0; type < 3; type++) {
+            assertEquals(1000 + FoodTable.DEFAULT_DURATION, foods.effectEnd(type, 1000, -1));
+        }
+        assertEquals(1000 + FoodTable.DEFAULT_DURATION, foods.effectEnd(0, 1000, 3000));
+        assertEquals(3000 + FoodTable.DEFAULT_DURATION, foods.effectEnd(1, 1000, 3000));
+        assertEquals(3000, foods.effectEnd(2, 1000, 3000));
+    }
+
+    @Test
+    void findsSpritesNextToTheFile() throws IOException
+    {
+        Files.write(directory.resolve("pear.png"), new byte[] {1});
+        Path file = directory.resolve("foods.properties");
+        Files.writeString(file, "types=pear\npear.sprite=pear.png\npear.growth=2\n");
+
+        FoodTable foods = FoodTable.load(file);
+        assertEquals(directory.resolve("pear.png").toUri().toURL(), foods.get(0).getImageUrl());
+        assertEquals("pear.png", foods.get(0).getImagePath());
+        assertEquals(2, foods.get(0).getGrowth());
+    }
+
+    @Test
+    void rejectsInvalidTables()
+    {
+        assertInvalid(new Properties());
+        assertInvalid(types("a", "1", "a", "1"));
+        assertInvalid(types("a", "-1"));
+        assertInvalid(types("a", "0", "b", "0"));
+        assertInvalid(types("a", "heavy"));
+        assertInvalid(with(types("a", "1"), "a.speed", "0"));
+        assertInvalid(with(types("a", "1"), "a.speed", "0.5"));
+        assertInvalid(with(types("a", "1"), "a.speed", "12.5"));
+        assertInvalid(with(types("a", "1"), "a.speed", "fast"));
+        assertInvalid(with(types("a", "1"), "a.growth", "-1"));
+        assertInvalid(with(types("a", "1"), "a.scoreMultiplier", "0"));
+        assertInvalid(with(types("a", "1"), "a.duration", "0"));
+        assertInvalid(with(types("a", "1"), "a.stacking", "sometimes"));
+        assertInvalid(with(types("a", "1"), "a.sprite", "missing.png"));
+        Properties noSprite = new Properties();
+        noSprite.setProperty("types", "a");
+        assertInvalid(noSprite);
+
+        String[] many = new String[2 * (FoodTable.MAX_TYPES + 1)];
+        for (int i = 0; i <= FoodTable.MAX_TYPES; i++) {
+            many[2 * i] = "t" + i;
+            many[2 * i + 1] = "1";
+        }
+        assertInvalid(types(many));
+        assertEquals(FoodTable.MAX_TYPES, FoodTable.parse(types(Arrays.copyOf(many, many.length - 2)), null).size());
+    }
+
+    private static void assertInvalid(Properties properties)
+    {
+        assertThrows(IllegalArgumentException.class, () -> FoodTable.parse(properties, null));
+    }
+
+    private static Properties with(Properties properties, String key, String value)
+    {
+        properties.setProperty(key, value);
+        return properties;
+    }
+
+    /**
+     * Describes types by name and weight, all with the red apple as sprite
+     */
+    private static Properties types(String... namesAndWeights)
+    {
+        Properties properties = new Properties();
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < namesAndWeights.length; i += 2) {
+            String name = namesAndWeights[i];
+            if (i > 0) names.append(',');
+            names.append(name);
+            properties.setProperty(name + ".weight", namesAndWeights[i + 1]);
+            properties.setProperty(name + ".sprite", SPRITE);
+        }
+        properties.setProperty("types", names.toString());
+        return properties;
+    }
+}
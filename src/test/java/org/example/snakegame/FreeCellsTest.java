@@ -0,0 +1,111 @@
+package org.example.snakegame;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FreeCellsTest
+{
+    @Test
+    void removeAndAddAreIdempotent()
+    {
+        FreeCells free = new FreeCells(5, 4);
+        assertEquals(20, free.size());
+        free.remove(2, 3);
+        free.remove(2, 3);
+        assertEquals(19, free.size());
+        free.add(2, 3);
+        free.add(2, 3);
+        assertEquals(20, free.size());
+    }
+
+    @Test
+    void samplesOnlyFreeCellsWithEqualChance()
+    {
+        FreeCells free = new FreeCells(4, 4);
+        for (int x = 0; x < 4; x++) {
+            free.remove(x, 1);
+        }
+        int[] counts = new int[16];
+        Random random = new Random(5);
+        for (int i = 0; i < 120_000; i++) {
+            counts[free.sample(random)]++;
+        }
+        for (int cell = 0; cell < 16; cell++) {
+            if (cell / 4 == 1) {
+                assertEquals(0, counts[cell], "Covered cell " + cell);
+            } else {
+                assertEquals(10_000, counts[cell], 500, "Cell " + cell);
+            }
+        }
+    }
+
+    @Test
+    void throwsWhenTheBoardIsFull()
+    {
+        FreeCells free = new FreeCells(2, 1);
+        free.remove(0, 0);
+        free.remove(1, 0);
+        assertThrows(IllegalStateException.class, () -> free.sample(new Random(1)));
+    }
+
+    @Test
+    void restoresTheOrderOfTheFreeCells()
+    {
+        FreeCells free = new FreeCells(8, 8);
+        FreeCells copy = new FreeCells(8, 8);
+        Random random = new Random(9);
+        for (int i = 0; i < 40; i++) {
+            int x = random.nextInt(8);
+            int y = random.nextInt(8);
+            free.remove(x, y);
+            copy.remove(x, y);
+        }
+        for (int i = 0; i < 10; i++) {
+            int cell = free.sample(random);
+            free.remove(cell % 8, cell / 8);
+            free.add(cell % 8, cell / 8);
+        }
+        IntBuffer order = IntBuffer.allocate(free.size());
+        free.writeTo(order);
+        copy.readFrom(order.flip(), free.size());
+
+        // The same draws give the same cells only if the order is the same
+        Random first = new Random(13);
+        Random second = new Random(13);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(free.sample(first), copy.sample(second));
+        }
+    }
+
+    @Test
+    void rejectsAnOrderOfOtherCells()
+    {
+        FreeCells free = new FreeCells(3, 1);
+        free.remove(0, 0);
+        assertThrows(IllegalArgumentException.class, () -> free.readFrom(IntBuffer.wrap(new int[] {0, 1}), 2));
+        FreeCells twice = new FreeCells(3, 1);
+        twice.remove(0, 0);
+        assertThrows(IllegalArgumentException.class, () -> twice.readFrom(IntBuffer.wrap(new int[] {1, 1}), 2));
+        assertThrows(IllegalArgumentException.class, () -> new FreeCells(3, 1).readFrom(IntBuffer.allocate(2), 2));
+    }
+
+    @Test
+    void engineNeverSpawnsFoodOnTheSnake()
+    {
+        SimulationEngine engine = new SimulationEngine(6, 6, SpeedProfile.CLASSIC, 17);
+        Random random = new Random(17);
+        for (int i = 0; i < 20_000; i++) {
+            if (!engine.step(Direction.values()[random.nextInt(4)])) {
+                engine.reset(i, SpeedProfile.CLASSIC.getNormalSpeed());
+            }
+            GameState state = engine.getState();
+            assertFalse(state.getSnake().isOccupied(state.getFoodX(), state.getFoodY()), "Food on the snake");
+        }
+    }
+}
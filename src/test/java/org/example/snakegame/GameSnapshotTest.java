@@ -0,0 +1,257 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSnapshotTest
+{
+    // Offsets into the header, see GameSnapshot.HEADER_SIZE
+    private static final int VERSION_OFFSET = 4;
+    private static final int FOOD_TYPE_OFFSET = 53;
+    private static final int FOOD_X_OFFSET = 54;
+    private static final int BLINK_OFFSET = 86;
+    private static final int BLINK_SIZE = 4 + 8;
+    private static final int SPEED_OFFSET = BLINK_OFFSET + BLINK_SIZE + 1;
+    private static final int STATS_SIZE = 8 + 4 + 1;
+    private static final int MULTIPLIER_SIZE = 4 + 8;
+    private static final int BODY_OFFSET = 124;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoredGameContinuesLikeTheOriginal() throws IOException
+    {
+        SimulationEngine original = play(7, 3000);
+        Path file = directory.resolve("game.snapshot");
+        GameSnapshot.save(original, file);
+        SimulationEngine restored = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 0);
+        GameSnapshot.load(restored, file);
+
+        assertSameGame(original.getState(), restored.getState());
+        assertSameStatistics(original.getState(), restored.getState());
+        continueBoth(original, restored, 2000);
+        assertThrows(IllegalStateException.class, restored::getReplay);
+    }
+
+    @Test
+    void readsVersion3WithoutScoreMultiplier() throws IOException
+    {
+        SimulationEngine original = play(8, 2000);
+        ByteBuffer snapshot = GameSnapshot.encode(original);
+        ByteBuffer old = withVersion(cut(snapshot, snapshot.limit() - MULTIPLIER_SIZE, MULTIPLIER_SIZE), 3);
+
+        SimulationEngine restored = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 0);
+        GameSnapshot.decode(restored, old);
+        assertSameGame(original.getState(), restored.getState());
+        assertSameStatistics(original.getState(), restored.getState());
+        assertEquals(1, restored.getState().getScoreMultiplier());
+        continueBoth(original, restored, 1000);
+    }
+
+    @Test
+    void readsVersion2WithoutStatistics() throws IOException
+    {
+        SimulationEngine original = play(9, 2000);
+        ByteBuffer snapshot = GameSnapshot.encode(original);
+        int trailer = STATS_SIZE + original.getState().getEatenTypes() * Integer.BYTES + MULTIPLIER_SIZE;
+        ByteBuffer old = withVersion(cut(snapshot, snapshot.limit() - trailer, trailer), 2);
+
+        SimulationEngine restored = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 0);
+        GameSnapshot.decode(restored, old);
+        assertSameGame(original.getState(), restored.getState());
+        assertEquals(0, restored.getState().getSeed());
+        for (int i = 0; i < original.getFoods().size(); i++) {
+            assertEquals(0, restored.getState().getEaten(i));
+        }
+        continueBoth(original, restored, 1000);
+    }
+
+    @Test
+    void readsVersion1WithoutBlinking() throws IOException
+    {
+        SimulationEngine original = play(10, 500);
+        ByteBuffer snapshot = GameSnapshot.encode(original);
+        int trailer = STATS_SIZE + original.getState().getEatenTypes() * Integer.BYTES + MULTIPLIER_SIZE;
+        ByteBuffer old = cut(snapshot, snapshot.limit() - trailer, trailer);
+        old = withVersion(cut(old, BLINK_OFFSET, BLINK_SIZE), 1);
+
+        SimulationEngine restored = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 0);
+        GameSnapshot.decode(restored, old);
+        GameState expected = original.getState();
+        GameState actual = restored.getState();
+        assertEquals(-1, actual.getBlink());
+        assertEquals(expected.getTick(), actual.getTick());
+        assertEquals(expected.getScore().getScore(), actual.getScore().getScore());
+        assertEquals(expected.getFoodX(), actual.getFoodX());
+        assertEquals(expected.getFoodY(), actual.getFoodY());
+        assertBody(expected.getSnake(), actual.getSnake());
+    }
+
+    @Test
+    void readsAFinishedGameWhoseHeadLeftTheBoard() throws IOException
+    {
+        SimulationEngine original = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 12);
+        while (original.step(Direction.UP)) {
+            // Runs into the top wall
+        }
+        assertEquals(-1, original.getState().getSnake().getHeadY());
+
+        SimulationEngine restored = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 0);
+        GameSnapshot.decode(restored, GameSnapshot.encode(original));
+        assertTrue(restored.getState().isGameOver());
+        assertBody(original.getState().getSnake(), restored.getState().getSnake());
+    }
+
+    @Test
+    void rejectsCorruptSnapshots() throws IOException
+    {
+        SimulationEngine original = play(11, 100);
+        ByteBuffer snapshot = GameSnapshot.encode(original);
+        SimulationEngine engine = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 0);
+        assertEquals(original.getState().getFoodType().getIndex(), snapshot.get(FOOD_TYPE_OFFSET));
+        assertEquals(original.getState().getSnake().getSpeed(), snapshot.getDouble(SPEED_OFFSET));
+
+        ByteBuffer magic = copy(snapshot);
+        magic.put(0, (byte) 0);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, magic));
+
+        ByteBuffer version = withVersion(copy(snapshot), 5);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, version));
+
+        ByteBuffer foodType = copy(snapshot);
+        foodType.put(FOOD_TYPE_OFFSET, (byte) -2);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, foodType));
+
+        ByteBuffer otherTable = copy(snapshot);
+        otherTable.put(FOOD_TYPE_OFFSET, (byte) engine.getFoods().size());
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, otherTable));
+
+        ByteBuffer speed = copy(snapshot);
+        speed.putDouble(SPEED_OFFSET, 0.5);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, speed));
+
+        ByteBuffer food = copy(snapshot);
+        food.putInt(FOOD_X_OFFSET, 25);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, food));
+
+        // A body cell two steps away from the one before it
+        Snake snake = original.getState().getSnake();
+        assertTrue(snake.getLength() > 1);
+        int x = snake.getHeadX() < 2 ? snake.getHeadX() + 2 : snake.getHeadX() - 2;
+        ByteBuffer gap = copy(snapshot);
+        gap.putInt(BODY_OFFSET + Integer.BYTES, cell(x, snake.getHeadY()));
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, gap));
+
+        ByteBuffer fresh = GameSnapshot.encode(new SimulationEngine(25, 20, SpeedProfile.CLASSIC, 11));
+        GameSnapshot.decode(engine, copy(fresh));
+        ByteBuffer offBoard = copy(fresh);
+        offBoard.putInt(BODY_OFFSET, cell(25, 0));
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, offBoard));
+
+        ByteBuffer truncated = copy(snapshot).limit(snapshot.limit() - 1);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(engine, truncated));
+    }
+
+    /**
+     * Packs a cell like the snake stores it, x in the upper and y in the lower 16 bits
+     */
+    private static int cell(int x, int y)
+    {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    /**
+     * Plays a game on a 25x20 board with the greedy policy and a few random turns
+     */
+    private static SimulationEngine play(long seed, int ticks)
+    {
+        SimulationEngine engine = new SimulationEngine(25, 20, SpeedProfile.CLASSIC, seed);
+        Policy policy = new GreedyPolicy();
+        Random random = new Random(seed);
+        for (int i = 0; i < ticks && !engine.getState().isGameOver(); i++) {
+            engine.step(random.nextInt(20) == 0 ? Direction.values()[random.nextInt(4)]
+                    : policy.decide(engine.getState()));
+        }
+        return engine;
+    }
+
+    private static void continueBoth(SimulationEngine original, SimulationEngine restored, int ticks)
+    {
+        Policy policy = new GreedyPolicy();
+        for (int i = 0; i < ticks && !original.getState().isGameOver(); i++) {
+            Direction turn = policy.decide(original.getState());
+            assertEquals(original.step(turn), restored.step(turn));
+            assertSameGame(original.getState(), restored.getState());
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer)
+    {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.duplicate());
+        return copy.flip();
+    }
+
+    /**
+     * Removes bytes from a snapshot, the way an older version did not write them
+     */
+    private static ByteBuffer cut(ByteBuffer buffer, int offset, int length)
+    {
+        ByteBuffer cut = ByteBuffer.allocate(buffer.remaining() - length);
+        cut.put(buffer.duplicate().limit(offset));
+        cut.put(buffer.duplicate().position(offset + length));
+        return cut.flip();
+    }
+
+    private static ByteBuffer withVersion(ByteBuffer buffer, int version)
+    {
+        return buffer.putShort(VERSION_OFFSET, (short) version);
+    }
+
+    private static void assertSameGame(GameState expected, GameState actual)
+    {
+        assertEquals(expected.getTick(), actual.getTick());
+        assertEquals(expected.getElapsedMillis(), actual.getElapsedMillis());
+        assertEquals(expected.isGameOver(), actual.isGameOver());
+        assertEquals(expected.getScore().getScore(), actual.getScore().getScore());
+        assertEquals(expected.getNextInsaneTrigger(), actual.getNextInsaneTrigger());
+        assertEquals(expected.getRotation(), actual.getRotation());
+        assertEquals(expected.getBlink(), actual.getBlink());
+        assertEquals(expected.getFoodType(), actual.getFoodType());
+        assertEquals(expected.getFoodX(), actual.getFoodX());
+        assertEquals(expected.getFoodY(), actual.getFoodY());
+        assertEquals(expected.getScoreMultiplier(), actual.getScoreMultiplier());
+        assertEquals(expected.getSnake().getDirection(), actual.getSnake().getDirection());
+        assertEquals(expected.getSnake().getSpeed(), actual.getSnake().getSpeed());
+        assertEquals(expected.getSnake().isHeadEnlarged(), actual.getSnake().isHeadEnlarged());
+        assertBody(expected.getSnake(), actual.getSnake());
+    }
+
+    private static void assertSameStatistics(GameState expected, GameState actual)
+    {
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getInsaneCount(), actual.getInsaneCount());
+        for (int i = 0; i < expected.getEatenTypes(); i++) {
+            assertEquals(expected.getEaten(i), actual.getEaten(i), "Eaten of type " + i);
+        }
+    }
+
+    private static void assertBody(Snake expected, Snake actual)
+    {
+        assertEquals(expected.getLength(), actual.getLength());
+        for (int i = 0; i < expected.getLength(); i++) {
+            assertEquals(expected.getX(i), actual.getX(i), "x of segment " + i);
+            assertEquals(expected.getY(i), actual.getY(i), "y of segment " + i);
+        }
+    }
+}
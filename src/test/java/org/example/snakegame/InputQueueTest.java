@@ -0,0 +1,125 @@
+package org.example.snakegame;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputQueueTest
+{
+    // Every turn is a quarter turn from the one before it, so all of them are valid
+    private static final Direction[] CIRCLE = {Direction.UP, Direction.LEFT, Direction.DOWN, Direction.RIGHT};
+
+    @Test
+    void pollsTurnsInTheOrderTheyWereOffered()
+    {
+        InputQueue queue = new InputQueue(Direction.RIGHT);
+        for (Direction direction : CIRCLE) {
+            assertTrue(queue.offer(direction));
+        }
+        for (Direction direction : CIRCLE) {
+            assertEquals(direction, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void rejectsTurnsWhenFull()
+    {
+        InputQueue queue = new InputQueue(Direction.RIGHT);
+        for (Direction direction : CIRCLE) {
+            assertTrue(queue.offer(direction));
+        }
+        assertFalse(queue.offer(Direction.UP));
+        assertEquals(Direction.UP, queue.poll());
+        assertTrue(queue.offer(Direction.UP));
+    }
+
+    @Test
+    void rejectsRepeatsAndReversals()
+    {
+        InputQueue queue = new InputQueue(Direction.RIGHT);
+        assertFalse(queue.offer(Direction.RIGHT));
+        assertFalse(queue.offer(Direction.LEFT));
+        assertTrue(queue.offer(Direction.UP));
+        // Checked against the last queued turn, not the current direction
+        assertFalse(queue.offer(Direction.UP));
+        assertFalse(queue.offer(Direction.DOWN));
+        assertTrue(queue.offer(Direction.LEFT));
+        assertEquals(Direction.UP, queue.poll());
+        assertEquals(Direction.LEFT, queue.poll());
+        // Once empty, checked against the direction of the last poll
+        assertFalse(queue.offer(Direction.RIGHT));
+        assertTrue(queue.offer(Direction.DOWN));
+    }
+
+    @Test
+    void clearDropsTheTurnsAndSetsTheCurrentDirection()
+    {
+        InputQueue queue = new InputQueue(Direction.RIGHT);
+        assertTrue(queue.offer(Direction.UP));
+        assertTrue(queue.offer(Direction.LEFT));
+        queue.clear(Direction.DOWN);
+        assertNull(queue.poll());
+
+        assertFalse(queue.offer(Direction.DOWN));
+        assertFalse(queue.offer(Direction.UP));
+        assertTrue(queue.offer(Direction.LEFT));
+        assertEquals(Direction.LEFT, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void indicesWrapAroundTheRing()
+    {
+        InputQueue queue = new InputQueue(Direction.RIGHT);
+        int offered = 0;
+        int polled = 0;
+        // Keeps one to three turns queued, so every slot is used at every fill level
+        for (int round = 0; round < 1000; round++) {
+            int fill = 1 + round % 3;
+            while (offered - polled < fill) {
+                assertTrue(queue.offer(CIRCLE[offered++ % CIRCLE.length]));
+            }
+            assertEquals(CIRCLE[polled++ % CIRCLE.length], queue.poll());
+        }
+        while (polled < offered) {
+            assertEquals(CIRCLE[polled++ % CIRCLE.length], queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void noTurnIsLostOrDuplicatedBetweenTwoThreads() throws InterruptedException
+    {
+        int turns = 200_000;
+        InputQueue queue = new InputQueue(Direction.RIGHT);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < turns; i++) {
+                // The turns are all valid, so a rejection means the queue is full
+                while (!queue.offer(CIRCLE[i % CIRCLE.length])) {
+                    Thread.yield(); // Lets the other thread run, also on a single core
+                }
+            }
+        });
+        producer.setDaemon(true); // Does not keep the JVM alive if the test fails
+        producer.start();
+
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        int polled = 0;
+        while (polled < turns && System.nanoTime() < deadline) {
+            Direction direction = queue.poll();
+            if (direction == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(CIRCLE[polled % CIRCLE.length], direction, "turn " + polled);
+            polled++;
+        }
+        producer.join(1000);
+        assertEquals(turns, polled);
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.snakegame;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyTest
+{
+    @Test
+    void gridFollowsAddAndRemove()
+    {
+        checkAgainstSet(new GridOccupancy(37, 23), 37, 23);
+    }
+
+    @Test
+    void hashFollowsAddAndRemove()
+    {
+        checkAgainstSet(new HashOccupancy(37, 23), 37, 23);
+    }
+
+    @Test
+    void picksTheImplementationByBoardSize()
+    {
+        assertTrue(Occupancy.forBoard(1024, 1024) instanceof GridOccupancy);
+        assertTrue(Occupancy.forBoard(1025, 1024) instanceof HashOccupancy);
+    }
+
+    @Test
+    void gridKeepsNeighbouringWordsApart()
+    {
+        // 64 cells per word, the cells around a word border must not share a bit
+        Occupancy occupancy = new GridOccupancy(64, 3);
+        occupancy.add(63, 0);
+        assertTrue(occupancy.contains(63, 0));
+        assertFalse(occupancy.contains(0, 1));
+        assertFalse(occupancy.contains(62, 0));
+        occupancy.add(0, 1);
+        occupancy.remove(63, 0);
+        assertFalse(occupancy.contains(63, 0));
+        assertTrue(occupancy.contains(0, 1));
+    }
+
+    @Test
+    void hashSamplesOnlyFreeCells()
+    {
+        Occupancy occupancy = new HashOccupancy(4, 3);
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 4; x++) {
+                if (x != 2 || y != 1) occupancy.add(x, y);
+            }
+        }
+        Random random = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1 * 4 + 2, occupancy.sampleFree(random));
+        }
+        occupancy.add(2, 1);
+        assertEquals(-1, occupancy.sampleFree(random));
+    }
+
+    @Test
+    void snakeDetectsBitingItself()
+    {
+        Snake snake = new Snake(10, 10, 5, 5);
+        for (int i = 0; i < 4; i++) {
+            snake.grow();
+        }
+        // Length 5 after four moves: right, down, left, then up onto its own body
+        Direction[] turns = {Direction.RIGHT, Direction.DOWN, Direction.LEFT, Direction.UP};
+        for (Direction turn : turns) {
+            snake.setDirection(turn);
+            snake.move();
+            assertEquals(turn == Direction.UP, snake.checkCollision(), "After moving " + turn);
+        }
+    }
+
+    @Test
+    void snakeMayFollowItsOwnTail()
+    {
+        Snake snake = new Snake(10, 10, 5, 5);
+        for (int i = 0; i < 3; i++) {
+            snake.grow();
+        }
+        Direction[] turns = {Direction.RIGHT, Direction.DOWN, Direction.LEFT, Direction.UP, Direction.RIGHT};
+        for (Direction turn : turns) {
+            snake.setDirection(turn);
+            snake.move();
+        }
+        // Four cells in a square, the head always moves into the cell the tail just left
+        assertFalse(snake.checkCollision());
+        assertEquals(4, snake.getLength());
+    }
+
+    private static void checkAgainstSet(Occupancy occupancy, int width, int height)
+    {
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (random.nextInt(3) == 0) {
+                occupancy.remove(x, y);
+                expected.remove(y * width + x);
+            } else {
+                occupancy.add(x, y);
+                expected.add(y * width + x);
+            }
+            assertEquals((long) width * height - expected.size(), occupancy.freeCount());
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(expected.contains(y * width + x), occupancy.contains(x, y), "Cell " + x + "," + y);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            int cell = occupancy.sampleFree(random);
+            assertFalse(expected.contains(cell), "Sampled covered cell " + cell);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.snakegame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplayTest
+{
+    private static final int START_SPEED_OFFSET = 4 + 1 + 4 + 4 + 3 * 8; // magic, version, width, height, speeds
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWhatWasWritten() throws IOException
+    {
+        long[] ticks = {0, 3, 3, 40, 1_000_000};
+        Direction[] turns = {Direction.UP, Direction.LEFT, Direction.DOWN, Direction.RIGHT, Direction.UP};
+        Replay replay = new Replay(40, 25, SpeedProfile.FAST, 80, -123456789L, ticks, turns, 1_000_001);
+
+        Replay copy = Replay.read(new ByteArrayInputStream(replay.toBytes()));
+        assertEquals(40, copy.getWidth());
+        assertEquals(25, copy.getHeight());
+        assertEquals(SpeedProfile.FAST.getNormalSpeed(), copy.getSpeeds().getNormalSpeed());
+        assertEquals(SpeedProfile.FAST.getBoostSpeed(), copy.getSpeeds().getBoostSpeed());
+        assertEquals(SpeedProfile.FAST.getRestartSpeed(), copy.getSpeeds().getRestartSpeed());
+        assertEquals(80, copy.getStartSpeed());
+        assertEquals(-123456789L, copy.getSeed());
+        assertEquals(1_000_001, copy.getTicks());
+        assertEquals(turns.length, copy.getTurnCount());
+        for (int i = 0; i < turns.length; i++) {
+            assertEquals(ticks[i], copy.getTurnTick(i));
+            assertEquals(turns[i], copy.getTurn(i));
+        }
+    }
+
+    @Test
+    void storesCloseTurnsInOneByteEach()
+    {
+        int count = 1000;
+        long[] ticks = new long[count];
+        Direction[] turns = new Direction[count];
+        for (int i = 0; i < count; i++) {
+            ticks[i] = i * 31L;
+            turns[i] = Direction.values()[i % 4];
+        }
+        byte[] empty = new Replay(30, 30, SpeedProfile.CLASSIC, 150, 1, new long[0], new Direction[0], 31_000)
+                .toBytes();
+        byte[] full = new Replay(30, 30, SpeedProfile.CLASSIC, 150, 1, ticks, turns, 31_000).toBytes();
+        // The turn count takes one byte more
+        assertEquals(empty.length + count + 1, full.length);
+    }
+
+    @Test
+    void playsTheRecordedGameAgain() throws IOException
+    {
+        SimulationEngine engine = new SimulationEngine(20, 15, SpeedProfile.CLASSIC, 99);
+        Policy policy = new GreedyPolicy();
+        Random random = new Random(99);
+        while (engine.getState().getTick() < 5000) {
+            Direction turn = random.nextInt(10) == 0 ? Direction.values()[random.nextInt(4)]
+                    : policy.decide(engine.getState());
+            if (!engine.step(turn)) break;
+        }
+        GameState expected = engine.getState();
+        Path file = directory.resolve("game.replay");
+        engine.getReplay().save(file);
+
+        GameState actual = new ReplayPlayer(Replay.load(file)).fastForward();
+        assertEquals(expected.getTick(), actual.getTick());
+        assertEquals(expected.getElapsedMillis(), actual.getElapsedMillis());
+        assertEquals(expected.getScore().getScore(), actual.getScore().getScore());
+        assertEquals(expected.getSnake().getLength(), actual.getSnake().getLength());
+        assertEquals(expected.getSnake().getHeadX(), actual.getSnake().getHeadX());
+        assertEquals(expected.getSnake().getHeadY(), actual.getSnake().getHeadY());
+        assertEquals(expected.getFoodX(), actual.getFoodX());
+        assertEquals(expected.getFoodY(), actual.getFoodY());
+        assertEquals(expected.isGameOver(), actual.isGameOver());
+    }
+
+    @Test
+    void rejectsDataThatIsNoReplay()
+    {
+        byte[] bytes = new Replay(30, 30, SpeedProfile.CLASSIC, 150, 1, new long[0], new Direction[0], 10)
+                .toBytes();
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] ^= 1;
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(wrongMagic)));
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(truncated)));
+
+        // Step lengths that are not whole ms would stop the clock of the engine
+        byte[] fractionalSpeed = bytes.clone();
+        ByteBuffer.wrap(fractionalSpeed).putDouble(START_SPEED_OFFSET, 0.5);
+        assertThrows(IOException.class, () -> Replay.read(new ByteArrayInputStream(fractionalSpeed)));
+    }
+}
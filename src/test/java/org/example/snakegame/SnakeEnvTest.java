@@ -0,0 +1,104 @@
+package org.example.snakegame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnakeEnvTest
+{
+    @Test
+    void sameSeedAndActionsGiveTheSameEpisode()
+    {
+        SnakeEnv first = new SnakeEnv(10, 8, SpeedProfile.CLASSIC, 500);
+        SnakeEnv second = new SnakeEnv(10, 8, SpeedProfile.CLASSIC, 500);
+        float[] expected = new float[first.getObservationSize()];
+        float[] actual = new float[second.getObservationSize()];
+        Random actions = new Random(3);
+        for (int episode = 0; episode < 5; episode++) {
+            first.reset(episode);
+            second.reset(episode);
+            while (!first.isDone()) {
+                int action = actions.nextInt(SnakeEnv.ACTION_COUNT);
+                float reward = first.step(action).getReward();
+                assertEquals(reward, second.step(action).getReward());
+                assertEquals(first.isDone(), second.isDone());
+                first.observe(expected, 0);
+                second.observe(actual, 0);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void floatAndByteObservationsAreEqual()
+    {
+        SnakeEnv env = new SnakeEnv(10, 8, SpeedProfile.CLASSIC, 500);
+        int size = env.getObservationSize();
+        int offset = 3; // Not aligned to the longs the planes are cleared with
+        float[] floats = new float[offset + size];
+        ByteBuffer heap = ByteBuffer.allocate((offset + size) * Float.BYTES);
+        ByteBuffer direct = ByteBuffer.allocateDirect((offset + size) * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        Policy policy = new GreedyPolicy();
+        Random random = new Random(4);
+        for (int episode = 0; episode < 5; episode++) {
+            env.reset(episode);
+            do {
+                env.observe(floats, offset);
+                env.observe(heap, offset * Float.BYTES);
+                direct.position(offset * Float.BYTES);
+                env.observe(direct);
+                assertEquals((offset + size) * Float.BYTES, direct.position());
+                for (int i = 0; i < size; i++) {
+                    int index = (offset + i) * Float.BYTES;
+                    assertEquals(floats[offset + i], heap.getFloat(index), "float " + i);
+                    assertEquals(floats[offset + i], direct.getFloat(index), "float " + i);
+                }
+            } while (!env.step(random.nextInt(10) == 0 ? random.nextInt(SnakeEnv.ACTION_COUNT)
+                    : action(policy.decide(env.getState()))).isDone());
+        }
+    }
+
+    @Test
+    void foodWorthNoPointsStillGivesTheFoodReward()
+    {
+        Properties properties = new Properties();
+        properties.setProperty("types", "plain");
+        properties.setProperty("plain.sprite", "/Pictures/red_apple.png");
+        properties.setProperty("plain.score", "0");
+        FoodTable foods = FoodTable.parse(properties, null);
+        SnakeEnv env = new SnakeEnv(10, 8, SpeedProfile.CLASSIC, foods, 2000);
+        env.setRewards(2, -1, -0.5f);
+        env.reset(5);
+
+        Policy policy = new GreedyPolicy();
+        int eaten = 0;
+        StepResult result;
+        do {
+            result = env.step(action(policy.decide(env.getState())));
+            if (result.getEaten() != null) {
+                eaten++;
+                assertEquals(1.5f, result.getReward());
+            } else if (!result.isTerminated()) {
+                assertEquals(-0.5f, result.getReward());
+            }
+        } while (!result.isDone());
+        assertTrue(eaten > 0);
+        assertEquals(0, result.getScore());
+        assertEquals(1 + eaten, result.getLength());
+    }
+
+    /**
+     * Turns a decision of a policy into an action
+     */
+    private static int action(Direction direction)
+    {
+        return direction == null ? SnakeEnv.ACTION_STRAIGHT : direction.ordinal();
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.snakegame;
+
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnakeTest
+{
+    private static final int SIZE = 1000;
+
+    @Test
+    void bodyFollowsMovesAcrossTheEndOfTheRing()
+    {
+        Snake snake = new Snake(SIZE, SIZE, SIZE / 2, SIZE / 2);
+        Deque<Segment> expected = new ArrayDeque<>();
+        expected.add(new Segment(SIZE / 2, SIZE / 2));
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            if (random.nextInt(4) == 0) snake.setDirection(Direction.values()[random.nextInt(4)]);
+            if (random.nextInt(20) == 0) {
+                snake.grow();
+                expected.addLast(expected.getLast());
+            }
+            Segment head = expected.getFirst();
+            Segment tail = expected.getLast();
+            snake.move();
+            expected.removeLast();
+            Direction direction = snake.getDirection();
+            expected.addFirst(new Segment(head.getX() + dx(direction), head.getY() + dy(direction)));
+            assertEquals(tail, new Segment(snake.getPreviousTailX(), snake.getPreviousTailY()));
+            assertBody(new ArrayList<>(expected), snake);
+        }
+        assertEquals(5000, snake.getMoves());
+        assertTrue(snake.getLength() > 64, "The ring never had to grow");
+    }
+
+    @Test
+    void growsWhileTheHeadIsInTheMiddleOfTheRing()
+    {
+        Snake snake = new Snake(SIZE, SIZE, 0, 0);
+        for (int i = 0; i < 40; i++) {
+            snake.move();
+        }
+        for (int i = 0; i < 100; i++) {
+            snake.grow();
+            snake.move();
+        }
+        // 101 segments on the cells from x = 40 to 140, the head in front
+        assertEquals(101, snake.getLength());
+        for (int i = 0; i < snake.getLength(); i++) {
+            assertEquals(140 - i, snake.getX(i));
+            assertEquals(0, snake.getY(i));
+        }
+        for (int x = 0; x < 150; x++) {
+            assertEquals(x >= 40 && x <= 140, snake.isOccupied(x, 0), "Cell " + x);
+        }
+    }
+
+    @Test
+    void restoresFromWrittenBody()
+    {
+        Snake snake = new Snake(SIZE, SIZE, 3, 3);
+        Direction[] turns = {Direction.RIGHT, Direction.DOWN, Direction.LEFT, Direction.DOWN};
+        for (int i = 0; i < 200; i++) {
+            snake.setDirection(turns[(i / 10) % turns.length]);
+            if (i % 3 == 0) snake.grow();
+            snake.move();
+        }
+        IntBuffer cells = IntBuffer.allocate(snake.getLength());
+        snake.writeBody(cells);
+        cells.flip();
+        Snake copy = new Snake(SIZE, SIZE, cells, snake.getLength());
+
+        assertBody(snake.getSegments(), copy);
+        for (int y = 0; y < 60; y++) {
+            for (int x = 0; x < 60; x++) {
+                assertEquals(snake.isOccupied(x, y), copy.isOccupied(x, y), "Cell " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void segmentsAreAReadOnlyView()
+    {
+        Snake snake = new Snake(SIZE, SIZE, 5, 5);
+        List<Segment> segments = snake.getSegments();
+        snake.grow();
+        snake.move();
+        assertEquals(2, segments.size());
+        assertEquals(new Segment(6, 5), segments.get(0));
+        assertEquals(new Segment(5, 5), segments.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> segments.get(2));
+        assertThrows(UnsupportedOperationException.class, () -> segments.add(new Segment(0, 0)));
+    }
+
+    @Test
+    void ignoresTurnsIntoTheOppositeDirection()
+    {
+        Snake snake = new Snake(SIZE, SIZE, 5, 5);
+        snake.setDirection(Direction.LEFT);
+        assertEquals(Direction.RIGHT, snake.getDirection());
+        snake.move();
+        assertFalse(snake.checkCollision());
+        assertEquals(6, snake.getHeadX());
+    }
+
+    private static int dx(Direction direction)
+    {
+        return direction == Direction.LEFT ? -1 : direction == Direction.RIGHT ? 1 : 0;
+    }
+
+    private static int dy(Direction direction)
+    {
+        return direction == Direction.UP ? -1 : direction == Direction.DOWN ? 1 : 0;
+    }
+
+    private static void assertBody(List<Segment> expected, Snake snake)
+    {
+        assertEquals(expected.size(), snake.getLength());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), new Segment(snake.getX(i), snake.getY(i)), "Segment " + i);
+            assertEquals(expected.get(i), snake.getSegments().get(i), "Segment view " + i);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.snakegame;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpeedProfileTest
+{
+    private static final double[] INVALID = {
+            0.5, 0, -1, 149.5, 1e-9, Double.NaN, Double.POSITIVE_INFINITY, (double) Integer.MAX_VALUE + 1};
+
+    @Test
+    void acceptsWholeMillisecondsFromOne()
+    {
+        SpeedProfile speeds = new SpeedProfile(1, 2, Integer.MAX_VALUE);
+        assertEquals(1, speeds.getNormalSpeed());
+        assertEquals(2, speeds.getBoostSpeed());
+        assertEquals(Integer.MAX_VALUE, speeds.getRestartSpeed());
+    }
+
+    @Test
+    void rejectsFractionalAndTooShortSpeeds()
+    {
+        for (double speed : INVALID) {
+            assertThrows(IllegalArgumentException.class, () -> new SpeedProfile(speed, 75, 250), "normal " + speed);
+            assertThrows(IllegalArgumentException.class, () -> new SpeedProfile(150, speed, 250), "boost " + speed);
+            assertThrows(IllegalArgumentException.class, () -> new SpeedProfile(150, 75, speed), "restart " + speed);
+        }
+    }
+
+    @Test
+    void engineRejectsFractionalAndTooShortSpeeds()
+    {
+        SimulationEngine engine = new SimulationEngine(10, 8, SpeedProfile.CLASSIC, 1);
+        for (double speed : INVALID) {
+            assertThrows(IllegalArgumentException.class, () -> engine.reset(2, speed), "speed " + speed);
+        }
+        engine.reset(2, 1);
+        assertEquals(1, engine.getState().getSnake().getSpeed());
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.snakegame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsStoreTest
+{
+    private static final int TOP = 20;
+    private static final long NEVER = 3_600_000; // Compaction interval, the index is only written on close()
+    private static final int TYPES = 3;
+    private static final int RECORD_SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 4 + TYPES * Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheRecordsBackAfterReopening() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        List<GameRecord> expected = records(1, 300);
+        try (StatsStore store = open(file, TOP)) {
+            expected.forEach(store::record);
+        }
+        assertTrue(Files.exists(index(file)));
+
+        try (StatsStore store = open(file, TOP)) {
+            assertEquals(expected.size(), store.getCount());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameRecord(expected.get(i), store.get(i));
+            }
+            assertTop(expected, store);
+            assertEquals(0, store.getSessionGames());
+            assertThrows(IndexOutOfBoundsException.class, () -> store.get(expected.size()));
+        }
+    }
+
+    @Test
+    void rebuildsTheTopListWithoutAnIndex() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        List<GameRecord> expected = records(2, 300);
+        try (StatsStore store = open(file, TOP)) {
+            expected.forEach(store::record);
+        }
+        Files.delete(index(file));
+        try (StatsStore store = open(file, TOP)) {
+            assertTop(expected, store);
+        }
+    }
+
+    @Test
+    void addsTheRecordsAStaleIndexDoesNotCover() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        Path stale = directory.resolve("stale.top");
+        List<GameRecord> expected = records(3, 250);
+        try (StatsStore store = open(file, TOP)) {
+            expected.subList(0, 100).forEach(store::record);
+        }
+        Files.copy(index(file), stale);
+        try (StatsStore store = open(file, TOP)) {
+            expected.subList(100, expected.size()).forEach(store::record);
+        }
+        // As if the process died before the index of the last 150 games was written
+        Files.copy(stale, index(file), StandardCopyOption.REPLACE_EXISTING);
+        try (StatsStore store = open(file, TOP)) {
+            assertEquals(expected.size(), store.getCount());
+            assertTop(expected, store);
+        }
+    }
+
+    @Test
+    void ignoresACorruptIndex() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        List<GameRecord> expected = records(4, 200);
+        try (StatsStore store = open(file, TOP)) {
+            expected.forEach(store::record);
+        }
+        byte[] bytes = Files.readAllBytes(index(file));
+        ByteBuffer.wrap(bytes).putLong(bytes.length - Long.BYTES, 1_000_000); // A record that does not exist
+        Files.write(index(file), bytes);
+        try (StatsStore store = open(file, TOP)) {
+            assertTop(expected, store);
+        }
+
+        Files.write(index(file), new byte[] {1, 2, 3});
+        try (StatsStore store = open(file, TOP)) {
+            assertTop(expected, store);
+        }
+    }
+
+    @Test
+    void ignoresAnIndexOfAShorterTopList() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        List<GameRecord> expected = records(5, 200);
+        try (StatsStore store = open(file, 5)) {
+            expected.forEach(store::record);
+        }
+        try (StatsStore store = open(file, 5)) {
+            assertEquals(5, store.getTop(TOP).size());
+        }
+        try (StatsStore store = open(file, TOP)) {
+            assertTop(expected, store);
+        }
+    }
+
+    @Test
+    void growsBeyondTheFirstMapping() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        int count = (1 << 20) / RECORD_SIZE + 1000;
+        List<GameRecord> expected = records(6, count);
+        try (StatsStore store = open(file, TOP)) {
+            expected.forEach(store::record);
+        }
+        assertTrue(Files.size(file) > 1 << 20);
+        try (StatsStore store = open(file, TOP)) {
+            assertEquals(count, store.getCount());
+            for (int i = 0; i < count; i += 997) {
+                assertSameRecord(expected.get(i), store.get(i));
+            }
+            assertSameRecord(expected.get(count - 1), store.get(count - 1));
+            assertTop(expected, store);
+        }
+    }
+
+    @Test
+    void aRecordWrittenBeforeTheCountIsNotThere() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        List<GameRecord> expected = records(7, 10);
+        try (StatsStore store = open(file, TOP)) {
+            expected.forEach(store::record);
+        }
+        Files.delete(index(file));
+        // A crash after the record but before the count: the record has a score, the count stays 10
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer score = ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MAX_VALUE);
+            channel.write(score, StatsStore.HEADER_SIZE + 10L * RECORD_SIZE + 32);
+        }
+        try (StatsStore store = open(file, TOP)) {
+            assertEquals(10, store.getCount());
+            assertTop(expected, store);
+            assertTrue(store.getBestScore() < Integer.MAX_VALUE);
+        }
+    }
+
+    @Test
+    void rejectsHeadersWithTooManyFoodTypes() throws IOException
+    {
+        Path file = directory.resolve("stats.log");
+        try (StatsStore store = open(file, TOP)) {
+            store.record(records(8, 1).get(0));
+        }
+        int types = FoodTable.MAX_TYPES + 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(2 + 4).putShort((short) types).putInt(44 + types * 4).flip();
+            channel.write(header, 6);
+        }
+        assertThrows(IOException.class, () -> open(file, TOP));
+        assertThrows(IllegalArgumentException.class, () -> StatsStore.open(directory.resolve("new.log"),
+                TOP, NEVER, types));
+    }
+
+    @Test
+    void rejectsFilesThatAreNoStatsLog() throws IOException
+    {
+        Path file = directory.resolve("other.log");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> open(file, TOP));
+    }
+
+    private static StatsStore open(Path file, int topSize) throws IOException
+    {
+        return StatsStore.open(file, topSize, NEVER, TYPES);
+    }
+
+    private static Path index(Path file)
+    {
+        return file.resolveSibling(file.getFileName() + ".top");
+    }
+
+    /**
+     * Makes records with scores from a small range, so many of them tie
+     */
+    private static List<GameRecord> records(long seed, int count)
+    {
+        Random random = new Random(seed);
+        List<GameRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int[] eaten = {random.nextInt(50), random.nextInt(50), random.nextInt(50)};
+            records.add(new GameRecord(1_700_000_000_000L + i, random.nextLong(), random.nextInt(60),
+                    1 + random.nextInt(60), random.nextInt(10_000), random.nextInt(1_000_000),
+                    random.nextInt(5), eaten));
+        }
+        return records;
+    }
+
+    /**
+     * Checks the top list against the records sorted by descending score, ties in the order they were played
+     */
+    private static void assertTop(List<GameRecord> records, StatsStore store)
+    {
+        List<GameRecord> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparingInt(GameRecord::getScore).reversed()); // Stable, keeps the order of ties
+        List<GameRecord> top = store.getTop(Integer.MAX_VALUE);
+        assertEquals(Math.min(records.size(), TOP), top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertSameRecord(sorted.get(i), top.get(i));
+        }
+        assertEquals(sorted.get(0).getScore(), store.getBestScore());
+    }
+
+    private static void assertSameRecord(GameRecord expected, GameRecord actual)
+    {
+        assertEquals(expected.getFinishedAt(), actual.getFinishedAt());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getScore(), actual.getScore());
+        assertEquals(expected.getLength(), actual.getLength());
+        assertEquals(expected.getTicks(), actual.getTicks());
+        assertEquals(expected.getDurationMillis(), actual.getDurationMillis());
+        assertEquals(expected.getInsaneCount(), actual.getInsaneCount());
+        for (int i = 0; i < TYPES; i++) {
+            assertEquals(expected.getEaten(i), actual.getEaten(i));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.snakegame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest
+{
+    @Test
+    void firesAtTheDeadlineAndNotBefore()
+    {
+        TimerWheel wheel = new TimerWheel(8, 10);
+        List<Integer> fired = new ArrayList<>();
+        wheel.schedule(105, 1, 42);
+        wheel.advance(104, (kind, payload) -> fired.add(payload));
+        assertTrue(fired.isEmpty());
+        wheel.advance(105, (kind, payload) -> fired.add(payload));
+        assertEquals(List.of(42), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timersBeyondOneTurnWaitInTheirSlot()
+    {
+        // The wheel covers 80 ms, the timer is more than six turns away
+        TimerWheel wheel = new TimerWheel(8, 10);
+        long[] firedAt = {-1};
+        wheel.schedule(500, 0, 0);
+        for (long time = 1; time <= 600; time++) {
+            long now = time;
+            wheel.advance(time, (kind, payload) -> firedAt[0] = now);
+        }
+        assertEquals(500, firedAt[0]);
+    }
+
+    @Test
+    void aLargeStepFiresEverythingDue()
+    {
+        TimerWheel wheel = new TimerWheel(8, 10);
+        Set<Integer> fired = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            wheel.schedule(i * 37L, 0, i);
+        }
+        wheel.advance(10_000, (kind, payload) -> fired.add(payload));
+        assertEquals(100, fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timersOfOneSlotFireInTheOrderTheyWereScheduled()
+    {
+        TimerWheel wheel = new TimerWheel(8, 10);
+        List<Integer> fired = new ArrayList<>();
+        wheel.schedule(25, 0, 1);
+        wheel.schedule(21, 0, 2);
+        wheel.schedule(29, 0, 3);
+        wheel.advance(29, (kind, payload) -> fired.add(payload));
+        assertEquals(List.of(1, 2, 3), fired);
+    }
+
+    @Test
+    void cancelledTimersNeverFire()
+    {
+        TimerWheel wheel = new TimerWheel(8, 10);
+        int cancelled = wheel.schedule(50, 0, 1);
+        wheel.schedule(50, 0, 2);
+        wheel.cancel(cancelled);
+        wheel.cancel(TimerWheel.NONE);
+        assertEquals(1, wheel.size());
+        List<Integer> fired = new ArrayList<>();
+        wheel.advance(100, (kind, payload) -> fired.add(payload));
+        assertEquals(List.of(2), fired);
+    }
+
+    @Test
+    void handlerMayScheduleTheNextTimer()
+    {
+        TimerWheel wheel = new TimerWheel(4, 10);
+        List<Long> fired = new ArrayList<>();
+        wheel.schedule(30, 7, 0);
+        for (long time = 1; time <= 300; time++) {
+            wheel.advance(time, (kind, payload) -> {
+                fired.add(wheel.getTime());
+                wheel.schedule(wheel.getTime() + 30, kind, payload);
+            });
+        }
+        assertEquals(10, fired.size());
+        for (int i = 0; i < fired.size(); i++) {
+            assertEquals(30L * (i + 1), (long) fired.get(i));
+        }
+    }
+
+    @Test
+    void matchesAListOfDeadlines()
+    {
+        TimerWheel wheel = new TimerWheel(16, 25);
+        Map<Integer, Long> pending = new HashMap<>(); // Payload to deadline
+        Map<Integer, Integer> handles = new HashMap<>();
+        Random random = new Random(23);
+        long time = 0;
+        int nextPayload = 0;
+        for (int round = 0; round < 5000; round++) {
+            int action = random.nextInt(4);
+            if (action < 2) {
+                long deadline = time + random.nextInt(2000) - 50;
+                int payload = nextPayload++;
+                handles.put(payload, wheel.schedule(deadline, 0, payload));
+                pending.put(payload, deadline);
+            } else if (action == 2 && !pending.isEmpty()) {
+                int payload = pending.keySet().iterator().next();
+                wheel.cancel(handles.remove(payload));
+                pending.remove(payload);
+            } else {
+                time += random.nextInt(300);
+                long now = time;
+                Set<Integer> due = new HashSet<>();
+                pending.forEach((payload, deadline) -> {
+                    if (deadline <= now) due.add(payload);
+                });
+                Set<Integer> fired = new HashSet<>();
+                wheel.advance(time, (kind, payload) -> assertTrue(fired.add(payload), "Fired twice: " + payload));
+                assertEquals(due, fired, "At " + time);
+                due.forEach(payload -> {
+                    pending.remove(payload);
+                    handles.remove(payload);
+                });
+            }
+            assertEquals(pending.size(), wheel.size());
+        }
+    }
+
+    @Test
+    void clearRemovesAllTimers()
+    {
+        TimerWheel wheel = new TimerWheel(8, 10);
+        for (int i = 0; i < 50; i++) {
+            wheel.schedule(i, 0, i);
+        }
+        wheel.clear(1000);
+        assertEquals(0, wheel.size());
+        assertEquals(1000, wheel.getTime());
+        wheel.advance(5000, (kind, payload) -> {
+            throw new AssertionError("Timer " + payload + " survived clear()");
+        });
+        assertThrows(IllegalArgumentException.class, () -> wheel.advance(4999, (kind, payload) -> { }));
+    }
+
+    @Test
+    void rejectsSlotCountsThatAreNoPowerOfTwo()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(12, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(16, 0));
+    }
+}
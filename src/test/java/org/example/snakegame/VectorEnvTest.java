@@ -0,0 +1,116 @@
+package org.example.snakegame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorEnvTest
+{
+    private static final int ENVS = 40; // Enough to be split into several tasks on a pool
+
+    @Test
+    void givesTheSameStepsOnAnyNumberOfThreads()
+    {
+        VectorEnv single = new VectorEnv(ENVS, 8, 6, SpeedProfile.CLASSIC, 200);
+        VectorEnv parallel = new VectorEnv(ENVS, 8, 6, SpeedProfile.CLASSIC, 200);
+        VectorEnv buffered = new VectorEnv(ENVS, 8, 6, SpeedProfile.CLASSIC, 200);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setPool(pool);
+            buffered.setPool(pool);
+            int size = ENVS * single.getObservationSize();
+            float[] expected = new float[size];
+            float[] actual = new float[size];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder());
+            single.reset(12, expected);
+            parallel.reset(12, actual);
+            buffered.reset(12, buffer);
+            assertArrayEquals(expected, actual);
+            assertSameObservations(expected, buffer);
+
+            int[] actions = new int[ENVS];
+            float[] expectedRewards = new float[ENVS];
+            float[] actualRewards = new float[ENVS];
+            float[] bufferedRewards = new float[ENVS];
+            boolean[] expectedDones = new boolean[ENVS];
+            boolean[] actualDones = new boolean[ENVS];
+            boolean[] bufferedDones = new boolean[ENVS];
+            Random random = new Random(13);
+            int episodes = 0;
+            for (int step = 0; step < 500; step++) {
+                for (int i = 0; i < ENVS; i++) {
+                    actions[i] = random.nextInt(SnakeEnv.ACTION_COUNT);
+                }
+                single.step(actions, expectedRewards, expectedDones, expected);
+                parallel.step(actions, actualRewards, actualDones, actual);
+                buffered.step(actions, bufferedRewards, bufferedDones, buffer);
+                assertArrayEquals(expectedRewards, actualRewards);
+                assertArrayEquals(expectedRewards, bufferedRewards);
+                assertArrayEquals(expectedDones, actualDones);
+                assertArrayEquals(expectedDones, bufferedDones);
+                assertArrayEquals(expected, actual);
+                assertSameObservations(expected, buffer);
+                for (boolean done : expectedDones) {
+                    if (done) episodes++;
+                }
+            }
+            // Every environment went through several episodes, so the seeds of later episodes are covered too
+            assertTrue(episodes > 2 * ENVS);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void resetsAnEndedEpisodeButKeepsItsResult()
+    {
+        VectorEnv env = new VectorEnv(1, 8, 6, SpeedProfile.CLASSIC, 200);
+        float[] observations = new float[env.getObservationSize()];
+        float[] fresh = new float[env.getObservationSize()];
+        float[] rewards = new float[1];
+        boolean[] dones = new boolean[1];
+        int[] straight = {SnakeEnv.ACTION_STRAIGHT};
+        env.reset(14, observations);
+
+        int ticks = 0;
+        do {
+            env.step(straight, rewards, dones, observations);
+            ticks++;
+        } while (!dones[0]);
+
+        // The snake went straight into a wall
+        StepResult result = env.getResult(0);
+        assertTrue(result.isDone());
+        assertTrue(result.isTerminated());
+        assertEquals(ticks, result.getTick());
+        assertEquals(-1, rewards[0]);
+
+        // The environment already plays the next episode and observes its start
+        SnakeEnv next = env.getEnv(0);
+        assertFalse(next.isDone());
+        assertEquals(0, next.getState().getTick());
+        next.observe(fresh, 0);
+        assertArrayEquals(fresh, observations);
+
+        env.step(straight, rewards, dones, observations);
+        assertEquals(1, env.getResult(0).getTick());
+    }
+
+    /**
+     * Checks that a buffer holds the same floats as an array
+     */
+    private static void assertSameObservations(float[] expected, ByteBuffer actual)
+    {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual.getFloat(i * Float.BYTES), "float " + i);
+        }
+    }
+}